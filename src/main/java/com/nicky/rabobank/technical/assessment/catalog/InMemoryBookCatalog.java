@@ -0,0 +1,352 @@
+package com.nicky.rabobank.technical.assessment.catalog;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookVersions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Copy of the whole catalog held in memory for read-mostly deployments,
+ * enabled with {@code library.books.catalog.in-memory=true}. Books are
+ * still written to the database first, which stays the source of truth;
+ * committed changes are then applied here through
+ * {@link BookChangedEvent}s, so reads of books by ID, by borrower and page
+ * by page no longer query the database.
+ *
+ * <p>Books are stored column by column in arrays indexed by book ID, which
+ * are dense since IDs come from a sequence: the {@link BookVersions} of the
+ * existing books, a bit set of the available ones, and arrays of borrower
+ * IDs, titles and authors, authors being shared between books. There is no
+ * entity or boxed key per book. The books of a borrower are linked through
+ * two more arrays, starting from an array indexed by user ID, so finding
+ * them visits only their own books.
+ */
+@Component
+@ConditionalOnProperty(name = "library.books.catalog.in-memory")
+public class InMemoryBookCatalog {
+
+    /**
+     * Number of books and users the arrays initially have room for.
+     */
+    private static final int INITIAL_CAPACITY = BookVersions.INITIAL_CAPACITY;
+
+    /**
+     * Value of the link and borrower columns meaning none. IDs start at 1.
+     */
+    private static final int NONE = 0;
+
+    /**
+     * Lock guarding all columns. Reads only take its read lock, so they
+     * never wait for each other.
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * Books in the catalog, and their versions.
+     */
+    private final BookVersions versions = new BookVersions();
+
+    /**
+     * IDs of the available books.
+     */
+    private final BitSet available = new BitSet();
+
+    /**
+     * Authors, by themselves, so books of the same author share one string.
+     */
+    private final Map<String, String> authorPool = new HashMap<>();
+
+    /**
+     * Titles, by book ID.
+     */
+    private String[] titles = new String[INITIAL_CAPACITY];
+
+    /**
+     * Authors, by book ID.
+     */
+    private String[] authors = new String[INITIAL_CAPACITY];
+
+    /**
+     * Borrower IDs, by book ID, {@link #NONE} if available.
+     */
+    private int[] borrowerIds = new int[INITIAL_CAPACITY];
+
+    /**
+     * ID of the next book of the same borrower, by book ID.
+     */
+    private int[] nextLoans = new int[INITIAL_CAPACITY];
+
+    /**
+     * ID of the previous book of the same borrower, by book ID.
+     */
+    private int[] previousLoans = new int[INITIAL_CAPACITY];
+
+    /**
+     * ID of the most recently borrowed book of a user, by user ID.
+     */
+    private int[] firstLoans = new int[INITIAL_CAPACITY];
+
+    /**
+     * Whether the catalog holds every book of the database.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Checks whether the catalog holds every book and can be read.
+     *
+     * @return true once the initial load has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Marks the initial load of the catalog as completed.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Adds a book to the catalog, replacing any previous version of it.
+     * Versions older than the one in the catalog, read by the initial load
+     * before a change was applied, are ignored.
+     *
+     * @param book the book to add
+     * @throws IllegalArgumentException if the book has no positive ID
+     */
+    public void put(final Book book) {
+        int id = BookVersions.checkId(book.getId());
+        int version = BookVersions.versionOf(book);
+        int borrowerId = !book.isAvailable() && book.getBorrowerId() != null
+                ? BookVersions.checkId(book.getBorrowerId()) : NONE;
+        long stamp = lock.writeLock();
+        try {
+            boolean wasPresent = versions.isPresent(id);
+            if (!versions.put(id, version)) {
+                return;
+            }
+            ensureBookCapacity(id);
+            if (wasPresent) {
+                unlinkLoan(id);
+            }
+            available.set(id, book.isAvailable());
+            titles[id] = book.getTitle();
+            authors[id] = authorPool.computeIfAbsent(book.getAuthor(),
+                    author -> author);
+            borrowerIds[id] = borrowerId;
+            if (borrowerId != NONE) {
+                linkLoan(id, borrowerId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a book from the catalog.
+     *
+     * @param id the ID of the book to remove
+     */
+    public void remove(final int id) {
+        BookVersions.checkId(id);
+        long stamp = lock.writeLock();
+        try {
+            if (!versions.remove(id)) {
+                return;
+            }
+            unlinkLoan(id);
+            available.clear(id);
+            titles[id] = null;
+            authors[id] = null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Finds a book by ID.
+     *
+     * @param id the ID of the book
+     * @return a new, detached copy of the book, or empty if it doesn't exist
+     */
+    public Optional<Book> findById(final int id) {
+        long stamp = lock.readLock();
+        try {
+            return versions.isPresent(id)
+                    ? Optional.of(toBook(id)) : Optional.empty();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds books by ID.
+     *
+     * @param ids the IDs of the books
+     * @return new, detached copies of the books that exist, in the order of
+     *         the given IDs
+     */
+    public List<Book> findAllById(final Iterable<Integer> ids) {
+        List<Book> books = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for (Integer id : ids) {
+                if (id != null && versions.isPresent(id)) {
+                    books.add(toBook(id));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return books;
+    }
+
+    /**
+     * Finds the books borrowed by a user.
+     *
+     * @param userId the ID of the user
+     * @return the books, most recently borrowed first
+     */
+    public List<BookView> findByBorrowerId(final int userId) {
+        List<BookView> books = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            if (userId <= NONE || userId >= firstLoans.length) {
+                return books;
+            }
+            for (int id = firstLoans[userId]; id != NONE;
+                 id = nextLoans[id]) {
+                books.add(toView(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return books;
+    }
+
+    /**
+     * Finds one page of books, ordered by ID.
+     *
+     * @param after the ID after which the page starts
+     * @param size  the maximum number of books
+     * @return the books of the page
+     */
+    public List<BookView> findPage(final int after, final int size) {
+        List<BookView> books = new ArrayList<>(Math.min(size,
+                INITIAL_CAPACITY));
+        int from = (int) Math.min(Math.max(after + 1L, 0),
+                BookVersions.MAX_CAPACITY);
+        long stamp = lock.readLock();
+        try {
+            for (int id = versions.nextPresent(from);
+                 id >= 0 && books.size() < size;
+                 id = versions.nextPresent(id + 1)) {
+                books.add(toView(id));
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return books;
+    }
+
+    /**
+     * Applies a committed change of a book to the catalog.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.REMOVED) {
+            remove(event.bookId());
+        } else {
+            put(event.book());
+        }
+    }
+
+    private Book toBook(final int id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(titles[id]);
+        book.setAuthor(authors[id]);
+        book.setAvailable(available.get(id));
+        book.setBorrowerId(borrowerIds[id] != NONE ? borrowerIds[id] : null);
+        book.setVersion(versions.version(id));
+        return book;
+    }
+
+    private BookView toView(final int id) {
+        return new BookView(id, titles[id], authors[id], available.get(id),
+                borrowerIds[id] != NONE ? borrowerIds[id] : null,
+                versions.version(id));
+    }
+
+    /**
+     * Adds a book in front of the books of its borrower.
+     *
+     * @param id         the ID of the book
+     * @param borrowerId the ID of the borrower
+     */
+    private void linkLoan(final int id, final int borrowerId) {
+        if (borrowerId >= firstLoans.length) {
+            firstLoans = Arrays.copyOf(firstLoans,
+                    BookVersions.grow(firstLoans.length, borrowerId));
+        }
+        int first = firstLoans[borrowerId];
+        nextLoans[id] = first;
+        previousLoans[id] = NONE;
+        if (first != NONE) {
+            previousLoans[first] = id;
+        }
+        firstLoans[borrowerId] = id;
+    }
+
+    /**
+     * Takes a book out of the books of its borrower, if it has one.
+     *
+     * @param id the ID of the book
+     */
+    private void unlinkLoan(final int id) {
+        int borrowerId = borrowerIds[id];
+        if (borrowerId == NONE) {
+            return;
+        }
+        int next = nextLoans[id];
+        int previous = previousLoans[id];
+        if (previous != NONE) {
+            nextLoans[previous] = next;
+        } else {
+            firstLoans[borrowerId] = next;
+        }
+        if (next != NONE) {
+            previousLoans[next] = previous;
+        }
+        nextLoans[id] = NONE;
+        previousLoans[id] = NONE;
+        borrowerIds[id] = NONE;
+    }
+
+    private void ensureBookCapacity(final int id) {
+        if (id < titles.length) {
+            return;
+        }
+        int capacity = BookVersions.grow(titles.length, id);
+        titles = Arrays.copyOf(titles, capacity);
+        authors = Arrays.copyOf(authors, capacity);
+        borrowerIds = Arrays.copyOf(borrowerIds, capacity);
+        nextLoans = Arrays.copyOf(nextLoans, capacity);
+        previousLoans = Arrays.copyOf(previousLoans, capacity);
+    }
+}
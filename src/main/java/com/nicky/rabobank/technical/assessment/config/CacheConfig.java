@@ -0,0 +1,47 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Enables the in-process caches for books and users by ID. The caches are
+ * Caffeine caches configured through the {@code spring.cache.*} properties,
+ * and can be switched off with {@code library.cache.enabled=false}.
+ * Evictions are transaction-aware: inside a transaction they only happen
+ * once it has committed, so a concurrent read can't cache stale data.
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+@ConditionalOnProperty(name = "library.cache.enabled", matchIfMissing = true)
+public class CacheConfig {
+
+    /**
+     * Creates the cache manager.
+     *
+     * @param cacheProperties the {@code spring.cache.*} properties
+     * @return a transaction-aware Caffeine cache manager
+     */
+    @Bean
+    public CacheManager cacheManager(final CacheProperties cacheProperties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        String specification = cacheProperties.getCaffeine().getSpec();
+        if (StringUtils.hasText(specification)) {
+            cacheManager.setCacheSpecification(specification);
+        }
+        // Create the caches upfront, so their metrics are registered
+        if (!cacheProperties.getCacheNames().isEmpty()) {
+            cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        }
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,71 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import com.nicky.rabobank.technical.assessment.idempotency.IdempotencyFilter;
+import com.nicky.rabobank.technical.assessment.idempotency.IdempotencyStore;
+import com.nicky.rabobank.technical.assessment.idempotency.InMemoryIdempotencyStore;
+import com.nicky.rabobank.technical.assessment.idempotency.JdbcIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Registers the {@link IdempotencyFilter}, which replays the stored response
+ * of a request repeated with the same {@code Idempotency-Key}. The keys are
+ * kept in memory by default, or in the database with
+ * {@code library.idempotency.store=database} when several instances of the
+ * application share it.
+ */
+@Configuration
+public class IdempotencyConfig {
+
+    /**
+     * Registers the filter.
+     *
+     * @param store the store of the keys and responses
+     * @return the registration of the filter
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            final IdempotencyStore store) {
+        return new FilterRegistrationBean<>(new IdempotencyFilter(store));
+    }
+
+    /**
+     * Creates the store keeping the keys in memory.
+     *
+     * @param maxKeys maximum number of keys kept
+     * @param ttl     time after which a key expires
+     * @return the in-memory store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "library.idempotency.store",
+            havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore(
+            @Value("${library.idempotency.max-keys:100000}")
+            final long maxKeys,
+            @Value("${library.idempotency.ttl:24h}") final Duration ttl) {
+        return new InMemoryIdempotencyStore(maxKeys, ttl);
+    }
+
+    /**
+     * Creates the store keeping the keys in the database.
+     *
+     * @param dataSource the data source of the {@code idempotency_keys} table
+     * @param ttl        time after which a key expires
+     * @return the database store
+     */
+    @Bean
+    @ConditionalOnProperty(name = "library.idempotency.store",
+            havingValue = "database")
+    public IdempotencyStore jdbcIdempotencyStore(
+            final DataSource dataSource,
+            @Value("${library.idempotency.ttl:24h}") final Duration ttl) {
+        return new JdbcIdempotencyStore(dataSource, ttl, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,26 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+/**
+ * Customizes the metrics recorded for the HTTP endpoints. Repository
+ * invocations, the connection pool and the caches are instrumented by Spring
+ * Boot; histograms and the Prometheus endpoint are enabled through the
+ * {@code management.*} properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Creates the convention naming the {@code http.server.requests} tags.
+     *
+     * @return a convention adding the {@code result} tag
+     */
+    @Bean
+    public ServerRequestObservationConvention
+            serverRequestObservationConvention() {
+        return new ResultObservationConvention();
+    }
+}
@@ -0,0 +1,65 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * Adds a {@code result} tag to the {@code http.server.requests} metrics,
+ * naming what the status codes mean for the library: whether the requested
+ * book or user was found, didn't exist, was in a conflicting state, or the
+ * request itself was invalid. The standard {@code outcome} tag is kept.
+ */
+public final class ResultObservationConvention
+        extends DefaultServerRequestObservationConvention {
+
+    /**
+     * Name of the tag.
+     */
+    static final String RESULT = "result";
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(
+            final ServerRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and(result(context));
+    }
+
+    /**
+     * Determines the result of a request from its response status.
+     *
+     * @param context the context of the request
+     * @return the {@code result} tag
+     */
+    private static KeyValue result(
+            final ServerRequestObservationContext context) {
+        HttpServletResponse response = context.getResponse();
+        if (response == null) {
+            return KeyValue.of(RESULT, "unknown");
+        }
+        HttpStatus status = HttpStatus.resolve(response.getStatus());
+        if (status == null) {
+            return KeyValue.of(RESULT, "unknown");
+        }
+        return KeyValue.of(RESULT, switch (status) {
+            case NOT_FOUND -> "not-found";
+            case CONFLICT -> "conflict";
+            case BAD_REQUEST -> "bad-request";
+            default -> {
+                if (status.is5xxServerError()) {
+                    yield "server-error";
+                } else if (status.is4xxClientError()) {
+                    yield "client-error";
+                } else if (HttpMethod.GET.matches(
+                        context.getCarrier().getMethod())) {
+                    yield "found";
+                } else {
+                    yield "success";
+                }
+            }
+        });
+    }
+}
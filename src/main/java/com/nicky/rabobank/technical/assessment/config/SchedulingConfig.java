@@ -0,0 +1,13 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the periodic background jobs, such as the reconciliation of the book
+ * statistics with the database.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
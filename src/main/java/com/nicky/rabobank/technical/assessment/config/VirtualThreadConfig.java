@@ -0,0 +1,48 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Handles requests on virtual threads instead of Tomcat's pool of platform
+ * threads, enabled with {@code library.threads.virtual=true}. Requests
+ * spend most of their time waiting for the database, and a virtual thread
+ * that waits doesn't hold on to a platform thread, so the number of
+ * requests in flight is no longer capped by {@code server.tomcat.threads.max}
+ * but by the connection pool. The service calls run on the request thread,
+ * so their transactions run on virtual threads too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.threads.virtual")
+public class VirtualThreadConfig {
+
+    /**
+     * Makes Tomcat start a virtual thread for every request.
+     *
+     * @return a customizer replacing the executor of the connector
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Creates the executor for asynchronous requests, such as the streamed
+     * listings, so they run on virtual threads as well.
+     *
+     * @return an executor starting a virtual thread for every task
+     */
+    @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(
+                Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
@@ -1,9 +1,24 @@
 package com.nicky.rabobank.technical.assessment.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookEventFeed;
+import com.nicky.rabobank.technical.assessment.service.BookExportService;
+import com.nicky.rabobank.technical.assessment.service.BookImportResult;
+import com.nicky.rabobank.technical.assessment.service.BookImportService;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
 import com.nicky.rabobank.technical.assessment.service.BookService;
 import jakarta.validation.Valid;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -12,13 +27,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/books")
@@ -29,27 +55,282 @@ public class BookController {
      */
     private final BookService bookService;
 
+    /**
+     * Service for importing books in bulk.
+     */
+    private final BookImportService bookImportService;
+
+    /**
+     * Service for exporting the catalog.
+     */
+    private final BookExportService bookExportService;
+
+    /**
+     * Feed of committed book changes.
+     */
+    private final BookEventFeed bookEventFeed;
+
+    /**
+     * Index of titles and authors used to complete what users type.
+     */
+    private final BookSuggestIndex bookSuggestIndex;
+
+    /**
+     * Mapper used to serialize streamed books and read imported ones.
+     */
+    private final ObjectMapper objectMapper;
+
     /**
      * Constructs a new BookController with the specified BookService.
      *
-     * @param bookService the service to handle book operations
+     * @param bookService       the service to handle book operations
+     * @param bookImportService the service to import books in bulk
+     * @param bookExportService the service to export the catalog
+     * @param bookEventFeed     the feed of committed book changes
+     * @param bookSuggestIndex  the index of titles and authors used to
+     *                          complete what users type
+     * @param objectMapper      the mapper used to serialize streamed books
+     *                          and read imported ones
      */
-    public BookController(final BookService bookService) {
+    public BookController(final BookService bookService,
+                          final BookImportService bookImportService,
+                          final BookExportService bookExportService,
+                          final BookEventFeed bookEventFeed,
+                          final BookSuggestIndex bookSuggestIndex,
+                          final ObjectMapper objectMapper) {
         this.bookService = bookService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.bookEventFeed = bookEventFeed;
+        this.bookSuggestIndex = bookSuggestIndex;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Retrieves all books.
+     * Retrieves one page of books, ordered by ID. When the page is full, a
+     * {@code Link} header points to the next page. The {@code ETag} of the
+     * page is derived from the IDs and versions of its books.
      *
-     * @return a ResponseEntity containing an iterable collection of all books
+     * @param after the ID of the last book of the previous page (optional)
+     * @param size  the maximum number of books to return (optional)
+     * @return a ResponseEntity containing the books of the requested page
+     * @throws ResponseStatusException if the page size is out of bounds
      */
     @GetMapping()
-    public ResponseEntity<Iterable<Book>> getAll() {
-        return ResponseEntity.ok(bookService.getAll());
+    public ResponseEntity<List<BookView>> getAll(
+            @RequestParam(defaultValue = "0") final int after,
+            @RequestParam(defaultValue = Pagination.DEFAULT_PAGE_SIZE)
+            final int size) {
+        Pagination.checkSize("size", size);
+        return page(bookService.getPage(after, size), size);
     }
 
     /**
-     * Retrieves a book by its ID.
+     * Retrieves one page of available books, ordered by ID, paginated like
+     * {@link #getAll(int, int)}. The IDs of the page come from the bitmap of
+     * available books, so borrowed books are skipped without being read.
+     *
+     * @param after the ID of the last book of the previous page (optional)
+     * @param size  the maximum number of books to return (optional)
+     * @return a ResponseEntity containing the books of the requested page
+     * @throws ResponseStatusException if the page size is out of bounds
+     */
+    @GetMapping(params = "available=true")
+    public ResponseEntity<List<BookView>> getAvailable(
+            @RequestParam(defaultValue = "0") final int after,
+            @RequestParam(defaultValue = Pagination.DEFAULT_PAGE_SIZE)
+            final int size) {
+        Pagination.checkSize("size", size);
+        return page(bookService.getAvailablePage(after, size), size);
+    }
+
+    /**
+     * Counts the available books, or the available books of an author.
+     *
+     * @param author the author whose books to count, matched exactly
+     *               (optional)
+     * @return a ResponseEntity containing the number of available books
+     */
+    @GetMapping("/available/count")
+    public ResponseEntity<Map<String, Long>> countAvailable(
+            @RequestParam(required = false) final String author) {
+        long available = author != null
+                ? bookService.countAvailable(author)
+                : bookService.countAvailable();
+        return ResponseEntity.ok(Map.of("available", available));
+    }
+
+    /**
+     * Retrieves the statistics of the catalog: the number of books, available
+     * and borrowed, the authors with the most books and the users with the
+     * most books on loan. They are read from counters maintained with every
+     * change, not aggregated from the books.
+     *
+     * @param authors   the maximum number of authors to return (optional)
+     * @param borrowers the maximum number of borrowers to return (optional)
+     * @return a ResponseEntity containing the statistics
+     * @throws ResponseStatusException if a maximum is out of bounds
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<BookStats> getStats(
+            @RequestParam(defaultValue = Pagination.DEFAULT_PAGE_SIZE)
+            final int authors,
+            @RequestParam(defaultValue = "10") final int borrowers) {
+        Pagination.checkSize("authors", authors);
+        Pagination.checkSize("borrowers", borrowers);
+        return ResponseEntity.ok(bookService.getStats(authors, borrowers));
+    }
+
+    /**
+     * Streams all books, ordered by ID, as a JSON array that is written
+     * while the books are read from the database.
+     *
+     * @return a ResponseEntity streaming all books
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return Pagination.stream(objectMapper, bookService::streamAll);
+    }
+
+    /**
+     * Exports all books, ordered by ID, as newline-delimited JSON or CSV.
+     * The rows are written while they are read from the database, gzipped
+     * when the client accepts it.
+     *
+     * @param format         the format of the export, {@code ndjson} or
+     *                       {@code csv} (optional)
+     * @param acceptEncoding the encodings accepted by the client (optional)
+     * @return a ResponseEntity streaming all books
+     * @throws ResponseStatusException if the format is unknown
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(defaultValue = "ndjson") final String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING,
+                    required = false) final String acceptEncoding) {
+        BookExportService.Format exportFormat;
+        try {
+            exportFormat = BookExportService.Format.valueOf(
+                    format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "format must be ndjson or csv");
+        }
+        boolean gzip = acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == BookExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition
+                        .attachment()
+                        .filename("books." + format.toLowerCase(Locale.ROOT))
+                        .build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(out ->
+                    bookExportService.export(exportFormat, out));
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .body(out -> {
+                    GZIPOutputStream zipped = new GZIPOutputStream(out);
+                    bookExportService.export(exportFormat, zipped);
+                    zipped.finish();
+                });
+    }
+
+    /**
+     * Streams the committed changes of books as server-sent events: one
+     * event per creation, update, removal, borrow or return, named after the
+     * kind of change. A subscriber watches some books, the books of an
+     * author, or all books. When it can't keep up, the oldest unsent events
+     * are dropped and a {@code dropped} event tells how many were missed.
+     *
+     * @param bookId the IDs of the books to watch (optional)
+     * @param author the author whose books to watch, ignoring case
+     *               (optional)
+     * @return an emitter sending the changes until the client disconnects
+     * @throws ResponseStatusException if both books and an author are given,
+     *                                 or if there are too many books
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(
+            @RequestParam(required = false) final List<Integer> bookId,
+            @RequestParam(required = false) final String author) {
+        List<Integer> bookIds = bookId != null
+                ? bookId.stream().filter(Objects::nonNull).distinct().toList()
+                : List.of();
+        String watchedAuthor = author != null && !author.isBlank()
+                ? author : null;
+        if (!bookIds.isEmpty()) {
+            Pagination.checkIds(bookIds);
+            if (watchedAuthor != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Watch either books or an author, not both");
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter();
+        BookEventFeed.Subscription subscription = bookEventFeed.subscribe(
+                bookIds, watchedAuthor, new BookEventFeed.Sink() {
+                    @Override
+                    public void send(final BookChangedEvent event)
+                            throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .name(event.type().name()
+                                        .toLowerCase(Locale.ROOT))
+                                .data(event));
+                    }
+
+                    @Override
+                    public void dropped(final long count) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .name("dropped")
+                                .data(Map.of("dropped", count)));
+                    }
+                });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
+    /**
+     * Retrieves several books by their IDs in one round trip.
+     *
+     * @param ids the IDs of the books to retrieve
+     * @return a ResponseEntity containing the books found, in the order of
+     *         their IDs, and the IDs of the books that don't exist
+     * @throws ResponseStatusException if there are no IDs or too many
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<Book>> getByIds(
+            @RequestParam final List<Integer> ids) {
+        Pagination.checkIds(ids);
+        return ResponseEntity.ok(bookService.getAll(ids));
+    }
+
+    /**
+     * Retrieves several books by their IDs in one round trip, for sets of
+     * IDs too large for a query string.
+     *
+     * @param ids the IDs of the books to retrieve, as a JSON array
+     * @return a ResponseEntity containing the books found, in the order of
+     *         their IDs, and the IDs of the books that don't exist
+     * @throws ResponseStatusException if there are no IDs or too many
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<LookupResult<Book>> lookup(
+            @RequestBody final List<Integer> ids) {
+        Pagination.checkIds(ids);
+        return ResponseEntity.ok(bookService.getAll(ids));
+    }
+
+    /**
+     * Retrieves a book by its ID. The {@code ETag} of the book is its
+     * version; a cached book is answered from the cache, so a client that
+     * already has the current version gets 304 Not Modified without a query.
      *
      * @param id the ID of the book to retrieve
      * @return a ResponseEntity containing the book with the specified ID
@@ -57,12 +338,7 @@ public class BookController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Book> getById(@PathVariable final int id) {
-        Book book = bookService.get(id);
-        if (book == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "Book not found with id: " + id);
-        }
-        return ResponseEntity.ok(book);
+        return withETag(getBook(id));
     }
 
     /**
@@ -74,10 +350,10 @@ public class BookController {
      *                                 or has no books
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Book>> getBooksByUserId(
+    public ResponseEntity<List<BookView>> getBooksByUserId(
             @PathVariable final int userId) {
         try {
-            List<Book> books = bookService.getBooksByUserId(userId);
+            List<BookView> books = bookService.getBooksByUserId(userId);
             return ResponseEntity.ok(books);
         } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -86,18 +362,24 @@ public class BookController {
     }
 
     /**
-     * Searches for books by title and/or author.
+     * Searches for books by title and/or author, most relevant first.
      *
-     * @param title  the title to search for (optional)
-     * @param author the author to search for (optional)
+     * @param title     the title to search for (optional)
+     * @param author    the author to search for (optional)
+     * @param limit     the maximum number of books to return (optional)
+     * @param available whether to only return available books (optional)
      * @return a ResponseEntity containing a list of matching books
      * @throws ResponseStatusException if neither title nor
-     *                                 author is provided
+     *                                 author is provided, or if the
+     *                                 limit is out of bounds
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Book>> searchBooks(
+    public ResponseEntity<List<BookView>> searchBooks(
             @RequestParam(required = false) final String title,
-            @RequestParam(required = false) final String author) {
+            @RequestParam(required = false) final String author,
+            @RequestParam(defaultValue = Pagination.DEFAULT_PAGE_SIZE)
+            final int limit,
+            @RequestParam(defaultValue = "false") final boolean available) {
         // If both parameters are empty, return a bad request
         if ((title == null || title.trim().isEmpty())
                 && (author == null || author.trim().isEmpty())) {
@@ -106,7 +388,10 @@ public class BookController {
                             + "provided");
         }
 
-        List<Book> books = bookService.searchBooks(title, author);
+        Pagination.checkSize("limit", limit);
+
+        List<BookView> books = bookService.searchBooks(title, author, limit,
+                available);
 
         if (books.isEmpty()) {
             return ResponseEntity.noContent().build();
@@ -114,6 +399,43 @@ public class BookController {
         return ResponseEntity.ok(books);
     }
 
+    /**
+     * Suggests titles or authors completing what a user has typed so far.
+     * Suggestions come from an in-memory index, so this can be called on
+     * every keystroke without querying the database.
+     *
+     * @param prefix the text typed so far, matched against the start of any
+     *               word, ignoring case and accents
+     * @param field  the field to complete, {@code title} or {@code author}
+     *               (optional)
+     * @param limit  the maximum number of suggestions (optional)
+     * @return a ResponseEntity containing the distinct matching titles or
+     *         authors
+     * @throws ResponseStatusException if the prefix is blank, the field is
+     *                                 unknown or the limit is out of bounds
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<String>> suggest(
+            @RequestParam final String prefix,
+            @RequestParam(defaultValue = "title") final String field,
+            @RequestParam(defaultValue = "10") final int limit) {
+        if (prefix.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "prefix must not be blank");
+        }
+        BookSuggestIndex.Field suggestField;
+        try {
+            suggestField = BookSuggestIndex.Field.valueOf(
+                    field.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "field must be title or author");
+        }
+        Pagination.checkSize("limit", limit);
+        return ResponseEntity.ok(
+                bookSuggestIndex.suggest(suggestField, prefix, limit));
+    }
+
     /**
      * Creates a new book.
      *
@@ -127,24 +449,54 @@ public class BookController {
     }
 
     /**
-     * Updates an existing book.
+     * Imports books in bulk. The body is either a JSON array of books or
+     * newline-delimited JSON (one book per line), and is read while the
+     * books are being created. Invalid items are skipped.
+     *
+     * @param body the request body
+     * @return a ResponseEntity containing the number of imported books, and
+     *         the position and reason of every rejected item
+     * @throws IOException if the request body can't be read
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BookImportResult> importBooks(final InputStream body)
+            throws IOException {
+        try (MappingIterator<Book> items = objectMapper.readerFor(Book.class)
+                .readValues(body)) {
+            return ResponseEntity.ok(bookImportService.importBooks(items));
+        }
+    }
+
+    /**
+     * Updates an existing book. With an {@code If-Match} header, the book
+     * is only updated if it still has the given version, so a client can't
+     * overwrite a change it hasn't seen; otherwise the response carries the
+     * {@code ETag} of the current version.
      *
-     * @param id   the ID of the book to update
-     * @param book the updated book data
+     * @param id      the ID of the book to update
+     * @param book    the updated book data
+     * @param ifMatch the {@code ETag} the book must still have (optional)
      * @return a ResponseEntity containing the updated book
-     * @throws ResponseStatusException if the book doesn't exist
+     * @throws ResponseStatusException if the book doesn't exist, or if it
+     *                                 doesn't have the required version
      */
     @PutMapping("/{id}")
     public ResponseEntity<Book> update(
-            @PathVariable final int id, @RequestBody @Valid final Book book) {
-        if (bookService.get(id) == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "Book not found with id: " + id);
-        }
+            @PathVariable final int id, @RequestBody @Valid final Book book,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            final String ifMatch) {
         book.setId(id); // ID is not set in the object, so we assign it here
-
-        Book updated = bookService.update(book);
-        return ResponseEntity.ok(updated);
+        Integer version = ifMatch != null
+                ? ETags.requiredVersion(ifMatch) : null;
+        try {
+            return bookService.update(book, version)
+                    .map(this::withETag)
+                    .orElseThrow(() -> notFound(id));
+        } catch (OptimisticLockingFailureException e) {
+            throw ETags.preconditionFailed(e.getMessage(),
+                    getBook(id).getVersion());
+        }
     }
 
     /**
@@ -156,11 +508,9 @@ public class BookController {
      */
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteById(@PathVariable final int id) {
-        if (bookService.get(id) == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "Book not found with id: " + id);
+        if (!bookService.remove(id)) {
+            throw notFound(id);
         }
-        bookService.remove(id);
         return ResponseEntity.noContent().build();
     }
 
@@ -209,4 +559,63 @@ public class BookController {
                     HttpStatus.NOT_FOUND, e.getMessage());
         }
     }
+
+    /**
+     * Retrieves a book that must exist.
+     *
+     * @param id the ID of the book
+     * @return the book with the specified ID
+     * @throws ResponseStatusException if the book doesn't exist
+     */
+    private Book getBook(final int id) {
+        try {
+            return bookService.get(id);
+        } catch (NoSuchElementException e) {
+            throw notFound(id);
+        }
+    }
+
+    /**
+     * Wraps a book in a response tagged with its version.
+     *
+     * @param book the book
+     * @return a ResponseEntity containing the book
+     */
+    private ResponseEntity<Book> withETag(final Book book) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (book.getVersion() != null) {
+            response.eTag(ETags.ofVersion(book.getVersion()));
+        }
+        return response.body(book);
+    }
+
+    /**
+     * Creates the exception answering a request for a missing book.
+     *
+     * @param id the ID of the book
+     * @return a 404 Not Found exception
+     */
+    private static ResponseStatusException notFound(final int id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Book not found with id: " + id);
+    }
+
+    /**
+     * Builds the response for one page of books, tagged with the IDs and
+     * versions of its books.
+     *
+     * @param books the books of the page
+     * @param size  the requested page size
+     * @return the response with the books and a link to the next page
+     */
+    private static ResponseEntity<List<BookView>> page(
+            final List<BookView> books, final int size) {
+        List<Integer> versions = new ArrayList<>(books.size() * 2);
+        books.forEach(book -> {
+            versions.add(book.id());
+            versions.add(book.version());
+        });
+        return Pagination.page(books, size, BookView::id,
+                ETags.ofContent(versions));
+    }
 }
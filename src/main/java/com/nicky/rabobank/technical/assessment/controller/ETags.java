@@ -0,0 +1,125 @@
+package com.nicky.rabobank.technical.assessment.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Helpers shared by the controllers for entity tags. A response carrying an
+ * {@code ETag} is answered with 304 Not Modified by Spring MVC when the
+ * request's {@code If-None-Match} matches it, without serializing the body.
+ */
+final class ETags {
+
+    /**
+     * Number of bytes of the content digest kept in a tag.
+     */
+    private static final int DIGEST_BYTES = 16;
+
+    private ETags() {
+    }
+
+    /**
+     * Creates the strong tag of a versioned entity. The version changes on
+     * every change of the entity, so it identifies its representation.
+     *
+     * @param version the version of the entity
+     * @return the quoted tag
+     */
+    static String ofVersion(final int version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Creates a strong tag from the parts that determine a representation,
+     * such as the IDs and versions of the books of a page.
+     *
+     * @param parts the parts of the representation
+     * @return the quoted tag, a digest of the parts
+     */
+    static String ofContent(final Iterable<?> parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Object part : parts) {
+            digest.update(String.valueOf(part)
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        byte[] hash = digest.digest();
+        return "\"" + HexFormat.of().formatHex(hash, 0, DIGEST_BYTES) + "\"";
+    }
+
+    /**
+     * Reads the version required by an {@code If-Match} header.
+     *
+     * @param ifMatch the header, a single strong tag or {@code *}
+     * @return the required version, or null if any version matches
+     * @throws ResponseStatusException if the header can't match any version
+     */
+    static Integer requiredVersion(final String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Integer.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // Not a tag of ours, so it can't match
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                "If-Match doesn't match the current version");
+    }
+
+    /**
+     * Creates the exception answering an {@code If-Match} header that no
+     * longer matches an entity. The response carries the tag of the current
+     * version, so the client can tell which version to fetch before trying
+     * again.
+     *
+     * @param reason  the reason of the failure
+     * @param version the current version of the entity
+     * @return a 412 Precondition Failed exception
+     */
+    static ResponseStatusException preconditionFailed(final String reason,
+                                                      final int version) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(ofVersion(version));
+        return new TaggedException(HttpStatus.PRECONDITION_FAILED, reason,
+                HttpHeaders.readOnlyHttpHeaders(headers));
+    }
+
+    /**
+     * Response status exception carrying headers, which Spring MVC adds to
+     * the error response.
+     */
+    private static final class TaggedException
+            extends ResponseStatusException {
+
+        /**
+         * The headers of the response.
+         */
+        private final HttpHeaders headers;
+
+        TaggedException(final HttpStatus status, final String reason,
+                        final HttpHeaders headers) {
+            super(status, reason);
+            this.headers = headers;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.nicky.rabobank.technical.assessment.controller;
+
+import com.nicky.rabobank.technical.assessment.model.HoldView;
+import com.nicky.rabobank.technical.assessment.service.HoldService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.NoSuchElementException;
+
+@RestController
+@RequestMapping("/holds")
+public final class HoldController {
+
+    /**
+     * Service for handling hold operations.
+     */
+    private final HoldService holdService;
+
+    /**
+     * Constructs a new HoldController with the specified HoldService.
+     *
+     * @param holdService the service to handle hold operations
+     */
+    public HoldController(final HoldService holdService) {
+        this.holdService = holdService;
+    }
+
+    /**
+     * Places a hold on a borrowed book for a user.
+     *
+     * @param bookId the ID of the book to wait for
+     * @param userId the ID of the user waiting for the book
+     * @return a ResponseEntity containing the hold and its position
+     * @throws ResponseStatusException if the book or user doesn't exist, or
+     *                                 if the book can't be held by the user
+     */
+    @PostMapping("/{bookId}/{userId}")
+    public ResponseEntity<HoldView> reserve(
+            @PathVariable final int bookId, @PathVariable final int userId) {
+        try {
+            return new ResponseEntity<>(holdService.reserve(bookId, userId),
+                    HttpStatus.CREATED);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves a hold with its status and position in the queue.
+     *
+     * @param id the ID of the hold
+     * @return a ResponseEntity containing the hold and its position
+     * @throws ResponseStatusException if the hold doesn't exist
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<HoldView> getById(@PathVariable final int id) {
+        try {
+            return ResponseEntity.ok(holdService.get(id));
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels a waiting hold.
+     *
+     * @param id the ID of the hold
+     * @return a ResponseEntity
+     * @throws ResponseStatusException if the hold doesn't exist, or if it is
+     *                                 no longer waiting
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable final int id) {
+        try {
+            holdService.cancel(id);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.nicky.rabobank.technical.assessment.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Helpers shared by the controllers for keyset-paginated and streamed
+ * listings.
+ */
+final class Pagination {
+
+    /**
+     * Default number of items in a page, as a string for use in
+     * request parameter annotations.
+     */
+    static final String DEFAULT_PAGE_SIZE = "100";
+
+    /**
+     * Largest page size a client may request.
+     */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Largest number of IDs a client may look up at once.
+     */
+    static final int MAX_LOOKUP_SIZE = 10000;
+
+    private Pagination() {
+    }
+
+    /**
+     * Validates a requested page size or result limit.
+     *
+     * @param name the name of the request parameter
+     * @param size the requested page size
+     * @throws ResponseStatusException if the size is out of bounds
+     */
+    static void checkSize(final String name, final int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    name + " must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Validates the IDs of a batch lookup.
+     *
+     * @param ids the requested IDs
+     * @throws ResponseStatusException if there are no IDs or too many
+     */
+    static void checkIds(final List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + MAX_LOOKUP_SIZE
+                            + " ids must be provided");
+        }
+    }
+
+    /**
+     * Wraps a page of items in a response. When the page is full, a
+     * {@code Link} header with {@code rel="next"} points to the next page,
+     * using the ID of the last item as cursor. The page carries an
+     * {@code ETag}, so a client that already has it gets 304 Not Modified.
+     *
+     * @param items the items of the page
+     * @param size  the requested page size
+     * @param idOf  function extracting the ID of an item
+     * @param eTag  the tag of the page
+     * @param <T>   the type of the items
+     * @return a ResponseEntity containing the items of the page
+     */
+    static <T> ResponseEntity<List<T>> page(final List<T> items,
+                                            final int size,
+                                            final ToIntFunction<T> idOf,
+                                            final String eTag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (items.size() == size) {
+            int next = idOf.applyAsInt(items.get(items.size() - 1));
+            String uri = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", next)
+                    .replaceQueryParam("size", size)
+                    .toUriString();
+            response.header(HttpHeaders.LINK,
+                    "<" + uri + ">; rel=\"next\"");
+        }
+        return response.body(items);
+    }
+
+    /**
+     * Creates a response that writes the items produced by the source as a
+     * JSON array, one item at a time, while the source is still reading them.
+     *
+     * @param objectMapper the mapper used to serialize the items
+     * @param source       the source, pushing every item to the given consumer
+     * @param <T>          the type of the items
+     * @return a ResponseEntity streaming the items as a JSON array
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(
+            final ObjectMapper objectMapper,
+            final Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(out)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                generator.writeStartArray();
+                source.accept(item -> {
+                    try {
+                        generator.writeObject(item);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
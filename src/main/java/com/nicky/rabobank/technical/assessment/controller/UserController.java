@@ -1,6 +1,9 @@
 package com.nicky.rabobank.technical.assessment.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nicky.rabobank.technical.assessment.model.User;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
+import com.nicky.rabobank.technical.assessment.service.UserLoans;
 import com.nicky.rabobank.technical.assessment.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
@@ -10,8 +13,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/users")
@@ -22,27 +31,94 @@ public final class UserController {
      */
     private final UserService userService;
 
+    /**
+     * Mapper used to serialize streamed users.
+     */
+    private final ObjectMapper objectMapper;
+
     /**
      * Constructs a new UserController with the specified UserService.
      *
-     * @param userService the service to handle user operations
+     * @param userService  the service to handle user operations
+     * @param objectMapper the mapper used to serialize streamed users
      */
-    public UserController(final UserService userService) {
+    public UserController(final UserService userService,
+                          final ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Retrieves all users.
+     * Retrieves one page of users, ordered by ID. When the page is full, a
+     * {@code Link} header points to the next page. The {@code ETag} of the
+     * page is a digest of its users.
      *
-     * @return a ResponseEntity containing an iterable collection of all users
+     * @param after the ID of the last user of the previous page (optional)
+     * @param size  the maximum number of users to return (optional)
+     * @return a ResponseEntity containing the users of the requested page
+     * @throws ResponseStatusException if the page size is out of bounds
      */
     @GetMapping()
-    public ResponseEntity<Iterable<User>> getAll() {
-        return ResponseEntity.ok(userService.getAll());
+    public ResponseEntity<List<User>> getAll(
+            @RequestParam(defaultValue = "0") final int after,
+            @RequestParam(defaultValue = Pagination.DEFAULT_PAGE_SIZE)
+            final int size) {
+        Pagination.checkSize("size", size);
+        List<User> users = userService.getPage(after, size);
+        List<Object> content = new ArrayList<>(users.size() * 2);
+        users.forEach(user -> {
+            content.add(user.getId());
+            content.add(user.getUserName());
+        });
+        return Pagination.page(users, size, User::getId,
+                ETags.ofContent(content));
+    }
+
+    /**
+     * Streams all users, ordered by ID, as a JSON array that is written
+     * while the users are read from the database.
+     *
+     * @return a ResponseEntity streaming all users
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return Pagination.stream(objectMapper, userService::streamAll);
+    }
+
+    /**
+     * Retrieves several users by their IDs in one round trip.
+     *
+     * @param ids the IDs of the users to retrieve
+     * @return a ResponseEntity containing the users found, in the order of
+     *         their IDs, and the IDs of the users that don't exist
+     * @throws ResponseStatusException if there are no IDs or too many
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<LookupResult<User>> getByIds(
+            @RequestParam final List<Integer> ids) {
+        Pagination.checkIds(ids);
+        return ResponseEntity.ok(userService.getAll(ids));
     }
 
     /**
-     * Retrieves a user by their ID.
+     * Retrieves several users by their IDs in one round trip, for sets of
+     * IDs too large for a query string.
+     *
+     * @param ids the IDs of the users to retrieve, as a JSON array
+     * @return a ResponseEntity containing the users found, in the order of
+     *         their IDs, and the IDs of the users that don't exist
+     * @throws ResponseStatusException if there are no IDs or too many
+     */
+    @PostMapping("/lookup")
+    public ResponseEntity<LookupResult<User>> lookup(
+            @RequestBody final List<Integer> ids) {
+        Pagination.checkIds(ids);
+        return ResponseEntity.ok(userService.getAll(ids));
+    }
+
+    /**
+     * Retrieves a user by their ID. Users aren't versioned, so the
+     * {@code ETag} of a user is a digest of their ID and username.
      *
      * @param id the ID of the user to retrieve
      * @return a ResponseEntity containing the user with the specified ID
@@ -50,12 +126,34 @@ public final class UserController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<User> getById(@PathVariable final int id) {
-        User user = userService.get(id);
-        if (user == null) {
+        User user;
+        try {
+            user = userService.get(id);
+        } catch (NoSuchElementException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    e.getMessage());
+        }
+        return ResponseEntity.ok()
+                .eTag(ETags.ofContent(List.of(user.getId(),
+                        String.valueOf(user.getUserName()))))
+                .body(user);
+    }
+
+    /**
+     * Retrieves the number of books a user has on loan.
+     *
+     * @param id the ID of the user
+     * @return a ResponseEntity containing the number of books on loan
+     * @throws ResponseStatusException if the user doesn't exist
+     */
+    @GetMapping("/{id}/loans")
+    public ResponseEntity<UserLoans> getLoans(@PathVariable final int id) {
+        try {
+            return ResponseEntity.ok(userService.getLoans(id));
+        } catch (NoSuchElementException e) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "User not found with id: " + id);
+                    e.getMessage());
         }
-        return ResponseEntity.ok(user);
     }
 
     /**
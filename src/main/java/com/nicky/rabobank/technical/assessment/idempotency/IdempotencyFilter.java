@@ -0,0 +1,309 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Makes the requests that change data safe to retry. When a {@code POST},
+ * {@code PUT}, {@code PATCH} or {@code DELETE} request carries an
+ * {@code Idempotency-Key} header, its response is stored under the key, and
+ * a repeated request with the same key gets the stored response back
+ * without reaching the controller again, along with the headers that
+ * identify what it created or changed. A key is bound to the method, URI
+ * and body of the request it was first used for. Responses with a 5xx
+ * status aren't stored, so such requests can be retried.
+ */
+public final class IdempotencyFilter extends OncePerRequestFilter {
+
+    /**
+     * Header carrying the idempotency key.
+     */
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    /**
+     * Header added to replayed responses.
+     */
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    /**
+     * Longest idempotency key accepted.
+     */
+    static final int MAX_KEY_LENGTH = 255;
+
+    /**
+     * Methods whose requests are made idempotent.
+     */
+    private static final Set<String> METHODS =
+            Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    /**
+     * Headers of the response that are stored and replayed with its body.
+     */
+    private static final List<String> REPLAYED_HEADERS = List.of(
+            HttpHeaders.ETAG, HttpHeaders.LOCATION, HttpHeaders.LINK);
+
+    /**
+     * Store of the keys and responses.
+     */
+    private final IdempotencyStore store;
+
+    /**
+     * Constructs a new IdempotencyFilter.
+     *
+     * @param store the store of the keys and responses
+     */
+    public IdempotencyFilter(final IdempotencyStore store) {
+        this.store = store;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !METHODS.contains(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IDEMPOTENCY_KEY).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(),
+                    IDEMPOTENCY_KEY + " must be between 1 and "
+                            + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+        BufferedRequest buffered = new BufferedRequest(request);
+        String fingerprint = fingerprint(buffered);
+
+        Optional<IdempotencyRecord> existing = store.claim(key, fingerprint);
+        if (existing.isPresent()) {
+            replay(existing.get(), fingerprint, response);
+            return;
+        }
+
+        RecordingResponse recording = new RecordingResponse(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(buffered, recording);
+            if (!HttpStatus.valueOf(recording.getStatus()).is5xxServerError()) {
+                store.complete(key, new IdempotencyRecord(fingerprint,
+                        recording.toStoredResponse()));
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                store.release(key);
+            }
+            recording.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Answers a request whose key is already taken.
+     *
+     * @param record      the record of the request that took the key
+     * @param fingerprint the method, URI and body hash of the current
+     *                    request
+     * @param response    the response to the current request
+     * @throws IOException if the response can't be written
+     */
+    private static void replay(final IdempotencyRecord record,
+                               final String fingerprint,
+                               final HttpServletResponse response)
+            throws IOException {
+        if (!record.fingerprint().equals(fingerprint)) {
+            response.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                    IDEMPOTENCY_KEY + " was already used for "
+                            + record.fingerprint());
+            return;
+        }
+        if (record.isInProgress()) {
+            response.sendError(HttpStatus.CONFLICT.value(), "A request with "
+                    + "this " + IDEMPOTENCY_KEY + " is still in progress");
+            return;
+        }
+
+        IdempotencyRecord.Response stored = record.response();
+        response.setHeader(REPLAYED, "true");
+        stored.headers().forEach((name, values) ->
+                values.forEach(value -> response.addHeader(name, value)));
+        if (stored.error()) {
+            if (stored.errorMessage() != null) {
+                response.sendError(stored.status(), stored.errorMessage());
+            } else {
+                response.sendError(stored.status());
+            }
+            return;
+        }
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    /**
+     * Identifies a request by its method and URI and, if it has a body, the
+     * SHA-256 hash of the body, so a key reused with another body is
+     * rejected as well.
+     *
+     * @param request the request, with its body read
+     * @return the fingerprint of the request
+     */
+    private static String fingerprint(final BufferedRequest request) {
+        String query = request.getQueryString();
+        String fingerprint = request.getMethod() + " "
+                + request.getRequestURI()
+                + (query != null ? "?" + query : "");
+        if (request.body.length == 0) {
+            return fingerprint;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(request.body);
+            return fingerprint + " sha-256=" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Request wrapper reading the whole body up front, so it can be hashed
+     * before the request is handled, and serving it again to the
+     * controller. The requests made idempotent carry JSON or no body at
+     * all, so no form parameters are lost by reading it.
+     */
+    private static final class BufferedRequest
+            extends HttpServletRequestWrapper {
+
+        /**
+         * Body of the request.
+         */
+        private final byte[] body;
+
+        BufferedRequest(final HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(final byte[] b, final int off,
+                                final int len) {
+                    return input.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(final ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null
+                    ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(
+                    new InputStreamReader(getInputStream(), charset));
+        }
+    }
+
+    /**
+     * Response wrapper keeping the body, and the message of an error sent
+     * with {@code sendError}, whose body is only rendered later by the
+     * error page.
+     */
+    private static final class RecordingResponse
+            extends ContentCachingResponseWrapper {
+
+        /**
+         * Whether the response was sent as an error.
+         */
+        private boolean error;
+
+        /**
+         * Message of the error, or null.
+         */
+        private String errorMessage;
+
+        RecordingResponse(final HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            error = true;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg)
+                throws IOException {
+            error = true;
+            errorMessage = msg;
+            super.sendError(sc, msg);
+        }
+
+        IdempotencyRecord.Response toStoredResponse() {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (String name : REPLAYED_HEADERS) {
+                List<String> values = new ArrayList<>(getHeaders(name));
+                if (!values.isEmpty()) {
+                    headers.put(name, values);
+                }
+            }
+            return new IdempotencyRecord.Response(getStatus(),
+                    error ? null : getContentType(), headers,
+                    error ? new byte[0] : getContentAsByteArray(),
+                    error, errorMessage);
+        }
+    }
+}
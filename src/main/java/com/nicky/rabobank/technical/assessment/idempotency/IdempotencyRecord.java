@@ -0,0 +1,51 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What an {@link IdempotencyStore} holds for an idempotency key: the request
+ * the key was first used for and, once that request has completed, its
+ * response.
+ *
+ * @param fingerprint the method, URI and body hash of the request
+ * @param response    the response, or null while the request is in progress
+ */
+public record IdempotencyRecord(String fingerprint, Response response) {
+
+    /**
+     * Creates the record of a request that is in progress.
+     *
+     * @param fingerprint the method, URI and body hash of the request
+     * @return a record without response
+     */
+    public static IdempotencyRecord inProgress(final String fingerprint) {
+        return new IdempotencyRecord(fingerprint, null);
+    }
+
+    /**
+     * Checks whether the request is still in progress.
+     *
+     * @return true if there is no response yet
+     */
+    public boolean isInProgress() {
+        return response == null;
+    }
+
+    /**
+     * A response to replay.
+     *
+     * @param status       the status code
+     * @param contentType  the content type, or null if there is no body
+     * @param headers      the {@code ETag}, {@code Location} and
+     *                     {@code Link} headers, by name
+     * @param body         the body, empty for errors
+     * @param error        whether the response was sent as an error, whose
+     *                     body is rendered by the error page
+     * @param errorMessage the message of the error, or null
+     */
+    public record Response(int status, String contentType,
+                           Map<String, List<String>> headers, byte[] body,
+                           boolean error, String errorMessage) {
+    }
+}
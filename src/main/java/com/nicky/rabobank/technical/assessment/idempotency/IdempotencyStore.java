@@ -0,0 +1,37 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import java.util.Optional;
+
+/**
+ * Store of idempotency keys and the responses of the requests they were
+ * used for. Keys expire after a while, after which they can be used again.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims a key for a request, unless it is already taken. Claiming is
+     * atomic, so of two concurrent requests with the same key only one runs.
+     *
+     * @param key         the idempotency key
+     * @param fingerprint the method and URI of the request
+     * @return empty if the key was claimed, otherwise the record of the
+     *         request that took it
+     */
+    Optional<IdempotencyRecord> claim(String key, String fingerprint);
+
+    /**
+     * Stores the response of the request that claimed a key.
+     *
+     * @param key    the idempotency key
+     * @param record the record of the completed request
+     */
+    void complete(String key, IdempotencyRecord record);
+
+    /**
+     * Releases a claimed key whose request didn't complete, so it can be
+     * retried.
+     *
+     * @param key the idempotency key
+     */
+    void release(String key);
+}
@@ -0,0 +1,51 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Idempotency store keeping the keys in an in-process Caffeine cache,
+ * bounded in size and expiring keys a fixed time after they were claimed
+ * or completed.
+ */
+public final class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Records by idempotency key.
+     */
+    private final Cache<String, IdempotencyRecord> records;
+
+    /**
+     * Constructs a new InMemoryIdempotencyStore.
+     *
+     * @param maxKeys maximum number of keys kept
+     * @param ttl     time after which a key expires
+     */
+    public InMemoryIdempotencyStore(final long maxKeys, final Duration ttl) {
+        this.records = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(final String key,
+                                             final String fingerprint) {
+        return Optional.ofNullable(records.asMap().putIfAbsent(key,
+                IdempotencyRecord.inProgress(fingerprint)));
+    }
+
+    @Override
+    public void complete(final String key, final IdempotencyRecord record) {
+        records.put(key, record);
+    }
+
+    @Override
+    public void release(final String key) {
+        records.asMap().computeIfPresent(key,
+                (k, record) -> record.isInProgress() ? null : record);
+    }
+}
@@ -0,0 +1,142 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Idempotency store keeping the keys in the {@code idempotency_keys} table,
+ * so they are shared by every instance of the application and survive a
+ * restart. A key is claimed by inserting its row, which fails if the key is
+ * taken. Expired keys are deleted whenever a key is claimed, through the
+ * index on the creation time. The replayed headers are kept one per line,
+ * as {@code name: value}, since header values can't contain line breaks.
+ */
+public final class JdbcIdempotencyStore implements IdempotencyStore {
+
+    /**
+     * Template accessing the table.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Time after which a key expires.
+     */
+    private final Duration ttl;
+
+    /**
+     * Clock giving the creation time of keys.
+     */
+    private final Clock clock;
+
+    /**
+     * Constructs a new JdbcIdempotencyStore.
+     *
+     * @param dataSource the data source of the table
+     * @param ttl        time after which a key expires
+     * @param clock      clock giving the creation time of keys
+     */
+    public JdbcIdempotencyStore(final DataSource dataSource,
+                                final Duration ttl, final Clock clock) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public Optional<IdempotencyRecord> claim(final String key,
+                                             final String fingerprint) {
+        Timestamp now = Timestamp.from(clock.instant());
+        jdbcTemplate.update("delete from idempotency_keys "
+                + "where created_at < ?",
+                Timestamp.from(clock.instant().minus(ttl)));
+        while (true) {
+            try {
+                jdbcTemplate.update("insert into idempotency_keys "
+                        + "(idempotency_key, fingerprint, created_at) "
+                        + "values (?, ?, ?)", key, fingerprint, now);
+                return Optional.empty();
+            } catch (DuplicateKeyException e) {
+                Optional<IdempotencyRecord> record = find(key);
+                if (record.isPresent()) {
+                    return record;
+                }
+                // Released in the meantime, so try to claim it again
+            }
+        }
+    }
+
+    @Override
+    public void complete(final String key, final IdempotencyRecord record) {
+        IdempotencyRecord.Response response = record.response();
+        jdbcTemplate.update("update idempotency_keys set status = ?, "
+                        + "content_type = ?, headers = ?, body = ?, "
+                        + "error = ?, error_message = ? "
+                        + "where idempotency_key = ?",
+                response.status(), response.contentType(),
+                formatHeaders(response.headers()), response.body(),
+                response.error(), response.errorMessage(), key);
+    }
+
+    @Override
+    public void release(final String key) {
+        jdbcTemplate.update("delete from idempotency_keys "
+                + "where idempotency_key = ? and status is null", key);
+    }
+
+    private Optional<IdempotencyRecord> find(final String key) {
+        List<IdempotencyRecord> records = jdbcTemplate.query(
+                "select fingerprint, status, content_type, headers, body, "
+                        + "error, error_message from idempotency_keys "
+                        + "where idempotency_key = ?",
+                (rs, rowNum) -> {
+                    String fingerprint = rs.getString("fingerprint");
+                    int status = rs.getInt("status");
+                    if (rs.wasNull()) {
+                        return IdempotencyRecord.inProgress(fingerprint);
+                    }
+                    return new IdempotencyRecord(fingerprint,
+                            new IdempotencyRecord.Response(status,
+                                    rs.getString("content_type"),
+                                    parseHeaders(rs.getString("headers")),
+                                    rs.getBytes("body"),
+                                    rs.getBoolean("error"),
+                                    rs.getString("error_message")));
+                }, key);
+        return records.stream().findFirst();
+    }
+
+    private static String formatHeaders(
+            final Map<String, List<String>> headers) {
+        StringBuilder lines = new StringBuilder();
+        headers.forEach((name, values) -> values.forEach(value ->
+                lines.append(name).append(": ").append(value).append('\n')));
+        return lines.toString();
+    }
+
+    private static Map<String, List<String>> parseHeaders(
+            final String lines) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        if (lines == null) {
+            return headers;
+        }
+        for (String line : lines.split("\n")) {
+            int colon = line.indexOf(": ");
+            if (colon > 0) {
+                headers.computeIfAbsent(line.substring(0, colon),
+                        name -> new ArrayList<>())
+                        .add(line.substring(colon + 2));
+            }
+        }
+        return headers;
+    }
+}
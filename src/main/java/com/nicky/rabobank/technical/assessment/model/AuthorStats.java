@@ -0,0 +1,14 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+/**
+ * Number of books of one author, and how many of them are available or
+ * borrowed.
+ *
+ * @param author    the author
+ * @param books     the number of books of the author
+ * @param available the number of them that are available
+ * @param borrowed  the number of them that are borrowed
+ */
+public record AuthorStats(String author, long books, long available,
+                          long borrowed) {
+}
@@ -1,10 +1,13 @@
 package com.nicky.rabobank.technical.assessment.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotNull;
 
 /**
@@ -16,10 +19,20 @@ import jakarta.validation.constraints.NotNull;
 public final class Book {
 
     /**
-     * Unique identifier for the book.
+     * Number of IDs reserved per sequence call. Must match the increment of
+     * the {@code books_seq} sequence.
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Unique identifier for the book. IDs are taken from a sequence in
+     * blocks of {@link #ID_ALLOCATION_SIZE}, so inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+            generator = "books_seq")
+    @SequenceGenerator(name = "books_seq", sequenceName = "books_seq",
+            allocationSize = Book.ID_ALLOCATION_SIZE)
     private Integer id;
 
     /**
@@ -46,6 +59,14 @@ public final class Book {
      */
     private Integer borrowerId;
 
+    /**
+     * Version of the book, incremented on every change. Used for optimistic
+     * locking, so concurrent changes can't silently overwrite each other.
+     */
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer version;
+
     /**
      * Gets the book's unique identifier.
      *
@@ -135,4 +156,22 @@ public final class Book {
     public void setBorrowerId(final Integer borrowerId) {
         this.borrowerId = borrowerId;
     }
+
+    /**
+     * Gets the version of the book.
+     *
+     * @return the version, or null if the book hasn't been saved yet
+     */
+    public Integer getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the book.
+     *
+     * @param version the version to set
+     */
+    public void setVersion(final Integer version) {
+        this.version = version;
+    }
 }
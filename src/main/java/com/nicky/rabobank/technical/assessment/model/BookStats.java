@@ -0,0 +1,18 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+import java.util.List;
+
+/**
+ * Aggregate statistics of the catalog.
+ *
+ * @param books        the number of books
+ * @param available    the number of available books
+ * @param borrowed     the number of borrowed books
+ * @param authors      the authors with the most books, most books first
+ * @param topBorrowers the users with the most books on loan, most books
+ *                     first
+ */
+public record BookStats(long books, long available, long borrowed,
+                        List<AuthorStats> authors,
+                        List<BorrowerStats> topBorrowers) {
+}
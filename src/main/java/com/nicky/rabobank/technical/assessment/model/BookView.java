@@ -0,0 +1,32 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Read-only view of a book, returned by the listings and searches. Views
+ * are built straight from the selected columns, so unlike {@link Book}
+ * entities they aren't managed by the persistence context and don't need a
+ * snapshot for dirty checking. They serialize to the same JSON as books.
+ *
+ * @param id          the ID of the book
+ * @param title       the title of the book
+ * @param author      the author of the book
+ * @param isAvailable whether the book is available for borrowing
+ * @param borrowerId  the ID of the user who borrowed the book, or null
+ * @param version     the version of the book
+ */
+public record BookView(Integer id, String title, String author,
+                       @JsonProperty("available") boolean isAvailable,
+                       Integer borrowerId, Integer version) {
+
+    /**
+     * Creates the view of a book.
+     *
+     * @param book the book
+     * @return the view of the book
+     */
+    public static BookView of(final Book book) {
+        return new BookView(book.getId(), book.getTitle(), book.getAuthor(),
+                book.isAvailable(), book.getBorrowerId(), book.getVersion());
+    }
+}
@@ -0,0 +1,10 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+/**
+ * Number of books a user currently has on loan.
+ *
+ * @param userId the ID of the user
+ * @param books  the number of books the user has on loan
+ */
+public record BorrowerStats(Integer userId, long books) {
+}
@@ -0,0 +1,133 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Entity class representing a hold: a user waiting for a borrowed book.
+ * When the book is returned, it is lent to the user of the oldest waiting
+ * hold, so holds are served in the order of their IDs.
+ */
+@Entity
+@Table(name = "holds")
+public final class Hold {
+
+    /**
+     * Statuses of a hold.
+     */
+    public enum Status {
+        /**
+         * The user is waiting for the book.
+         */
+        WAITING,
+        /**
+         * The book was lent to the user when it was returned.
+         */
+        FULFILLED,
+        /**
+         * The user stopped waiting for the book.
+         */
+        CANCELLED
+    }
+
+    /**
+     * Unique identifier for the hold, increasing in the order holds are
+     * placed.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * ID of the book the user is waiting for.
+     */
+    private Integer bookId;
+
+    /**
+     * ID of the user waiting for the book.
+     */
+    private Integer userId;
+
+    /**
+     * Status of the hold. Defaults to waiting.
+     */
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.WAITING;
+
+    /**
+     * Gets the hold's unique identifier.
+     *
+     * @return the hold ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Sets the hold's unique identifier.
+     *
+     * @param id the hold ID to set
+     */
+    public void setId(final Integer id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the ID of the book the user is waiting for.
+     *
+     * @return the book ID
+     */
+    public Integer getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Sets the ID of the book the user is waiting for.
+     *
+     * @param bookId the book ID to set
+     */
+    public void setBookId(final Integer bookId) {
+        this.bookId = bookId;
+    }
+
+    /**
+     * Gets the ID of the user waiting for the book.
+     *
+     * @return the user ID
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+
+    /**
+     * Sets the ID of the user waiting for the book.
+     *
+     * @param userId the user ID to set
+     */
+    public void setUserId(final Integer userId) {
+        this.userId = userId;
+    }
+
+    /**
+     * Gets the status of the hold.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status of the hold.
+     *
+     * @param status the status to set
+     */
+    public void setStatus(final Status status) {
+        this.status = status;
+    }
+}
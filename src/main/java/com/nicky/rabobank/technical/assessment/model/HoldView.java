@@ -0,0 +1,27 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+/**
+ * A hold together with its place in the queue of its book.
+ *
+ * @param id       the ID of the hold
+ * @param bookId   the ID of the book the user is waiting for
+ * @param userId   the ID of the user waiting for the book
+ * @param status   the status of the hold
+ * @param position the position of the hold in the queue, 1 being the next
+ *                 to be served, or null if the hold isn't waiting
+ */
+public record HoldView(Integer id, Integer bookId, Integer userId,
+                       Hold.Status status, Integer position) {
+
+    /**
+     * Creates the view of a hold.
+     *
+     * @param hold     the hold
+     * @param position the position of the hold in the queue, or null
+     * @return the view of the hold
+     */
+    public static HoldView of(final Hold hold, final Integer position) {
+        return new HoldView(hold.getId(), hold.getBookId(), hold.getUserId(),
+                hold.getStatus(), position);
+    }
+}
@@ -1,15 +1,29 @@
 package com.nicky.rabobank.technical.assessment.repository;
 
+import com.nicky.rabobank.technical.assessment.model.AuthorStats;
 import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.model.BorrowerStats;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends CrudRepository<Book, Integer> {
     // All the functions below uses Spring Data's naming conventions to
-    // automatically generate SQL queries.
+    // automatically generate SQL queries. Read-only queries return
+    // BookViews, which select the columns straight into records instead of
+    // loading managed entities.
 
     /**
      * Retrieves all books borrowed by a specific user.
@@ -17,7 +31,15 @@ public interface BookRepository extends CrudRepository<Book, Integer> {
      * @param borrowerId the ID of the user who borrowed the books
      * @return a list of books borrowed by the specified user
      */
-    List<Book> findByBorrowerId(Integer borrowerId);
+    List<BookView> findByBorrowerId(Integer borrowerId);
+
+    /**
+     * Retrieves the books with the given IDs, in any order.
+     *
+     * @param ids the IDs of the books
+     * @return the books that exist
+     */
+    List<BookView> findByIdIn(Collection<Integer> ids);
 
     /**
      * Finds books matching both the specified title and author patterns.
@@ -28,7 +50,178 @@ public interface BookRepository extends CrudRepository<Book, Integer> {
      * @return a list of books matching both the title and author search
      *         criteria
      */
-    List<Book> findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase(
+    List<BookView> findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase(
             String title, String author
     );
+
+    /**
+     * Retrieves the page of books whose ID is greater than the given cursor,
+     * ordered by ID. This keyset pagination only touches the rows it returns,
+     * no matter how deep into the catalog the cursor points.
+     *
+     * @param id the ID of the last book of the previous page
+     * @param pageable the page size (the page number is always 0)
+     * @return the next books after the cursor, ordered by ID
+     */
+    List<BookView> findByIdGreaterThanOrderByIdAsc(Integer id,
+                                                   Pageable pageable);
+
+    /**
+     * Retrieves the page of available books whose ID is greater than the
+     * given cursor, ordered by ID, through the index on availability and ID.
+     *
+     * @param id the ID of the last book of the previous page
+     * @param pageable the page size (the page number is always 0)
+     * @return the next available books after the cursor, ordered by ID
+     */
+    List<BookView> findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc(
+            Integer id, Pageable pageable);
+
+    /**
+     * Counts the available books, through the index on availability.
+     *
+     * @return the number of available books
+     */
+    long countByIsAvailableTrue();
+
+    /**
+     * Counts the available books of an author, through the index on author
+     * and availability.
+     *
+     * @param author the author, matched exactly
+     * @return the number of available books of the author
+     */
+    long countByAuthorAndIsAvailableTrue(String author);
+
+    /**
+     * Counts the books of every author, and how many of them are available
+     * or borrowed. This aggregates the whole table.
+     *
+     * @param pageable the number of authors to return
+     * @return the authors with the most books, most books first
+     */
+    @Query("select new com.nicky.rabobank.technical.assessment.model."
+            + "AuthorStats(b.author, count(b), "
+            + "sum(case when b.isAvailable = true then 1 else 0 end), "
+            + "sum(case when b.isAvailable = true then 0 else 1 end)) "
+            + "from Book b group by b.author order by count(b) desc, b.author")
+    List<AuthorStats> countBooksByAuthor(Pageable pageable);
+
+    /**
+     * Counts the books every user has on loan, through the index on
+     * borrower. User IDs are positive, so the range condition on them
+     * selects the borrowed books from the index.
+     *
+     * @param pageable the number of users to return
+     * @return the users with the most books on loan, most books first
+     */
+    @Query("select new com.nicky.rabobank.technical.assessment.model."
+            + "BorrowerStats(b.borrowerId, count(b)) from Book b "
+            + "where b.borrowerId > 0 group by b.borrowerId "
+            + "order by count(b) desc, b.borrowerId")
+    List<BorrowerStats> countBooksByBorrower(Pageable pageable);
+
+    /**
+     * Streams all books ordered by ID straight off the JDBC cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return a stream of all books, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE,
+            value = "500"))
+    Stream<Book> streamAllByOrderByIdAsc();
+
+    /**
+     * Sets the title and author of a book in a single statement, without
+     * loading it first.
+     *
+     * @param id the ID of the book to update
+     * @param title the new title
+     * @param author the new author
+     * @return the number of updated books: 1 if the book was updated, 0 if
+     *         it doesn't exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.title = :title, b.author = :author, "
+            + "b.version = b.version + 1 where b.id = :id")
+    int updateDetails(Integer id, String title, String author);
+
+    /**
+     * Sets the title and author of a book in a single statement, but only
+     * if it still has the given version.
+     *
+     * @param id the ID of the book to update
+     * @param title the new title
+     * @param author the new author
+     * @param version the version the book must have
+     * @return the number of updated books: 1 if the book was updated, 0 if
+     *         it doesn't exist or has another version
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.title = :title, b.author = :author, "
+            + "b.version = b.version + 1 "
+            + "where b.id = :id and b.version = :version")
+    int updateDetailsIfVersion(Integer id, String title, String author,
+                               Integer version);
+
+    /**
+     * Deletes a book in a single statement, without loading it first.
+     *
+     * @param id the ID of the book to delete
+     * @return the number of deleted books: 1 if the book was deleted, 0 if
+     *         it doesn't exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Book b where b.id = :id")
+    int removeById(Integer id);
+
+    /**
+     * Marks a book as borrowed by a user, but only if it is still available.
+     * The check and the update happen in a single statement, so two
+     * concurrent borrowers can never both succeed.
+     *
+     * @param id the ID of the book to borrow
+     * @param userId the ID of the user borrowing the book
+     * @return the number of updated books: 1 if the book was borrowed, 0 if
+     *         it doesn't exist or is already borrowed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.isAvailable = false, b.borrowerId = :userId, "
+            + "b.version = b.version + 1 "
+            + "where b.id = :id and b.isAvailable = true")
+    int markBorrowed(Integer id, Integer userId);
+
+    /**
+     * Locks a book until the end of the transaction, but only if it is
+     * borrowed, with a statement that changes nothing. The book can't be
+     * returned until the transaction ends; a book that is being returned is
+     * waited for, and then no longer matches.
+     *
+     * @param id the ID of the book to lock
+     * @return the number of locked books: 1 if the book is borrowed, 0 if
+     *         it doesn't exist or is available
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.borrowerId = b.borrowerId "
+            + "where b.id = :id and b.isAvailable = false")
+    int lockIfBorrowed(Integer id);
+
+    /**
+     * Marks a book as returned, but only if it is currently borrowed.
+     *
+     * @param id the ID of the book to return
+     * @return the number of updated books: 1 if the book was returned, 0 if
+     *         it doesn't exist or is not borrowed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Book b set b.isAvailable = true, b.borrowerId = null, "
+            + "b.version = b.version + 1 "
+            + "where b.id = :id and b.isAvailable = false")
+    int markReturned(Integer id);
 }
@@ -0,0 +1,95 @@
+package com.nicky.rabobank.technical.assessment.repository;
+
+import com.nicky.rabobank.technical.assessment.model.Hold;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface HoldRepository extends CrudRepository<Hold, Integer> {
+    // The queries below all look up holds of a book by status, in ID order,
+    // which is the order of the idx_holds_book_status_id index.
+
+    /**
+     * Retrieves the oldest hold of a book with the given status that was
+     * placed after another hold.
+     *
+     * @param bookId the ID of the book
+     * @param status the status of the hold
+     * @param id     the ID of the previous hold, 0 to start at the oldest
+     * @return the next hold, or empty if there is none
+     */
+    Optional<Hold> findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(
+            Integer bookId, Hold.Status status, Integer id);
+
+    /**
+     * Counts the holds of a book with the given status that were placed
+     * before another hold.
+     *
+     * @param bookId the ID of the book
+     * @param status the status of the holds
+     * @param id     the ID of the other hold
+     * @return the number of holds placed before the other hold
+     */
+    long countByBookIdAndStatusAndIdLessThan(Integer bookId,
+                                             Hold.Status status, Integer id);
+
+    /**
+     * Retrieves the holds of a user on a book with the given status.
+     *
+     * @param bookId the ID of the book
+     * @param userId the ID of the user
+     * @param status the status of the holds
+     * @return the holds, in any order
+     */
+    List<Hold> findByBookIdAndUserIdAndStatus(Integer bookId, Integer userId,
+                                              Hold.Status status);
+
+    /**
+     * Places a hold with the given status on a book for a user in a single
+     * statement, but only if the book is borrowed by another user, the
+     * user exists and the user has no hold with that status on the book
+     * yet. Nothing is locked, so holds placed at the same time don't wait
+     * for each other.
+     *
+     * @param bookId the ID of the book
+     * @param userId the ID of the user
+     * @param status the status of the hold
+     * @return the number of placed holds: 1 if the hold was placed, 0 if
+     *         the book or user doesn't exist, the book is available or
+     *         borrowed by the user, or the user already has such a hold
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("insert into Hold (bookId, userId, status) "
+            + "select b.id, u.id, :status from Book b, User u "
+            + "where b.id = :bookId and u.id = :userId "
+            + "and b.isAvailable = false "
+            + "and (b.borrowerId is null or b.borrowerId <> :userId) "
+            + "and not exists (select h.id from Hold h "
+            + "where h.bookId = :bookId and h.userId = :userId "
+            + "and h.status = :status)")
+    int insertIfBorrowedByOther(Integer bookId, Integer userId,
+                                Hold.Status status);
+
+    /**
+     * Changes the status of a hold, but only if it still has the expected
+     * status.
+     *
+     * @param id   the ID of the hold
+     * @param from the expected status of the hold
+     * @param to   the new status of the hold
+     * @return the number of updated holds: 1 if the status was changed, 0
+     *         if the hold doesn't exist or has another status
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Hold h set h.status = :to "
+            + "where h.id = :id and h.status = :from")
+    int updateStatus(Integer id, Hold.Status from, Hold.Status to);
+}
@@ -1,7 +1,95 @@
 package com.nicky.rabobank.technical.assessment.repository;
 
 import com.nicky.rabobank.technical.assessment.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserRepository extends CrudRepository<User, Integer> {
+
+    /**
+     * Checks whether a user exists. Users are never deleted, so a positive
+     * answer is cached; a negative one isn't, as the user may be created
+     * later.
+     *
+     * @param id the ID of the user
+     * @return true if the user exists
+     */
+    @Override
+    @Cacheable(cacheNames = "userExists", unless = "!#result")
+    boolean existsById(Integer id);
+
+    /**
+     * Retrieves the page of users whose ID is greater than the given cursor,
+     * ordered by ID.
+     *
+     * @param id the ID of the last user of the previous page
+     * @param pageable the page size (the page number is always 0)
+     * @return the next users after the cursor, ordered by ID
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Integer id, Pageable pageable);
+
+    /**
+     * Streams all users ordered by ID straight off the JDBC cursor.
+     * Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return a stream of all users, ordered by ID
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE,
+            value = "500"))
+    Stream<User> streamAllByOrderByIdAsc();
+
+    /**
+     * Retrieves the number of books a user has on loan. The count is a
+     * column of the user, kept up to date by {@link #incrementLoanCount} and
+     * {@link #decrementLoanCountOfBorrower}, so no books are counted.
+     *
+     * @param id the ID of the user
+     * @return the number of books on loan, or empty if the user doesn't
+     *         exist
+     */
+    @Query(value = "select loan_count from users where id = :id",
+            nativeQuery = true)
+    Optional<Integer> findLoanCountById(Integer id);
+
+    /**
+     * Counts one more book on loan for a user, but only if the user has
+     * fewer than the given number of books on loan. The check and the
+     * update happen in a single statement.
+     *
+     * @param id the ID of the user
+     * @param maxLoans the maximum number of books a user may have on loan
+     * @return the number of updated users: 1 if the loan was counted, 0 if
+     *         the user doesn't exist or has reached the maximum
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update users set loan_count = loan_count + 1 "
+            + "where id = :id and loan_count < :maxLoans", nativeQuery = true)
+    int incrementLoanCount(Integer id, int maxLoans);
+
+    /**
+     * Counts one book less on loan for the user who borrowed a book.
+     *
+     * @param bookId the ID of the borrowed book
+     * @return the number of updated users: 1 if the loan was uncounted, 0 if
+     *         the book doesn't exist or isn't borrowed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "update users set loan_count = loan_count - 1 "
+            + "where id = (select borrower_id from books "
+            + "where id = :bookId and is_available = false)",
+            nativeQuery = true)
+    int decrementLoanCountOfBorrower(Integer bookId);
 }
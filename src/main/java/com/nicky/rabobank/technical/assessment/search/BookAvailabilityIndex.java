@@ -0,0 +1,277 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookVersions;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Bitmap of the available books, one bit per book ID. Book IDs come from a
+ * sequence and are dense, so the bitmap takes about one bit per book, 125
+ * kilobytes for a million books. Listing available books skips whole words
+ * of borrowed ones, and checking whether a book is available, such as a
+ * search result, is a single bit lookup. The available books of every
+ * author are counted as well, so how many books of an author are free is a
+ * map lookup. The bitmap is kept in sync through {@link BookChangedEvent}s,
+ * and the {@link BookVersions} of the books are kept next to it.
+ */
+@Component
+public class BookAvailabilityIndex {
+
+    /**
+     * Lock guarding the bitmap. Reads only take its read lock, so they
+     * never wait for each other.
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * IDs of the available books. Guarded by the lock.
+     */
+    private final BitSet available = new BitSet();
+
+    /**
+     * Books in the bitmap, and their versions. Guarded by the lock.
+     */
+    private final BookVersions versions = new BookVersions();
+
+    /**
+     * Counters of the authors, by author. Guarded by the lock.
+     */
+    private final Map<String, AuthorCounter> authors = new HashMap<>();
+
+    /**
+     * Author counters, by book ID. Guarded by the lock.
+     */
+    private AuthorCounter[] authorOf =
+            new AuthorCounter[BookVersions.INITIAL_CAPACITY];
+
+    /**
+     * Number of available books. Guarded by the lock.
+     */
+    private long count;
+
+    /**
+     * Whether the bitmap covers the whole catalog.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Checks whether the bitmap covers the whole catalog and can be read.
+     *
+     * @return true once the initial build has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Marks the initial build of the bitmap as completed.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Records whether a book is available. Versions older than the recorded
+     * one, read from the database before a change was applied, are ignored.
+     *
+     * @param book the book
+     * @throws IllegalArgumentException if the book has no positive ID
+     */
+    public void put(final Book book) {
+        int id = BookVersions.checkId(book.getId());
+        int version = BookVersions.versionOf(book);
+        long stamp = lock.writeLock();
+        try {
+            if (!versions.put(id, version)) {
+                return;
+            }
+            uncount(id);
+            set(id, book.isAvailable());
+            if (id >= authorOf.length) {
+                authorOf = Arrays.copyOf(authorOf,
+                        BookVersions.grow(authorOf.length, id));
+            }
+            AuthorCounter author = authors.computeIfAbsent(book.getAuthor(),
+                    AuthorCounter::new);
+            author.books++;
+            if (book.isAvailable()) {
+                author.available++;
+            }
+            authorOf[id] = author;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a book from the bitmap.
+     *
+     * @param id the ID of the removed book
+     */
+    public void remove(final int id) {
+        BookVersions.checkId(id);
+        long stamp = lock.writeLock();
+        try {
+            if (versions.remove(id)) {
+                uncount(id);
+                set(id, false);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks whether a book is available.
+     *
+     * @param id the ID of the book
+     * @return true if the book exists and is available
+     */
+    public boolean isAvailable(final int id) {
+        long stamp = lock.readLock();
+        try {
+            return id >= 0 && available.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts the available books.
+     *
+     * @return the number of available books
+     */
+    public long count() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Counts the available books of an author.
+     *
+     * @param author the author, matched exactly
+     * @return the number of available books of the author
+     */
+    public long count(final String author) {
+        long stamp = lock.readLock();
+        try {
+            AuthorCounter counter = authors.get(author);
+            return counter != null ? counter.available : 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Lists the IDs of available books, in ascending order.
+     *
+     * @param after the ID after which to start
+     * @param size  the maximum number of IDs
+     * @return the IDs of the next available books
+     */
+    public List<Integer> availableAfter(final int after, final int size) {
+        List<Integer> ids = new ArrayList<>(size);
+        if (after == Integer.MAX_VALUE) {
+            return ids;
+        }
+        int from = Math.max(after, -1) + 1;
+        long stamp = lock.readLock();
+        try {
+            for (int id = available.nextSetBit(from);
+                 id >= 0 && ids.size() < size;
+                 id = id < Integer.MAX_VALUE
+                         ? available.nextSetBit(id + 1) : -1) {
+                ids.add(id);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return ids;
+    }
+
+    /**
+     * Applies a committed change of a book to the bitmap.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.REMOVED) {
+            remove(event.bookId());
+        } else {
+            put(event.book());
+        }
+    }
+
+    /**
+     * Takes a book out of the counters of its author, if it is counted,
+     * under the write lock.
+     *
+     * @param id the ID of the book
+     */
+    private void uncount(final int id) {
+        AuthorCounter author = id < authorOf.length ? authorOf[id] : null;
+        if (author == null) {
+            return;
+        }
+        if (available.get(id)) {
+            author.available--;
+        }
+        if (--author.books == 0) {
+            authors.remove(author.author);
+        }
+        authorOf[id] = null;
+    }
+
+    /**
+     * Sets the bit of a book, under the write lock.
+     *
+     * @param id          the ID of the book
+     * @param isAvailable whether the book is available
+     */
+    private void set(final int id, final boolean isAvailable) {
+        if (available.get(id) != isAvailable) {
+            available.set(id, isAvailable);
+            count += isAvailable ? 1 : -1;
+        }
+    }
+
+    /**
+     * Number of books, and of available books, of an author.
+     */
+    private static final class AuthorCounter {
+
+        /**
+         * The author.
+         */
+        private final String author;
+
+        /**
+         * Number of books of the author.
+         */
+        private int books;
+
+        /**
+         * Number of available books of the author.
+         */
+        private int available;
+
+        AuthorCounter(final String author) {
+            this.author = author;
+        }
+    }
+}
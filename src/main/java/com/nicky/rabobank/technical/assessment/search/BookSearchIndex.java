@@ -0,0 +1,431 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookVersions;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.automaton.LevenshteinAutomata;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+
+/**
+ * In-process Lucene index over the title and author of every book.
+ * Titles and authors are tokenized, lower-cased and ASCII-folded, so a
+ * search only touches the posting lists of its terms instead of scanning
+ * the books table. The index is kept in sync through
+ * {@link BookChangedEvent}s, and the {@link BookVersions} of the indexed
+ * books are kept next to it.
+ *
+ * <p>When nothing matches, the search is retried allowing typos: every token
+ * then also matches the indexed tokens within a small edit distance of it.
+ * Lucene finds those by intersecting a Levenshtein automaton with the term
+ * dictionary, so this needs no index besides the one already kept.
+ */
+@Component
+public class BookSearchIndex implements DisposableBean {
+
+    /**
+     * Name of the field holding the book ID.
+     */
+    private static final String ID = "id";
+
+    /**
+     * Name of the field holding the book title.
+     */
+    private static final String TITLE = "title";
+
+    /**
+     * Name of the field holding the book author.
+     */
+    private static final String AUTHOR = "author";
+
+    /**
+     * Default maximum number of edits between a token and a token matching
+     * it despite a typo.
+     */
+    private static final int DEFAULT_MAX_EDITS = 2;
+
+    /**
+     * Shortest token matched with one edit. Shorter tokens only match
+     * exactly or as a prefix, since nearly every short word is a single
+     * edit away from another.
+     */
+    private static final int ONE_EDIT_LENGTH = 3;
+
+    /**
+     * Shortest token matched with two edits.
+     */
+    private static final int TWO_EDITS_LENGTH = 6;
+
+    /**
+     * Maximum number of indexed tokens a token with a typo is expanded to,
+     * the closest ones first.
+     */
+    private static final int MAX_EXPANSIONS = 50;
+
+    /**
+     * Analyzer splitting titles and authors into case-folded tokens.
+     */
+    private final Analyzer analyzer = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(
+                final String fieldName) {
+            Tokenizer tokenizer = new StandardTokenizer();
+            TokenStream tokens = new ASCIIFoldingFilter(
+                    new LowerCaseFilter(tokenizer));
+            return new TokenStreamComponents(tokenizer, tokens);
+        }
+    };
+
+    /**
+     * Writer of the in-memory index.
+     */
+    private final IndexWriter writer;
+
+    /**
+     * Manager handing out near-real-time searchers over the writer.
+     */
+    private final SearcherManager searcherManager;
+
+    /**
+     * Indexed books, and their versions. Guarded by this.
+     */
+    private final BookVersions versions = new BookVersions();
+
+    /**
+     * Whether the index changed since the searchers were last refreshed.
+     */
+    private final AtomicBoolean stale = new AtomicBoolean();
+
+    /**
+     * Maximum number of edits between a token and a token matching it
+     * despite a typo, 0 to only match exactly.
+     */
+    private final int maxEdits;
+
+    /**
+     * Whether the index holds the whole catalog.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Constructs a new, empty BookSearchIndex tolerating typos of up to two
+     * edits.
+     *
+     * @throws IOException if the in-memory index cannot be created
+     */
+    public BookSearchIndex() throws IOException {
+        this(DEFAULT_MAX_EDITS);
+    }
+
+    /**
+     * Constructs a new, empty BookSearchIndex.
+     *
+     * @param maxEdits maximum number of edits (insertions, deletions,
+     *                 substitutions or transpositions) between a token and a
+     *                 token matching it despite a typo, from 0 to 2
+     * @throws IOException if the in-memory index cannot be created
+     */
+    @Autowired
+    public BookSearchIndex(
+            @Value("${library.books.search.max-edits:2}") final int maxEdits)
+            throws IOException {
+        if (maxEdits < 0
+                || maxEdits > LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE) {
+            throw new IllegalArgumentException(
+                    "max edits must be between 0 and "
+                            + LevenshteinAutomata.MAXIMUM_SUPPORTED_DISTANCE);
+        }
+        this.maxEdits = maxEdits;
+        this.writer = new IndexWriter(new ByteBuffersDirectory(),
+                new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    /**
+     * Checks whether the index holds the whole catalog and can be searched.
+     *
+     * @return true once the initial build has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Marks the initial build of the index as completed.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Adds a book to the index, replacing any previous version of it.
+     * Versions older than the indexed one, read from the database before a
+     * change was applied, are ignored.
+     *
+     * @param book the book to index
+     * @throws IllegalArgumentException if the book has no positive ID
+     */
+    public synchronized void put(final Book book) {
+        int id = BookVersions.checkId(book.getId());
+        if (!versions.put(id, BookVersions.versionOf(book))) {
+            return;
+        }
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(book.getId()),
+                Field.Store.YES));
+        document.add(new TextField(TITLE, book.getTitle(), Field.Store.NO));
+        document.add(new TextField(AUTHOR, book.getAuthor(),
+                Field.Store.NO));
+        try {
+            writer.updateDocument(idTerm(book.getId()), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stale.set(true);
+    }
+
+    /**
+     * Removes a book from the index.
+     *
+     * @param id the ID of the book to remove
+     */
+    public synchronized void remove(final int id) {
+        versions.remove(BookVersions.checkId(id));
+        try {
+            writer.deleteDocuments(idTerm(id));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stale.set(true);
+    }
+
+    /**
+     * Searches for books by title and/or author. Every token of a non-empty
+     * parameter must match a token, or the start of a token, of the
+     * corresponding field. Exact token matches rank above prefix matches.
+     * If no book matches, tokens also match the tokens within the maximum
+     * number of edits of them, the closest ones ranking first.
+     *
+     * @param title  the title to search for, or an empty string
+     * @param author the author to search for, or an empty string
+     * @param limit  the maximum number of results
+     * @return the IDs of the matching books, most relevant first
+     */
+    public List<Integer> search(final String title, final String author,
+                                final int limit) {
+        return search(title, author, limit, id -> true);
+    }
+
+    /**
+     * Searches for books by title and/or author, like
+     * {@link #search(String, String, int)}, keeping only the books accepted
+     * by a filter. Hits are read page by page, most relevant first, until
+     * enough of them are accepted.
+     *
+     * @param title  the title to search for, or an empty string
+     * @param author the author to search for, or an empty string
+     * @param limit  the maximum number of results
+     * @param filter accepts the IDs of the books to return
+     * @return the IDs of the matching books accepted by the filter, most
+     *         relevant first
+     */
+    public List<Integer> search(final String title, final String author,
+                                final int limit, final IntPredicate filter) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean hasClauses = addClauses(query, TITLE, title, false);
+        hasClauses |= addClauses(query, AUTHOR, author, false);
+        if (!hasClauses) {
+            return List.of();
+        }
+
+        List<Integer> ids = search(query.build(), limit, filter);
+        if (!ids.isEmpty() || maxEdits == 0) {
+            return ids;
+        }
+        BooleanQuery.Builder fuzzyQuery = new BooleanQuery.Builder();
+        addClauses(fuzzyQuery, TITLE, title, true);
+        addClauses(fuzzyQuery, AUTHOR, author, true);
+        return search(fuzzyQuery.build(), limit, filter);
+    }
+
+    /**
+     * Runs a query against the latest version of the index.
+     *
+     * @param query  the query
+     * @param limit  the maximum number of results
+     * @param filter accepts the IDs of the books to return
+     * @return the IDs of the matching books, most relevant first
+     */
+    private List<Integer> search(final Query query, final int limit,
+                                 final IntPredicate filter) {
+        try {
+            if (stale.getAndSet(false)) {
+                searcherManager.maybeRefreshBlocking();
+            }
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                StoredFields storedFields = searcher.storedFields();
+                List<Integer> ids = new ArrayList<>();
+                TopDocs hits = searcher.search(query, limit);
+                while (true) {
+                    for (ScoreDoc hit : hits.scoreDocs) {
+                        int id = Integer.parseInt(
+                                storedFields.document(hit.doc).get(ID));
+                        if (filter.test(id)) {
+                            ids.add(id);
+                            if (ids.size() == limit) {
+                                return ids;
+                            }
+                        }
+                    }
+                    if (hits.scoreDocs.length < limit) {
+                        return ids;
+                    }
+                    hits = searcher.searchAfter(
+                            hits.scoreDocs[hits.scoreDocs.length - 1],
+                            query, limit);
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Applies a committed change of the title or author of a book to the
+     * index.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        if (!event.type().changesDetails()) {
+            // Borrows and returns don't change what is indexed
+            return;
+        }
+        if (event.type() == BookChangedEvent.Type.REMOVED) {
+            remove(event.bookId());
+        } else {
+            put(event.book());
+        }
+    }
+
+    /**
+     * Closes the index.
+     *
+     * @throws IOException if the index cannot be closed
+     */
+    @Override
+    public void destroy() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    /**
+     * Adds one required clause per token of the given text.
+     *
+     * @param query the query to add the clauses to
+     * @param field the field to match the tokens against
+     * @param text  the text to tokenize
+     * @param fuzzy whether tokens also match tokens with typos
+     * @return true if at least one clause was added
+     */
+    private boolean addClauses(final BooleanQuery.Builder query,
+                               final String field, final String text,
+                               final boolean fuzzy) {
+        List<String> tokens = tokenize(field, text);
+        for (String token : tokens) {
+            Term term = new Term(field, token);
+            BooleanQuery.Builder clause = new BooleanQuery.Builder()
+                    .add(new TermQuery(term), BooleanClause.Occur.SHOULD)
+                    .add(new PrefixQuery(term), BooleanClause.Occur.SHOULD);
+            int edits = fuzzy ? edits(token) : 0;
+            if (edits > 0) {
+                clause.add(new FuzzyQuery(term, edits, 0, MAX_EXPANSIONS,
+                        true), BooleanClause.Occur.SHOULD);
+            }
+            query.add(clause.build(), BooleanClause.Occur.MUST);
+        }
+        return !tokens.isEmpty();
+    }
+
+    /**
+     * Determines how many edits a token may be away from the tokens it
+     * matches despite a typo, fewer for shorter tokens.
+     *
+     * @param token the token
+     * @return the number of edits, at most the configured maximum
+     */
+    private int edits(final String token) {
+        int length = token.codePointCount(0, token.length());
+        if (length >= TWO_EDITS_LENGTH) {
+            return Math.min(2, maxEdits);
+        }
+        return length >= ONE_EDIT_LENGTH ? Math.min(1, maxEdits) : 0;
+    }
+
+    /**
+     * Splits a text into tokens the same way indexed fields are split.
+     *
+     * @param field the field the text is matched against
+     * @param text  the text to tokenize
+     * @return the tokens of the text
+     */
+    private List<String> tokenize(final String field, final String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(
+                    CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private static Term idTerm(final int id) {
+        return new Term(ID, String.valueOf(id));
+    }
+}
@@ -0,0 +1,316 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of the distinct titles and authors of the catalog, used
+ * to complete what a user is typing. Texts are lower-cased, stripped of
+ * accents and punctuation, and kept in a sorted set under every word they
+ * contain, so the completions of a prefix are the adjacent keys starting
+ * with it. A key is the offset of a word in the shared normalized text, so
+ * a text takes one small object per word rather than a copy of itself from
+ * every word on: a lookup is a single descent of a skip list followed by a walk
+ * over at most a few keys per suggestion, whatever the size of the
+ * catalog. The index is kept in sync through {@link BookChangedEvent}s,
+ * and versions older than the indexed one are ignored.
+ */
+@Component
+public class BookSuggestIndex {
+
+    /**
+     * Field of a book whose values are suggested.
+     */
+    public enum Field {
+
+        /**
+         * The title of a book.
+         */
+        TITLE,
+
+        /**
+         * The author of a book.
+         */
+        AUTHOR
+    }
+
+    /**
+     * Combining marks left by decomposing accented characters.
+     */
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Runs of characters that are neither letters nor digits.
+     */
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * Index of the titles.
+     */
+    private final PrefixIndex titles = new PrefixIndex();
+
+    /**
+     * Index of the authors.
+     */
+    private final PrefixIndex authors = new PrefixIndex();
+
+    /**
+     * Title and author indexed for every book, by book ID, so a changed or
+     * removed book can be taken out of the index. Guarded by this.
+     */
+    private final Map<Integer, Indexed> books = new HashMap<>();
+
+    /**
+     * IDs of the removed books. IDs aren't reused, so a removed book that is
+     * still being read from the database isn't indexed again. Guarded by
+     * this.
+     */
+    private final BitSet removed = new BitSet();
+
+    /**
+     * Adds a book to the index, replacing any previous version of it.
+     * Versions older than the indexed one, read from the database before a
+     * change was applied, are ignored.
+     *
+     * @param book the book to index
+     */
+    public synchronized void put(final Book book) {
+        int version = book.getVersion() != null ? book.getVersion() : 0;
+        Indexed previous = books.get(book.getId());
+        if (removed.get(book.getId())
+                || previous != null && previous.version() > version) {
+            return;
+        }
+        Indexed indexed = new Indexed(book.getTitle(), book.getAuthor(),
+                version);
+        books.put(book.getId(), indexed);
+        if (previous != null) {
+            titles.remove(previous.title());
+            authors.remove(previous.author());
+        }
+        titles.add(indexed.title());
+        authors.add(indexed.author());
+    }
+
+    /**
+     * Removes a book from the index.
+     *
+     * @param id the ID of the book to remove
+     */
+    public synchronized void remove(final int id) {
+        removed.set(id);
+        Indexed previous = books.remove(id);
+        if (previous != null) {
+            titles.remove(previous.title());
+            authors.remove(previous.author());
+        }
+    }
+
+    /**
+     * Suggests titles or authors completing a prefix. The prefix is matched,
+     * ignoring case, accents and punctuation, against the start of any word
+     * of a title or author, so {@code "lord"} suggests "The Lord of the
+     * Rings". Suggestions are ordered alphabetically by the matched words.
+     *
+     * @param field  the field whose values to suggest
+     * @param prefix the text typed so far
+     * @param limit  the maximum number of suggestions
+     * @return the distinct titles or authors, as first indexed
+     */
+    public List<String> suggest(final Field field, final String prefix,
+                                final int limit) {
+        PrefixIndex index = field == Field.TITLE ? titles : authors;
+        return index.suggest(normalize(prefix), limit);
+    }
+
+    /**
+     * Applies a committed change of the title or author of a book to the
+     * index.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        if (!event.type().changesDetails()) {
+            // Borrows and returns don't change what is indexed
+            return;
+        }
+        if (event.type() == BookChangedEvent.Type.REMOVED) {
+            remove(event.bookId());
+        } else {
+            put(event.book());
+        }
+    }
+
+    /**
+     * Lower-cases a text and strips its accents, and reduces everything
+     * between its words to a single space.
+     *
+     * @param text the text to normalize
+     * @return the words of the text separated by spaces
+     */
+    static String normalize(final String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String stripped = MARKS.matcher(decomposed).replaceAll("");
+        return NON_WORD.matcher(stripped.toLowerCase(Locale.ROOT))
+                .replaceAll(" ").trim();
+    }
+
+    /**
+     * Title, author and version a book was indexed with.
+     *
+     * @param title   the title of the book
+     * @param author  the author of the book
+     * @param version the version of the book
+     */
+    private record Indexed(String title, String author, int version) {
+    }
+
+    /**
+     * Sorted index of the distinct values of one field. Changes are made
+     * under the lock of the enclosing index; lookups take no lock.
+     */
+    private static final class PrefixIndex {
+
+        /**
+         * Values by normalized value, with the number of books having
+         * them.
+         */
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        /**
+         * For every value, the normalized value from each of its words
+         * onwards.
+         */
+        private final NavigableSet<Suffix> keys =
+                new ConcurrentSkipListSet<>();
+
+        void add(final String text) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                return;
+            }
+            Entry entry = entries.get(normalized);
+            if (entry != null) {
+                entry.books++;
+                return;
+            }
+            entries.put(normalized, new Entry(text));
+            for (int start = 0; start >= 0;
+                 start = nextWord(normalized, start)) {
+                keys.add(new Suffix(normalized, start));
+            }
+        }
+
+        void remove(final String text) {
+            String normalized = normalize(text);
+            Entry entry = entries.get(normalized);
+            if (entry == null || --entry.books > 0) {
+                return;
+            }
+            for (int start = 0; start >= 0;
+                 start = nextWord(normalized, start)) {
+                keys.remove(new Suffix(normalized, start));
+            }
+            entries.remove(normalized);
+        }
+
+        List<String> suggest(final String prefix, final int limit) {
+            List<String> suggestions = new ArrayList<>();
+            if (prefix.isEmpty()) {
+                return suggestions;
+            }
+            // A value matching with several of its words is suggested once
+            Set<String> seen = new HashSet<>();
+            for (Suffix key : keys.tailSet(new Suffix(prefix, 0))) {
+                if (suggestions.size() == limit || !key.startsWith(prefix)) {
+                    break;
+                }
+                Entry entry = entries.get(key.normalized());
+                if (entry != null && seen.add(key.normalized())) {
+                    suggestions.add(entry.text);
+                }
+            }
+            return suggestions;
+        }
+
+        private static int nextWord(final String normalized,
+                                    final int start) {
+            int space = normalized.indexOf(' ', start);
+            return space < 0 ? -1 : space + 1;
+        }
+    }
+
+    /**
+     * A normalized value from one of its words onwards. Suffixes are ordered
+     * by their text, and then by offset and value, so a suffix made of a
+     * prefix alone sorts before every longer suffix starting with it.
+     *
+     * @param normalized the whole normalized value
+     * @param start      the offset of the word the suffix starts with
+     */
+    private record Suffix(String normalized, int start)
+            implements Comparable<Suffix> {
+
+        boolean startsWith(final String prefix) {
+            return normalized.startsWith(prefix, start);
+        }
+
+        @Override
+        public int compareTo(final Suffix other) {
+            int i = start;
+            int j = other.start;
+            while (i < normalized.length() && j < other.normalized.length()) {
+                int compared = Character.compare(normalized.charAt(i++),
+                        other.normalized.charAt(j++));
+                if (compared != 0) {
+                    return compared;
+                }
+            }
+            int compared = Integer.compare(normalized.length() - i,
+                    other.normalized.length() - j);
+            if (compared != 0) {
+                return compared;
+            }
+            compared = Integer.compare(start, other.start);
+            return compared != 0 ? compared
+                    : normalized.compareTo(other.normalized);
+        }
+    }
+
+    /**
+     * A distinct value of a field.
+     */
+    private static final class Entry {
+
+        /**
+         * The value as it was first indexed.
+         */
+        private final String text;
+
+        /**
+         * Number of indexed books having the value.
+         */
+        private int books = 1;
+
+        Entry(final String text) {
+            this.text = text;
+        }
+    }
+}
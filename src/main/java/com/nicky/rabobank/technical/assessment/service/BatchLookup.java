@@ -0,0 +1,81 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Looks up several items by ID in a single round trip. Items are taken from
+ * the cache first, when caching is enabled; the rest is loaded at once and
+ * cached.
+ */
+final class BatchLookup {
+
+    private BatchLookup() {
+    }
+
+    /**
+     * Looks up the items with the given IDs. Duplicate IDs are only looked
+     * up, and returned, once; null IDs are ignored.
+     *
+     * @param ids          the IDs to look up
+     * @param cacheManager the cache manager, or null if caching is disabled
+     * @param cacheName    the name of the cache holding the items by ID
+     * @param type         the type of the items
+     * @param loader       loads the items with the given IDs, in any order
+     * @param idOf         function extracting the ID of an item
+     * @param <T>          the type of the items
+     * @return the items found, in request order, and the missing IDs
+     */
+    static <T> LookupResult<T> lookup(
+            final List<Integer> ids, final CacheManager cacheManager,
+            final String cacheName, final Class<T> type,
+            final Function<List<Integer>, Iterable<T>> loader,
+            final ToIntFunction<T> idOf) {
+        Set<Integer> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        Cache cache = cacheManager != null
+                ? cacheManager.getCache(cacheName) : null;
+
+        Map<Integer, T> itemsById = new HashMap<>();
+        List<Integer> uncached = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            T item = cache != null ? cache.get(id, type) : null;
+            if (item != null) {
+                itemsById.put(id, item);
+            } else {
+                uncached.add(id);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            for (T item : loader.apply(uncached)) {
+                int id = idOf.applyAsInt(item);
+                itemsById.put(id, item);
+                if (cache != null) {
+                    cache.put(id, item);
+                }
+            }
+        }
+
+        List<T> found = new ArrayList<>(itemsById.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : distinctIds) {
+            T item = itemsById.get(id);
+            if (item != null) {
+                found.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new LookupResult<>(found, missing);
+    }
+}
@@ -0,0 +1,54 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+
+/**
+ * Event published by {@link BookService} whenever a book is created, updated,
+ * removed, borrowed or returned. Listeners that keep derived data in sync
+ * (such as the search index) or push changes to clients (such as the
+ * {@link BookEventFeed}) receive it once the surrounding transaction has
+ * committed.
+ *
+ * @param type   the kind of change
+ * @param bookId the ID of the changed book
+ * @param book   the book after the change, or null if it was removed
+ */
+public record BookChangedEvent(Type type, Integer bookId, Book book) {
+
+    /**
+     * The kinds of changes a book can go through.
+     */
+    public enum Type {
+        /**
+         * The book was added to the catalog.
+         */
+        CREATED,
+        /**
+         * The title or author of the book changed.
+         */
+        UPDATED,
+        /**
+         * The book was removed from the catalog.
+         */
+        REMOVED,
+        /**
+         * The book was lent to a user, either borrowed or handed to the
+         * first user waiting for it when it was returned.
+         */
+        BORROWED,
+        /**
+         * The book was returned and is available again.
+         */
+        RETURNED;
+
+        /**
+         * Checks whether this kind of change affects the title or author of
+         * a book.
+         *
+         * @return true if the book was created, updated or removed
+         */
+        public boolean changesDetails() {
+            return this == CREATED || this == UPDATED || this == REMOVED;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Feed of committed {@link BookChangedEvent}s, pushed to subscribers that
+ * watch all books, a set of books or the books of an author. Subscribers
+ * are indexed by what they watch, so an event only visits the subscribers
+ * it matches, and an idle subscriber holds no thread.
+ *
+ * <p>Every subscriber has a bounded buffer. Events are queued in it and sent
+ * by a virtual thread that only runs while the buffer isn't empty, so a slow
+ * subscriber never holds up the transaction that published the event. When
+ * the buffer is full, the oldest event is dropped and the subscriber is told
+ * how many events it missed.
+ */
+@Component
+public class BookEventFeed implements DisposableBean {
+
+    /**
+     * Receives the events of one subscription, one call at a time.
+     */
+    public interface Sink {
+
+        /**
+         * Sends an event to the subscriber.
+         *
+         * @param event the event
+         * @throws IOException if the subscriber can't be reached, which
+         *                     cancels the subscription
+         */
+        void send(BookChangedEvent event) throws IOException;
+
+        /**
+         * Tells the subscriber that events were dropped because its buffer
+         * was full. Called before the first event sent after the drop.
+         *
+         * @param count the number of dropped events
+         * @throws IOException if the subscriber can't be reached, which
+         *                     cancels the subscription
+         */
+        void dropped(long count) throws IOException;
+    }
+
+    /**
+     * Maximum number of events buffered per subscriber.
+     */
+    private final int bufferSize;
+
+    /**
+     * Executor running the tasks that send buffered events.
+     */
+    private final Executor executor;
+
+    /**
+     * Subscribers watching all books.
+     */
+    private final Set<Subscription> all = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Subscribers watching given books, by book ID.
+     */
+    private final Map<Integer, Set<Subscription>> byBook =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Subscribers watching the books of an author, by lower-cased author.
+     */
+    private final Map<String, Set<Subscription>> byAuthor =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new BookEventFeed that sends events on virtual threads.
+     *
+     * @param bufferSize maximum number of events buffered per subscriber
+     */
+    @Autowired
+    public BookEventFeed(
+            @Value("${library.books.events.buffer-size:256}")
+            final int bufferSize) {
+        this(bufferSize, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * Constructs a new BookEventFeed.
+     *
+     * @param bufferSize maximum number of events buffered per subscriber
+     * @param executor   executor running the tasks that send events
+     */
+    BookEventFeed(final int bufferSize, final Executor executor) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException(
+                    "buffer size must be at least 1");
+        }
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes to the events of some books, of the books of an author, or
+     * of all books.
+     *
+     * @param bookIds the IDs of the books to watch, or empty
+     * @param author  the author whose books to watch, ignoring case, or null
+     *                if bookIds isn't empty or to watch all books
+     * @param sink    the receiver of the events
+     * @return the subscription, to cancel when the subscriber goes away
+     * @throws IllegalArgumentException if both books and an author are given
+     */
+    public Subscription subscribe(final Collection<Integer> bookIds,
+                                  final String author, final Sink sink) {
+        if (!bookIds.isEmpty() && author != null) {
+            throw new IllegalArgumentException(
+                    "Watch either books or an author, not both");
+        }
+        Subscription subscription = new Subscription(sink, bookIds, author);
+        if (!bookIds.isEmpty()) {
+            bookIds.forEach(id -> register(byBook, id, subscription));
+        } else if (author != null) {
+            register(byAuthor, authorKey(author), subscription);
+        } else {
+            all.add(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Queues a committed change of a book for the subscribers watching it.
+     * An event of a removed book carries no author, so it only reaches the
+     * subscribers watching the book or all books.
+     *
+     * @param event the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        all.forEach(subscription -> subscription.offer(event));
+        offer(byBook.get(event.bookId()), event);
+        if (event.book() != null && event.book().getAuthor() != null) {
+            offer(byAuthor.get(authorKey(event.book().getAuthor())), event);
+        }
+    }
+
+    /**
+     * Stops sending events.
+     */
+    @Override
+    public void destroy() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void offer(final Set<Subscription> subscriptions,
+                              final BookChangedEvent event) {
+        if (subscriptions != null) {
+            subscriptions.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    private static <K> void register(final Map<K, Set<Subscription>> map,
+                                     final K key,
+                                     final Subscription subscription) {
+        map.compute(key, (k, subscriptions) -> {
+            Set<Subscription> set = subscriptions != null
+                    ? subscriptions : ConcurrentHashMap.newKeySet();
+            set.add(subscription);
+            return set;
+        });
+    }
+
+    private static <K> void unregister(final Map<K, Set<Subscription>> map,
+                                       final K key,
+                                       final Subscription subscription) {
+        map.computeIfPresent(key, (k, subscriptions) -> {
+            subscriptions.remove(subscription);
+            return subscriptions.isEmpty() ? null : subscriptions;
+        });
+    }
+
+    private static String authorKey(final String author) {
+        return author.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Subscription of one subscriber, with its buffer of events that
+     * haven't been sent yet.
+     */
+    public final class Subscription {
+
+        /**
+         * Receiver of the events.
+         */
+        private final Sink sink;
+
+        /**
+         * IDs of the watched books, or empty.
+         */
+        private final Collection<Integer> bookIds;
+
+        /**
+         * Watched author, or null.
+         */
+        private final String author;
+
+        /**
+         * Events that haven't been sent yet, oldest first. Guarded by this.
+         */
+        private final Deque<BookChangedEvent> buffer = new ArrayDeque<>();
+
+        /**
+         * Number of events dropped since the last event was sent. Guarded
+         * by this.
+         */
+        private long dropped;
+
+        /**
+         * Whether a task is sending the buffered events. Guarded by this.
+         */
+        private boolean draining;
+
+        /**
+         * Whether the subscription was cancelled. Guarded by this.
+         */
+        private boolean cancelled;
+
+        private Subscription(final Sink sink,
+                             final Collection<Integer> bookIds,
+                             final String author) {
+            this.sink = sink;
+            this.bookIds = bookIds;
+            this.author = author;
+        }
+
+        /**
+         * Stops sending events to the subscriber and drops the buffered
+         * ones.
+         */
+        public void cancel() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                buffer.clear();
+            }
+            if (!bookIds.isEmpty()) {
+                bookIds.forEach(id -> unregister(byBook, id, this));
+            } else if (author != null) {
+                unregister(byAuthor, authorKey(author), this);
+            } else {
+                all.remove(this);
+            }
+        }
+
+        /**
+         * Buffers an event, dropping the oldest one if the buffer is full,
+         * and starts sending if no task is sending yet.
+         *
+         * @param event the event
+         */
+        private void offer(final BookChangedEvent event) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (buffer.size() == bufferSize) {
+                    buffer.removeFirst();
+                    dropped++;
+                }
+                buffer.addLast(event);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Sends the buffered events until the buffer is empty.
+         */
+        private void drain() {
+            while (true) {
+                BookChangedEvent event;
+                long missed;
+                synchronized (this) {
+                    event = buffer.pollFirst();
+                    if (event == null) {
+                        draining = false;
+                        return;
+                    }
+                    missed = dropped;
+                    dropped = 0;
+                }
+                try {
+                    if (missed > 0) {
+                        sink.dropped(missed);
+                    }
+                    sink.send(event);
+                } catch (IOException | RuntimeException e) {
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+}
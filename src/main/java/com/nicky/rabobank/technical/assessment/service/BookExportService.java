@@ -0,0 +1,221 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Service class that exports the whole catalog. The books table is read
+ * through a forward-only JDBC cursor and every row is written to the output
+ * as soon as it is read, without creating entities, so memory use doesn't
+ * depend on the size of the catalog.
+ */
+@Service
+public class BookExportService {
+
+    /**
+     * Formats the catalog can be exported in.
+     */
+    public enum Format {
+        /**
+         * Newline-delimited JSON, one book per line.
+         */
+        NDJSON,
+        /**
+         * Comma-separated values with a header line.
+         */
+        CSV
+    }
+
+    /**
+     * Columns of the books table that are exported, in order.
+     */
+    private static final String QUERY = "select id, title, author, "
+            + "is_available, borrower_id, version from books order by id";
+
+    /**
+     * Position of the ID in the exported columns.
+     */
+    private static final int ID = 1;
+
+    /**
+     * Position of the title in the exported columns.
+     */
+    private static final int TITLE = 2;
+
+    /**
+     * Position of the author in the exported columns.
+     */
+    private static final int AUTHOR = 3;
+
+    /**
+     * Position of the availability in the exported columns.
+     */
+    private static final int AVAILABLE = 4;
+
+    /**
+     * Position of the borrower ID in the exported columns.
+     */
+    private static final int BORROWER_ID = 5;
+
+    /**
+     * Position of the version in the exported columns.
+     */
+    private static final int VERSION = 6;
+
+    /**
+     * Header line of a CSV export.
+     */
+    private static final String CSV_HEADER =
+            "id,title,author,available,borrowerId,version\r\n";
+
+    /**
+     * Template reading the books table with the configured fetch size.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Factory of the generators writing NDJSON.
+     */
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Constructs a new BookExportService.
+     *
+     * @param dataSource the data source of the books table
+     * @param fetchSize  number of rows fetched from the database at a time
+     */
+    public BookExportService(
+            final DataSource dataSource,
+            @Value("${library.books.export.fetch-size:1000}")
+            final int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Writes all books, ordered by ID, to the given stream. The stream is
+     * flushed but not closed.
+     *
+     * @param format the format to write the books in
+     * @param out    the stream to write to
+     * @throws IOException if the books can't be written
+     */
+    @Transactional(readOnly = true)
+    public void export(final Format format, final OutputStream out)
+            throws IOException {
+        try {
+            if (format == Format.CSV) {
+                exportCsv(out);
+            } else {
+                exportNdjson(out);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void exportNdjson(final OutputStream out) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            // Books are separated by line breaks only
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            query(rs -> {
+                generator.writeStartObject();
+                generator.writeNumberField("id", rs.getInt(ID));
+                generator.writeStringField("title", rs.getString(TITLE));
+                generator.writeStringField("author", rs.getString(AUTHOR));
+                generator.writeBooleanField("available",
+                        rs.getBoolean(AVAILABLE));
+                int borrowerId = rs.getInt(BORROWER_ID);
+                if (rs.wasNull()) {
+                    generator.writeNullField("borrowerId");
+                } else {
+                    generator.writeNumberField("borrowerId", borrowerId);
+                }
+                generator.writeNumberField("version", rs.getInt(VERSION));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private void exportCsv(final OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        query(rs -> {
+            writer.write(Integer.toString(rs.getInt(ID)));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(TITLE));
+            writer.write(',');
+            writeCsvField(writer, rs.getString(AUTHOR));
+            writer.write(',');
+            writer.write(Boolean.toString(rs.getBoolean(AVAILABLE)));
+            writer.write(',');
+            int borrowerId = rs.getInt(BORROWER_ID);
+            if (!rs.wasNull()) {
+                writer.write(Integer.toString(borrowerId));
+            }
+            writer.write(',');
+            writer.write(Integer.toString(rs.getInt(VERSION)));
+            writer.write("\r\n");
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes a CSV field, quoted if it contains a separator, a quote or a
+     * line break (RFC 4180).
+     *
+     * @param writer the writer to write to
+     * @param value  the value of the field
+     * @throws IOException if the field can't be written
+     */
+    private static void writeCsvField(final Writer writer, final String value)
+            throws IOException {
+        boolean quoted = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void query(final RowWriter rowWriter) {
+        jdbcTemplate.query(QUERY, (RowCallbackHandler) rs -> {
+            try {
+                rowWriter.write(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Writes the current row of a result set.
+     */
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,24 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk import of books.
+ *
+ * @param imported the number of books created
+ * @param failed   the number of items that were rejected
+ * @param errors   why items were rejected, for at most the first
+ *                 {@link BookImportService#MAX_REPORTED_ERRORS} of them
+ */
+public record BookImportResult(int imported, int failed,
+                               List<ItemError> errors) {
+
+    /**
+     * Reason why an item of the import was rejected.
+     *
+     * @param index   the position of the item in the request, starting at 0
+     * @param message what is wrong with the item
+     */
+    public record ItemError(int index, String message) {
+    }
+}
@@ -0,0 +1,147 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class that imports books in bulk. Books are read one by one from
+ * the request, validated, and created in batches, every batch in its own
+ * transaction. Memory use therefore only depends on the batch size, not on
+ * the size of the import. An import isn't atomic: when it stops halfway,
+ * the batches before have been created.
+ */
+@Service
+public class BookImportService {
+
+    /**
+     * Maximum number of rejected items listed in a {@link BookImportResult}.
+     */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    /**
+     * Reason reported for a {@code null} item.
+     */
+    private static final String NULL_BOOK = "Book cannot be null";
+
+    /**
+     * Service creating the batches of books.
+     */
+    private final BookService bookService;
+
+    /**
+     * Validator checking every item before it's created.
+     */
+    private final Validator validator;
+
+    /**
+     * Number of books created per transaction.
+     */
+    private final int batchSize;
+
+    /**
+     * Constructs a new BookImportService.
+     *
+     * @param bookService service creating the batches of books
+     * @param validator   validator checking every item
+     * @param batchSize   number of books created per transaction
+     */
+    public BookImportService(
+            final BookService bookService, final Validator validator,
+            @Value("${library.books.import.batch-size:5000}")
+            final int batchSize) {
+        this.bookService = bookService;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the books read by the given iterator. Items that aren't valid
+     * books, including {@code null} items and items whose fields have the
+     * wrong JSON type, are skipped and reported; malformed JSON stops the
+     * import.
+     *
+     * @param items iterator reading the books from the request
+     * @return a summary of the import
+     * @throws IOException if the request can't be read
+     */
+    public BookImportResult importBooks(final MappingIterator<Book> items)
+            throws IOException {
+        List<Book> batch = new ArrayList<>(batchSize);
+        List<BookImportResult.ItemError> errors = new ArrayList<>();
+        int imported = 0;
+        int failed = 0;
+        int index = 0;
+
+        try {
+            for (; items.hasNextValue(); index++) {
+                boolean isNull = items.getParser().currentToken()
+                        == JsonToken.VALUE_NULL;
+                Book book;
+                try {
+                    book = items.nextValue();
+                } catch (MismatchedInputException e) {
+                    // The iterator skips the rest of the item, so the
+                    // next one can still be read
+                    failed++;
+                    report(errors, index, isNull ? NULL_BOOK
+                            : "Invalid book: " + e.getOriginalMessage());
+                    continue;
+                }
+                String error = validate(book);
+                if (error != null) {
+                    failed++;
+                    report(errors, index, error);
+                    continue;
+                }
+                batch.add(book);
+                if (batch.size() == batchSize) {
+                    imported += bookService.createAll(batch).size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            failed++;
+            report(errors, index, "Malformed JSON, import stopped: "
+                    + e.getOriginalMessage());
+        }
+
+        if (!batch.isEmpty()) {
+            imported += bookService.createAll(batch).size();
+        }
+        return new BookImportResult(imported, failed, List.copyOf(errors));
+    }
+
+    private String validate(final Book book) {
+        if (book == null) {
+            return NULL_BOOK;
+        }
+        Set<ConstraintViolation<Book>> violations = validator.validate(book);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static void report(final List<BookImportResult.ItemError> errors,
+                               final int index, final String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new BookImportResult.ItemError(index, message));
+        }
+    }
+}
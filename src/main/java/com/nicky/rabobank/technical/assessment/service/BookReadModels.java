@@ -0,0 +1,157 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.catalog.InMemoryBookCatalog;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.search.BookAvailabilityIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSearchIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.stats.BookStatistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * The in-memory structures book reads are served from instead of the
+ * database: the cache of books by ID, the in-memory catalog, the full-text
+ * and suggestion indexes, the availability bitmap and the statistics. Each
+ * of them is kept in sync through {@link BookChangedEvent}s, and is only
+ * handed out once it covers the whole catalog, so readers fall back to the
+ * database until then. They are all built together, from a single pass
+ * over the books table, by the {@link BookReadModelsInitializer}.
+ */
+@Component
+public class BookReadModels {
+
+    /**
+     * Full-text index used to search books by title and author.
+     */
+    private final BookSearchIndex searchIndex;
+
+    /**
+     * Index of the titles and authors suggested while typing.
+     */
+    private final BookSuggestIndex suggestIndex;
+
+    /**
+     * Bitmap of the available books.
+     */
+    private final BookAvailabilityIndex availabilityIndex;
+
+    /**
+     * Counters of the books per author and per borrower.
+     */
+    private final BookStatistics statistics;
+
+    /**
+     * In-memory copy of the catalog, available when enabled.
+     */
+    private final ObjectProvider<InMemoryBookCatalog> catalog;
+
+    /**
+     * Cache manager, available when caching is enabled.
+     */
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    /**
+     * Constructs a new BookReadModels.
+     *
+     * @param searchIndex       full-text index over titles and authors
+     * @param suggestIndex      index of the suggested titles and authors
+     * @param availabilityIndex bitmap of the available books
+     * @param statistics        counters of the books per author and per
+     *                          borrower
+     * @param catalog           the in-memory copy of the catalog, if enabled
+     * @param cacheManager      the cache manager, if caching is enabled
+     */
+    public BookReadModels(final BookSearchIndex searchIndex,
+                          final BookSuggestIndex suggestIndex,
+                          final BookAvailabilityIndex availabilityIndex,
+                          final BookStatistics statistics,
+                          final ObjectProvider<InMemoryBookCatalog> catalog,
+                          final ObjectProvider<CacheManager> cacheManager) {
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.statistics = statistics;
+        this.catalog = catalog;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Adds a book read by the initial build to every structure. Versions
+     * older than the one a structure already holds, read before a change
+     * was applied, are ignored.
+     *
+     * @param book the book to add
+     */
+    public void put(final Book book) {
+        searchIndex.put(book);
+        suggestIndex.put(book);
+        availabilityIndex.put(book);
+        statistics.put(book);
+        InMemoryBookCatalog books = catalog.getIfAvailable();
+        if (books != null) {
+            books.put(book);
+        }
+    }
+
+    /**
+     * Marks the initial build of every structure as completed.
+     */
+    public void markReady() {
+        searchIndex.markReady();
+        availabilityIndex.markReady();
+        statistics.markReady();
+        InMemoryBookCatalog books = catalog.getIfAvailable();
+        if (books != null) {
+            books.markReady();
+        }
+    }
+
+    /**
+     * Gets the full-text index if it has been built.
+     *
+     * @return the index, or null if books must be searched in the database
+     */
+    public BookSearchIndex searchIndex() {
+        return searchIndex.isReady() ? searchIndex : null;
+    }
+
+    /**
+     * Gets the availability bitmap if it has been built.
+     *
+     * @return the bitmap, or null if availability must be read from the
+     *         database
+     */
+    public BookAvailabilityIndex availabilityIndex() {
+        return availabilityIndex.isReady() ? availabilityIndex : null;
+    }
+
+    /**
+     * Gets the statistics if they have been counted.
+     *
+     * @return the counters, or null if the books table must be aggregated
+     */
+    public BookStatistics statistics() {
+        return statistics.isReady() ? statistics : null;
+    }
+
+    /**
+     * Gets the in-memory catalog if it is enabled and loaded.
+     *
+     * @return the catalog, or null if books must be read from the database
+     */
+    public InMemoryBookCatalog catalog() {
+        InMemoryBookCatalog books = catalog.getIfAvailable();
+        return books != null && books.isReady() ? books : null;
+    }
+
+    /**
+     * Gets the cache manager if caching is enabled.
+     *
+     * @return the cache manager, or null
+     */
+    public CacheManager cacheManager() {
+        return cacheManager.getIfAvailable();
+    }
+}
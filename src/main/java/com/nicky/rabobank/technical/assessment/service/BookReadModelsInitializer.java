@@ -0,0 +1,45 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the {@link BookReadModels} from the books table once the
+ * application has started, in a single pass over the catalog. Until then,
+ * books are read, searched and counted in the database.
+ */
+@Component
+public class BookReadModelsInitializer {
+
+    /**
+     * Service used to stream the catalog.
+     */
+    private final BookService bookService;
+
+    /**
+     * Structures to build.
+     */
+    private final BookReadModels readModels;
+
+    /**
+     * Constructs a new BookReadModelsInitializer.
+     *
+     * @param bookService the service used to stream the catalog
+     * @param readModels  the structures to build
+     */
+    public BookReadModelsInitializer(final BookService bookService,
+                                     final BookReadModels readModels) {
+        this.bookService = bookService;
+        this.readModels = readModels;
+    }
+
+    /**
+     * Adds every book to every structure and marks them as ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        bookService.streamAll(readModels::put);
+        readModels.markReady();
+    }
+}
@@ -1,13 +1,40 @@
 package com.nicky.rabobank.technical.assessment.service;
 
+import com.nicky.rabobank.technical.assessment.catalog.InMemoryBookCatalog;
 import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.model.Hold;
 import com.nicky.rabobank.technical.assessment.repository.BookRepository;
+import com.nicky.rabobank.technical.assessment.repository.HoldRepository;
 import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import com.nicky.rabobank.technical.assessment.search.BookAvailabilityIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSearchIndex;
+import com.nicky.rabobank.technical.assessment.stats.BookStatistics;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
 
 /**
  * Service class that handles business logic for book operations.
@@ -26,64 +53,327 @@ public class BookService {
      */
     private final UserRepository userRepository;
 
+    /**
+     * Repository for accessing hold data.
+     */
+    private final HoldRepository holdRepository;
+
+    /**
+     * Entity manager used to detach streamed books.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * In-memory structures books are read from when they are ready.
+     */
+    private final BookReadModels readModels;
+
+    /**
+     * Publisher of {@link BookChangedEvent}s.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Maximum number of books a user may have on loan at the same time.
+     */
+    private final int maxLoans;
+
     /**
      * Constructs a new BookService with the required repositories.
      *
-     * @param bookRepository repository for book operations
-     * @param userRepository repository for user operations
+     * @param bookRepository    repository for book operations
+     * @param userRepository    repository for user operations
+     * @param holdRepository    repository for hold operations
+     * @param entityManager     entity manager of the current persistence unit
+     * @param readModels        the in-memory structures books are read from
+     * @param eventPublisher    publisher of book change events
+     * @param maxLoans          the maximum number of books a user may have on
+     *                          loan, 0 for no maximum
      */
     public BookService(final BookRepository bookRepository,
-                       final UserRepository userRepository) {
+                       final UserRepository userRepository,
+                       final HoldRepository holdRepository,
+                       final EntityManager entityManager,
+                       final BookReadModels readModels,
+                       final ApplicationEventPublisher eventPublisher,
+                       @Value("${library.users.max-loans:0}")
+                       final int maxLoans) {
         this.bookRepository = bookRepository;
         this.userRepository = userRepository;
+        this.holdRepository = holdRepository;
+        this.entityManager = entityManager;
+        this.readModels = readModels;
+        this.eventPublisher = eventPublisher;
+        this.maxLoans = maxLoans > 0 ? maxLoans : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Retrieves one page of books, ordered by ID, using the ID of the last
+     * book of the previous page as cursor. The page is read from the
+     * in-memory catalog when it is enabled and loaded.
+     *
+     * @param after the ID after which the page starts (0 for the first page)
+     * @param size  the maximum number of books to return
+     * @return the books of the requested page
+     */
+    @Transactional(readOnly = true)
+    public List<BookView> getPage(final int after, final int size) {
+        InMemoryBookCatalog books = readModels.catalog();
+        if (books != null) {
+            return books.findPage(after, size);
+        }
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(after,
+                PageRequest.ofSize(size));
+    }
+
+    /**
+     * Retrieves one page of available books, ordered by ID, using the ID of
+     * the last book of the previous page as cursor. The IDs of the page are
+     * taken from the availability bitmap once it has been built, and the
+     * books are then read by ID; until then, they are read through the
+     * index on availability and ID. Books borrowed since the bitmap was
+     * last updated are left out, and replaced by the next available ones so
+     * the page stays full.
+     *
+     * @param after the ID after which the page starts (0 for the first page)
+     * @param size  the maximum number of books to return
+     * @return the available books of the requested page
+     */
+    @Transactional(readOnly = true)
+    public List<BookView> getAvailablePage(final int after, final int size) {
+        BookAvailabilityIndex availabilityIndex =
+                readModels.availabilityIndex();
+        if (availabilityIndex == null) {
+            return bookRepository
+                    .findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc(after,
+                            PageRequest.ofSize(size));
+        }
+        List<BookView> page = new ArrayList<>();
+        int cursor = after;
+        while (page.size() < size) {
+            List<Integer> ids = availabilityIndex.availableAfter(cursor,
+                    size - page.size());
+            if (ids.isEmpty()) {
+                break;
+            }
+            readById(ids).stream()
+                    .filter(BookView::isAvailable)
+                    .forEach(page::add);
+            cursor = ids.get(ids.size() - 1);
+        }
+        return page;
     }
 
     /**
-     * Retrieves all books from the database.
+     * Reads books by ID, from the in-memory catalog when it is enabled and
+     * loaded.
      *
-     * @return an iterable collection of all books
+     * @param ids the IDs of the books, in ascending order
+     * @return the books that exist, in ID order
      */
-    public Iterable<Book> getAll() {
-        return bookRepository.findAll();
+    private List<BookView> readById(final List<Integer> ids) {
+        InMemoryBookCatalog books = readModels.catalog();
+        if (books != null) {
+            return books.findAllById(ids).stream().map(BookView::of).toList();
+        }
+        return bookRepository.findByIdIn(ids).stream()
+                .sorted(Comparator.comparing(BookView::id))
+                .toList();
+    }
+
+    /**
+     * Counts the available books, from the availability bitmap once it has
+     * been built.
+     *
+     * @return the number of available books
+     */
+    @Transactional(readOnly = true)
+    public long countAvailable() {
+        BookAvailabilityIndex availabilityIndex =
+                readModels.availabilityIndex();
+        return availabilityIndex != null
+                ? availabilityIndex.count()
+                : bookRepository.countByIsAvailableTrue();
+    }
+
+    /**
+     * Counts the available books of an author, from the availability bitmap
+     * once it has been built.
+     *
+     * @param author the author, matched exactly
+     * @return the number of available books of the author
+     */
+    @Transactional(readOnly = true)
+    public long countAvailable(final String author) {
+        BookAvailabilityIndex availabilityIndex =
+                readModels.availabilityIndex();
+        return availabilityIndex != null
+                ? availabilityIndex.count(author)
+                : bookRepository.countByAuthorAndIsAvailableTrue(author);
+    }
+
+    /**
+     * Reads the statistics of the catalog from the counters maintained with
+     * every change, or until they have been built, from the database.
+     *
+     * @param maxAuthors   the maximum number of authors to return
+     * @param maxBorrowers the maximum number of borrowers to return
+     * @return the totals, the authors with the most books and the users with
+     *         the most books on loan
+     */
+    @Transactional(readOnly = true)
+    public BookStats getStats(final int maxAuthors, final int maxBorrowers) {
+        BookStatistics statistics = readModels.statistics();
+        return statistics != null
+                ? statistics.stats(maxAuthors, maxBorrowers)
+                : countStats(maxAuthors, maxBorrowers);
+    }
+
+    /**
+     * Computes the statistics of the catalog by aggregating the books table.
+     *
+     * @param maxAuthors   the maximum number of authors to return
+     * @param maxBorrowers the maximum number of borrowers to return
+     * @return the totals, the authors with the most books and the users with
+     *         the most books on loan
+     */
+    @Transactional(readOnly = true)
+    public BookStats countStats(final int maxAuthors,
+                                final int maxBorrowers) {
+        long books = bookRepository.count();
+        long available = bookRepository.countByIsAvailableTrue();
+        return new BookStats(books, available, books - available,
+                bookRepository.countBooksByAuthor(
+                        PageRequest.ofSize(maxAuthors)),
+                bookRepository.countBooksByBorrower(
+                        PageRequest.ofSize(maxBorrowers)));
     }
 
     /**
-     * Retrieves a book by its ID.
+     * Streams all books, ordered by ID, to the given consumer. Every book is
+     * detached once consumed, so memory use stays flat regardless of the
+     * size of the catalog.
+     *
+     * @param consumer the consumer receiving the books one by one
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(final Consumer<Book> consumer) {
+        try (Stream<Book> books = bookRepository.streamAllByOrderByIdAsc()) {
+            books.forEach(book -> {
+                consumer.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    /**
+     * Retrieves a book by its ID. Books are cached by ID until they change,
+     * and read from the in-memory catalog when it is enabled and loaded.
      *
      * @param id the ID of the book to retrieve
      * @return the book if found
      * @throws NoSuchElementException if the book does not exist
      */
+    @Cacheable(cacheNames = "books", key = "#id")
     public Book get(final int id) {
-        return bookRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException("Book not found "
-                        + "with id: " + id));
+        InMemoryBookCatalog books = readModels.catalog();
+        Optional<Book> book = books != null
+                ? books.findById(id) : bookRepository.findById(id);
+        return book.orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * Reads a book from the database, which includes the changes of the
+     * current transaction that the in-memory catalog doesn't have yet.
+     *
+     * @param id the ID of the book to read
+     * @return the book
+     * @throws NoSuchElementException if the book does not exist
+     */
+    private Book load(final int id) {
+        return bookRepository.findById(id).orElseThrow(() -> notFound(id));
+    }
+
+    private static NoSuchElementException notFound(final int id) {
+        return new NoSuchElementException("Book not found with id: " + id);
     }
 
     /**
-     * Retrieves all books borrowed by a specific user.
+     * Retrieves several books by their IDs. Cached books are taken from the
+     * cache; the others are read in a single query and cached.
+     *
+     * @param ids the IDs of the books to retrieve
+     * @return the books found, in the order of their IDs, and the IDs of the
+     *         books that don't exist
+     */
+    public LookupResult<Book> getAll(final List<Integer> ids) {
+        InMemoryBookCatalog books = readModels.catalog();
+        Function<List<Integer>, Iterable<Book>> loader = books != null
+                ? books::findAllById : bookRepository::findAllById;
+        return BatchLookup.lookup(ids, readModels.cacheManager(), "books",
+                Book.class, loader, Book::getId);
+    }
+
+    /**
+     * Retrieves all books borrowed by a specific user, through the index on
+     * the borrower, or through the in-memory catalog when it is enabled and
+     * loaded. Whether the user exists is only checked when they have no
+     * books.
      *
      * @param userId the ID of the user
      * @return a list of books borrowed by the user
      * @throws NoSuchElementException if the user doesn't exist
      */
-    public List<Book> getBooksByUserId(final int userId) {
-        if (!userRepository.existsById(userId)) {
+    @Transactional(readOnly = true)
+    public List<BookView> getBooksByUserId(final int userId) {
+        InMemoryBookCatalog inMemory = readModels.catalog();
+        List<BookView> books = inMemory != null
+                ? inMemory.findByBorrowerId(userId)
+                : bookRepository.findByBorrowerId(userId);
+        if (books.isEmpty() && !userRepository.existsById(userId)) {
             throw new NoSuchElementException("User not found with id: "
                     + userId);
         }
-        return bookRepository.findByBorrowerId(userId);
+        return books;
     }
 
     /**
-     * Searches for books by title and/or author.
+     * Searches for books by title and/or author, most relevant first.
+     * Searches go through the full-text index, which tolerates typos when
+     * nothing matches exactly; until it has been built, they fall back to a
+     * substring match in the database.
      *
      * @param title the title to search for (optional)
      * @param author the author to search for (optional)
+     * @param limit the maximum number of books to return
+     * @return a list of books matching the search criteria
+     * @throws IllegalArgumentException if neither title nor author is provided
+     */
+    @Transactional(readOnly = true)
+    public List<BookView> searchBooks(final String title, final String author,
+                                      final int limit) {
+        return searchBooks(title, author, limit, false);
+    }
+
+    /**
+     * Searches for books by title and/or author, most relevant first, like
+     * {@link #searchBooks(String, String, int)}. Only available books are
+     * returned if requested: search hits are then checked against the
+     * availability bitmap until enough of them are available. Hits that
+     * turn out to be removed or borrowed when read from the database are
+     * replaced by the next ones, so they don't take up the limit.
+     *
+     * @param title         the title to search for (optional)
+     * @param author        the author to search for (optional)
+     * @param limit         the maximum number of books to return
+     * @param availableOnly whether to only return available books
      * @return a list of books matching the search criteria
      * @throws IllegalArgumentException if neither title nor author is provided
      */
-    public List<Book> searchBooks(final String title, final String author) {
+    @Transactional(readOnly = true)
+    public List<BookView> searchBooks(final String title, final String author,
+                                      final int limit,
+                                      final boolean availableOnly) {
         // Sanitize inputs by converting null to empty string and trimming
         String sanitizedTitle = (title != null) ? title.trim() : "";
         String sanitizedAuthor = (author != null) ? author.trim() : "";
@@ -95,14 +385,66 @@ public class BookService {
                             + "provided");
         }
 
-        return bookRepository
+        BookSearchIndex searchIndex = readModels.searchIndex();
+        if (searchIndex == null) {
+            return searchDatabase(sanitizedTitle, sanitizedAuthor, limit,
+                    availableOnly);
+        }
+
+        BookAvailabilityIndex availabilityIndex =
+                readModels.availabilityIndex();
+        IntPredicate availability = availableOnly && availabilityIndex != null
+                ? availabilityIndex::isAvailable : id -> true;
+        Set<Integer> seen = new HashSet<>();
+        List<BookView> books = new ArrayList<>();
+        while (books.size() < limit) {
+            List<Integer> ids = searchIndex.search(sanitizedTitle,
+                    sanitizedAuthor, limit - books.size(),
+                    id -> !seen.contains(id) && availability.test(id));
+            if (ids.isEmpty()) {
+                break;
+            }
+            seen.addAll(ids);
+            Map<Integer, BookView> booksById = new HashMap<>();
+            bookRepository.findByIdIn(ids)
+                    .forEach(book -> booksById.put(book.id(), book));
+            // Keep the relevance order of the index
+            ids.stream()
+                    .map(booksById::get)
+                    .filter(Objects::nonNull)
+                    .filter(book -> !availableOnly || book.isAvailable())
+                    .forEach(books::add);
+        }
+        return books;
+    }
+
+    /**
+     * Searches for books by a substring of their title and author in the
+     * database, until the full-text index has been built.
+     *
+     * @param title         the title to search for, or an empty string
+     * @param author        the author to search for, or an empty string
+     * @param limit         the maximum number of books to return
+     * @param availableOnly whether to only return available books
+     * @return a list of books matching the search criteria
+     */
+    private List<BookView> searchDatabase(final String title,
+                                          final String author,
+                                          final int limit,
+                                          final boolean availableOnly) {
+        List<BookView> books = bookRepository
                 .findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase(
-                        sanitizedTitle, sanitizedAuthor
-                );
+                        title, author);
+        if (availableOnly) {
+            books = books.stream().filter(BookView::isAvailable).toList();
+        }
+        return books.size() > limit ? books.subList(0, limit) : books;
     }
 
     /**
-     * Creates a new book in the database.
+     * Creates a new book in the database. New books are always available:
+     * a loan is only recorded by {@link #borrowBook(int, int)}, which counts
+     * it for the borrower.
      *
      * @param book the book to create
      * @return the created book with its generated ID
@@ -115,90 +457,207 @@ public class BookService {
             throw new IllegalStateException("Book with ID " + book.getId()
                     + " already exists");
         }
-        return bookRepository.save(book);
+        asNew(book);
+        Book created = bookRepository.save(book);
+        eventPublisher.publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.CREATED, created.getId(), created));
+        return created;
     }
 
     /**
-     * Removes a book from the database.
+     * Creates new books in one transaction. The IDs of the books are always
+     * generated, the books are available, and the inserts are sent to the
+     * database in JDBC batches of {@code hibernate.jdbc.batch_size}.
      *
-     * @param id the ID of the book to remove
+     * @param books the books to create
+     * @return the created books with their generated IDs
      */
     @Transactional
-    public void remove(final int id) {
-        bookRepository.deleteById(id);
+    public List<Book> createAll(final List<Book> books) {
+        books.forEach(BookService::asNew);
+        // New books are persisted, so the saved instances are the given ones
+        bookRepository.saveAll(books);
+        books.forEach(book -> eventPublisher.publishEvent(
+                new BookChangedEvent(BookChangedEvent.Type.CREATED,
+                        book.getId(), book)));
+        return books;
     }
 
-
     /**
-     * Updates an existing book's information.
+     * Removes a book from the database with a single statement on the book.
+     * When the book is borrowed, the loan of its borrower is uncounted
+     * first, in the same transaction, so the borrower doesn't lose a loan.
      *
-     * @param book the book with updated information
-     * @return the updated book
-     * @throws NoSuchElementException if the book doesn't exist
+     * @param id the ID of the book to remove
+     * @return true if the book was removed, false if it doesn't exist
      */
     @Transactional
-    public Book update(final Book book) {
-        Book existingBook = bookRepository.findById(book.getId())
-                .orElseThrow(() -> new NoSuchElementException(
-                        "Book with ID " + book.getId() + " not found"));
-
-        // Only update title and author
-        existingBook.setTitle(book.getTitle());
-        existingBook.setAuthor(book.getAuthor());
+    @CacheEvict(cacheNames = "books", key = "#id")
+    public boolean remove(final int id) {
+        // Finds the borrower through the book, so it must run before the
+        // book is deleted; it updates nothing if the book isn't borrowed
+        userRepository.decrementLoanCountOfBorrower(id);
+        if (bookRepository.removeById(id) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.REMOVED, id, null));
+        return true;
+    }
 
-        return bookRepository.save(existingBook);
+    /**
+     * Updates the title and author of an existing book with a single
+     * statement, without loading it first. The book is only read back once
+     * it has been updated.
+     *
+     * @param book            the book with updated information
+     * @param expectedVersion the version the book must still have, or null
+     *                        to update any version
+     * @return the updated book, or an empty optional if the book doesn't
+     *         exist
+     * @throws OptimisticLockingFailureException if the book no longer has
+     *                                           the expected version
+     */
+    @Transactional
+    @CacheEvict(cacheNames = "books", key = "#book.id")
+    public Optional<Book> update(final Book book,
+                                 final Integer expectedVersion) {
+        int rows = expectedVersion == null
+                ? bookRepository.updateDetails(book.getId(), book.getTitle(),
+                        book.getAuthor())
+                : bookRepository.updateDetailsIfVersion(book.getId(),
+                        book.getTitle(), book.getAuthor(), expectedVersion);
+        if (rows == 0) {
+            if (expectedVersion != null
+                    && bookRepository.existsById(book.getId())) {
+                throw new OptimisticLockingFailureException("Book "
+                        + book.getId() + " no longer has version "
+                        + expectedVersion);
+            }
+            return Optional.empty();
+        }
+        Book updated = load(book.getId());
+        eventPublisher.publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.UPDATED, updated.getId(), updated));
+        return Optional.of(updated);
     }
 
     /**
-     * Marks a book as borrowed by a specific user.
+     * Marks a book as borrowed by a specific user. The loan is first counted
+     * for the user, which fails if they have reached the maximum number of
+     * loans, and then the book is marked as borrowed if it is available.
+     * Both are conditional statements; the reasons for a failure are only
+     * looked up when one doesn't update anything, and the transaction is
+     * rolled back.
      *
      * @param id the ID of the book to borrow
      * @param userId the ID of the user borrowing the book
      * @return the updated book with borrower information
      * @throws NoSuchElementException if the book or user doesn't exist
-     * @throws IllegalStateException if the book is already borrowed
+     * @throws IllegalStateException if the book is already borrowed, or if
+     *                               the user has reached the maximum number
+     *                               of loans
      */
     @Transactional
+    @CacheEvict(cacheNames = "books", key = "#id")
     public Book borrowBook(final int id, final int userId) {
-        // First check if the user exists
-        if (!userRepository.existsById(userId)) {
-            throw new NoSuchElementException("User not found with id: "
-                    + userId);
+        if (userRepository.incrementLoanCount(userId, maxLoans) == 0) {
+            if (!userRepository.existsById(userId)) {
+                throw new NoSuchElementException("User not found with id: "
+                        + userId);
+            }
+            throw new IllegalStateException("User already has the maximum "
+                    + "of " + maxLoans + " books on loan");
         }
 
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException(
-                        "Book not found with id: " + id));
-
-        if (!book.isAvailable()) {
+        if (bookRepository.markBorrowed(id, userId) == 0) {
+            if (!bookRepository.existsById(id)) {
+                throw new NoSuchElementException("Book not found with id: "
+                        + id);
+            }
             throw new IllegalStateException("Book is already borrowed");
         }
-
-        book.setAvailable(false);
-        book.setBorrowerId(userId);
-        return bookRepository.save(book);
+        Book borrowed = load(id);
+        eventPublisher.publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.BORROWED, id, borrowed));
+        return borrowed;
     }
 
     /**
-     * Marks a book as returned (available for borrowing).
+     * Marks a book as returned (available for borrowing) with a single
+     * conditional statement, after uncounting the loan of its borrower.
+     * When the book turns out not to be borrowed, the transaction is rolled
+     * back. When users are waiting for the book, it is then lent to the
+     * first of them in the same transaction, so it is never available to
+     * anyone else in between.
      *
      * @param id the ID of the book to return
-     * @return the updated book
+     * @return the updated book, borrowed by the next user if one was waiting
      * @throws NoSuchElementException if the book doesn't exist
      * @throws IllegalStateException if the book is not currently borrowed
      */
     @Transactional
+    @CacheEvict(cacheNames = "books", key = "#id")
     public Book returnBook(final int id) {
-        Book book = bookRepository.findById(id)
-                .orElseThrow(() -> new NoSuchElementException(
-                        "Book not found with id: " + id));
-
-        if (book.isAvailable()) {
+        userRepository.decrementLoanCountOfBorrower(id);
+        if (bookRepository.markReturned(id) == 0) {
+            if (!bookRepository.existsById(id)) {
+                throw new NoSuchElementException("Book not found with id: "
+                        + id);
+            }
             throw new IllegalStateException("Book is not currently borrowed");
         }
+        BookChangedEvent.Type type = handOff(id)
+                ? BookChangedEvent.Type.BORROWED
+                : BookChangedEvent.Type.RETURNED;
+        Book returned = load(id);
+        eventPublisher.publishEvent(new BookChangedEvent(type, id, returned));
+        return returned;
+    }
 
+    /**
+     * Prepares a book given by a client to be inserted as a new, available
+     * book. A borrower set by the client would skip the loan count and the
+     * maximum number of loans of the user.
+     *
+     * @param book the book to insert
+     */
+    private static void asNew(final Book book) {
+        // The ID is always generated, so the book is inserted as a new one
+        book.setId(null);
         book.setAvailable(true);
         book.setBorrowerId(null);
-        return bookRepository.save(book);
+    }
+
+    /**
+     * Lends a returned book to the user of the oldest waiting hold who can
+     * borrow another book. Users who have reached the maximum number of
+     * loans are skipped, but keep their place in the queue.
+     *
+     * @param id the ID of the returned book
+     * @return true if the book was lent to a waiting user
+     */
+    private boolean handOff(final int id) {
+        Optional<Hold> next = holdRepository
+                .findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(id,
+                        Hold.Status.WAITING, 0);
+        while (next.isPresent()) {
+            Hold hold = next.get();
+            // Claim the hold first, in case it is being cancelled
+            if (holdRepository.updateStatus(hold.getId(), Hold.Status.WAITING,
+                    Hold.Status.FULFILLED) == 1) {
+                if (userRepository.incrementLoanCount(hold.getUserId(),
+                        maxLoans) == 1) {
+                    bookRepository.markBorrowed(id, hold.getUserId());
+                    return true;
+                }
+                holdRepository.updateStatus(hold.getId(),
+                        Hold.Status.FULFILLED, Hold.Status.WAITING);
+            }
+            next = holdRepository
+                    .findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(id,
+                            Hold.Status.WAITING, hold.getId());
+        }
+        return false;
     }
 }
@@ -0,0 +1,174 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Which books an in-memory structure holds, and at which version, in a bit
+ * set and an array indexed by book ID, which are dense since IDs come from
+ * a sequence. Structures kept in sync through {@link BookChangedEvent}s are
+ * also filled by a read of the whole books table at startup, which can
+ * return a book as it was before a change that has already been applied:
+ * versions older than the recorded one are therefore refused. IDs aren't
+ * reused either, so a removed book is refused for good.
+ *
+ * <p>Not thread-safe: callers guard it with their own lock.
+ */
+public final class BookVersions {
+
+    /**
+     * Number of books arrays indexed by book ID initially have room for.
+     */
+    public static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Largest array size the JVM supports.
+     */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * IDs of the books held.
+     */
+    private final BitSet present = new BitSet();
+
+    /**
+     * IDs of the removed books.
+     */
+    private final BitSet removed = new BitSet();
+
+    /**
+     * Versions, by book ID.
+     */
+    private int[] versions = new int[INITIAL_CAPACITY];
+
+    /**
+     * Records a book, unless it was removed or a newer version of it is
+     * already recorded.
+     *
+     * @param id      the ID of the book, checked by {@link #checkId}
+     * @param version the version of the book
+     * @return true if the book was recorded and must be applied
+     */
+    public boolean put(final int id, final int version) {
+        if (removed.get(id) || present.get(id) && versions[id] > version) {
+            return false;
+        }
+        if (id >= versions.length) {
+            versions = Arrays.copyOf(versions, grow(versions.length, id));
+        }
+        present.set(id);
+        versions[id] = version;
+        return true;
+    }
+
+    /**
+     * Records that a book was removed, so it is never recorded again.
+     *
+     * @param id the ID of the book, checked by {@link #checkId}
+     * @return true if the book was held
+     */
+    public boolean remove(final int id) {
+        removed.set(id);
+        boolean wasPresent = present.get(id);
+        present.clear(id);
+        return wasPresent;
+    }
+
+    /**
+     * Checks whether a book is held.
+     *
+     * @param id the ID of the book
+     * @return true if the book is held
+     */
+    public boolean isPresent(final int id) {
+        return id > 0 && present.get(id);
+    }
+
+    /**
+     * Checks whether a book was removed.
+     *
+     * @param id the ID of the book
+     * @return true if the book was removed
+     */
+    public boolean isRemoved(final int id) {
+        return id > 0 && removed.get(id);
+    }
+
+    /**
+     * Gets the recorded version of a held book.
+     *
+     * @param id the ID of a held book
+     * @return its version
+     */
+    public int version(final int id) {
+        return versions[id];
+    }
+
+    /**
+     * Finds the next held book.
+     *
+     * @param from the ID from which to search
+     * @return the ID of the first held book from that ID on, or -1
+     */
+    public int nextPresent(final int from) {
+        return present.nextSetBit(from);
+    }
+
+    /**
+     * Counts the held books.
+     *
+     * @return the number of held books
+     */
+    public int count() {
+        return present.cardinality();
+    }
+
+    /**
+     * Lists the IDs of the held books.
+     *
+     * @return a copy of the IDs of the held books
+     */
+    public BitSet presentIds() {
+        return (BitSet) present.clone();
+    }
+
+    /**
+     * Gets the version of a book, 0 if it was never saved.
+     *
+     * @param book the book
+     * @return its version
+     */
+    public static int versionOf(final Book book) {
+        return book.getVersion() != null ? book.getVersion() : 0;
+    }
+
+    /**
+     * Checks that an ID can index the arrays of a structure.
+     *
+     * @param id the ID of a book or user
+     * @return the ID
+     * @throws IllegalArgumentException if the ID isn't positive, or too large
+     */
+    public static int checkId(final Integer id) {
+        if (id == null || id <= 0 || id >= MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid ID: " + id);
+        }
+        return id;
+    }
+
+    /**
+     * Computes the new length of an array that must hold an index, at least
+     * doubling it so growing stays amortized constant time.
+     *
+     * @param length the current length
+     * @param index  the index to hold
+     * @return the new length
+     */
+    public static int grow(final int length, final int index) {
+        long doubled = (long) length * 2;
+        return (int) Math.min(Math.max(doubled, (long) index + 1),
+                MAX_CAPACITY);
+    }
+}
@@ -0,0 +1,171 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.Hold;
+import com.nicky.rabobank.technical.assessment.model.HoldView;
+import com.nicky.rabobank.technical.assessment.repository.BookRepository;
+import com.nicky.rabobank.technical.assessment.repository.HoldRepository;
+import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Service class that handles business logic for holds. Users place a hold
+ * on a borrowed book instead of trying to borrow it until it is returned;
+ * returned books are handed to the oldest waiting hold by
+ * {@link BookService#returnBook(int)}.
+ */
+@Service
+public class HoldService {
+
+    /**
+     * Repository for accessing hold data.
+     */
+    private final HoldRepository holdRepository;
+
+    /**
+     * Repository for accessing book data.
+     */
+    private final BookRepository bookRepository;
+
+    /**
+     * Repository for accessing user data.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * Constructs a new HoldService with the required repositories.
+     *
+     * @param holdRepository repository for hold operations
+     * @param bookRepository repository for book operations
+     * @param userRepository repository for user operations
+     */
+    public HoldService(final HoldRepository holdRepository,
+                       final BookRepository bookRepository,
+                       final UserRepository userRepository) {
+        this.holdRepository = holdRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Places a hold on a borrowed book for a user, at the end of the queue
+     * of the book. The hold is placed with a single conditional statement,
+     * and the book is only locked afterwards, until the hold is committed:
+     * a return in between would hand the book off without seeing the hold,
+     * and leave it waiting for an available book.
+     *
+     * @param bookId the ID of the book to wait for
+     * @param userId the ID of the user waiting for the book
+     * @return the placed hold and its position in the queue
+     * @throws NoSuchElementException if the book or user doesn't exist
+     * @throws IllegalStateException if the book is available, is borrowed by
+     *                               the user, or if the user is already
+     *                               waiting for it
+     */
+    @Transactional
+    public HoldView reserve(final int bookId, final int userId) {
+        if (holdRepository.insertIfBorrowedByOther(bookId, userId,
+                Hold.Status.WAITING) == 0) {
+            throw rejection(bookId, userId);
+        }
+        if (bookRepository.lockIfBorrowed(bookId) == 0) {
+            throw new IllegalStateException(
+                    "Book is available, borrow it instead");
+        }
+        // Holds placed before the lock are committed by now, so a hold the
+        // user placed at the same time shows up here
+        List<Hold> holds = holdRepository.findByBookIdAndUserIdAndStatus(
+                bookId, userId, Hold.Status.WAITING);
+        if (holds.size() > 1) {
+            throw new IllegalStateException(
+                    "User is already waiting for this book");
+        }
+        return view(holds.get(0));
+    }
+
+    /**
+     * Retrieves a hold and, if it is waiting, its position in the queue.
+     *
+     * @param id the ID of the hold
+     * @return the hold and its position in the queue
+     * @throws NoSuchElementException if the hold doesn't exist
+     */
+    @Transactional(readOnly = true)
+    public HoldView get(final int id) {
+        return holdRepository.findById(id)
+                .map(this::view)
+                .orElseThrow(() -> new NoSuchElementException(
+                        "Hold not found with id: " + id));
+    }
+
+    /**
+     * Cancels a waiting hold with a single conditional statement.
+     *
+     * @param id the ID of the hold
+     * @throws NoSuchElementException if the hold doesn't exist
+     * @throws IllegalStateException if the hold is no longer waiting
+     */
+    @Transactional
+    public void cancel(final int id) {
+        if (holdRepository.updateStatus(id, Hold.Status.WAITING,
+                Hold.Status.CANCELLED) == 0) {
+            if (!holdRepository.existsById(id)) {
+                throw new NoSuchElementException("Hold not found with id: "
+                        + id);
+            }
+            throw new IllegalStateException("Hold is no longer waiting");
+        }
+    }
+
+    /**
+     * Finds out why a hold couldn't be placed.
+     *
+     * @param bookId the ID of the book
+     * @param userId the ID of the user
+     * @return the exception to throw
+     */
+    private RuntimeException rejection(final int bookId, final int userId) {
+        Book book = bookRepository.findById(bookId).orElse(null);
+        if (book == null) {
+            return new NoSuchElementException("Book not found with id: "
+                    + bookId);
+        }
+        if (!userRepository.existsById(userId)) {
+            return new NoSuchElementException("User not found with id: "
+                    + userId);
+        }
+        if (book.isAvailable()) {
+            return new IllegalStateException(
+                    "Book is available, borrow it instead");
+        }
+        if (Objects.equals(book.getBorrowerId(), userId)) {
+            return new IllegalStateException(
+                    "User already borrowed this book");
+        }
+        return new IllegalStateException(
+                "User is already waiting for this book");
+    }
+
+    /**
+     * Creates the view of a hold, counting the waiting holds placed before
+     * it if it is waiting.
+     *
+     * @param hold the hold
+     * @return the view of the hold
+     */
+    private HoldView view(final Hold hold) {
+        Integer position = null;
+        if (hold.getStatus() == Hold.Status.WAITING) {
+            position = Math.toIntExact(
+                    holdRepository.countByBookIdAndStatusAndIdLessThan(
+                            hold.getBookId(), Hold.Status.WAITING,
+                            hold.getId()) + 1);
+        }
+        return HoldView.of(hold, position);
+    }
+}
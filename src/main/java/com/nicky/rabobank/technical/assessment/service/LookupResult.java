@@ -0,0 +1,14 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import java.util.List;
+
+/**
+ * Result of looking up several items by ID at once.
+ *
+ * @param found   the items that exist, in the order their IDs were requested
+ * @param missing the requested IDs for which no item exists, in request
+ *                order
+ * @param <T>     the type of the items
+ */
+public record LookupResult<T>(List<T> found, List<Integer> missing) {
+}
@@ -0,0 +1,10 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+/**
+ * Number of books a user has on loan.
+ *
+ * @param userId the ID of the user
+ * @param loans  the number of books the user has on loan
+ */
+public record UserLoans(int userId, int loans) {
+}
@@ -2,10 +2,18 @@ package com.nicky.rabobank.technical.assessment.service;
 
 import com.nicky.rabobank.technical.assessment.model.User;
 import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Service class that handles business logic for user operations.
@@ -19,37 +27,105 @@ public class UserService {
      */
     private final UserRepository userRepository;
 
+    /**
+     * Entity manager used to detach streamed users.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * Cache manager, available when caching is enabled.
+     */
+    private final ObjectProvider<CacheManager> cacheManager;
+
     /**
      * Constructs a new UserService with the required repository.
      *
      * @param userRepository repository for user operations
+     * @param entityManager  entity manager of the current persistence unit
+     * @param cacheManager   the cache manager, if caching is enabled
      */
-    public UserService(final UserRepository userRepository) {
+    public UserService(final UserRepository userRepository,
+                       final EntityManager entityManager,
+                       final ObjectProvider<CacheManager> cacheManager) {
         this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.cacheManager = cacheManager;
     }
 
     /**
-     * Retrieves all users from the database.
+     * Retrieves one page of users, ordered by ID, using the ID of the last
+     * user of the previous page as cursor.
      *
-     * @return an iterable collection of all users
+     * @param after the ID after which the page starts (0 for the first page)
+     * @param size  the maximum number of users to return
+     * @return the users of the requested page
      */
-    public Iterable<User> getAll() {
-        return userRepository.findAll();
+    public List<User> getPage(final int after, final int size) {
+        return userRepository.findByIdGreaterThanOrderByIdAsc(after,
+                PageRequest.ofSize(size));
+    }
+
+    /**
+     * Streams all users, ordered by ID, to the given consumer. Every user is
+     * detached once consumed, so memory use stays flat regardless of the
+     * number of users.
+     *
+     * @param consumer the consumer receiving the users one by one
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(final Consumer<User> consumer) {
+        try (Stream<User> users = userRepository.streamAllByOrderByIdAsc()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
     }
 
     /**
-     * Retrieves a user by their ID.
+     * Retrieves a user by their ID. Users are cached by ID, as they never
+     * change once created.
      *
      * @param id the ID of the user to retrieve
      * @return the user if found
      * @throws NoSuchElementException if the user does not exist
      */
+    @Cacheable(cacheNames = "users", key = "#id")
     public User get(final int id) {
         return userRepository.findById(id).orElseThrow(
                 () -> new NoSuchElementException("User not found with id: "
                         + id));
     }
 
+    /**
+     * Retrieves several users by their IDs. Cached users are taken from the
+     * cache; the others are read in a single query and cached.
+     *
+     * @param ids the IDs of the users to retrieve
+     * @return the users found, in the order of their IDs, and the IDs of the
+     *         users that don't exist
+     */
+    public LookupResult<User> getAll(final List<Integer> ids) {
+        return BatchLookup.lookup(ids, cacheManager.getIfAvailable(), "users",
+                User.class, userRepository::findAllById, User::getId);
+    }
+
+    /**
+     * Retrieves the number of books a user has on loan. The number is kept
+     * up to date when books are borrowed and returned, so this is a single
+     * lookup by ID.
+     *
+     * @param id the ID of the user
+     * @return the number of books the user has on loan
+     * @throws NoSuchElementException if the user does not exist
+     */
+    public UserLoans getLoans(final int id) {
+        return userRepository.findLoanCountById(id)
+                .map(loans -> new UserLoans(id, loans))
+                .orElseThrow(() -> new NoSuchElementException(
+                        "User not found with id: " + id));
+    }
+
     /**
      * Creates a new user in the database.
      *
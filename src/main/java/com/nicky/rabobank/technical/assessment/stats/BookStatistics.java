@@ -0,0 +1,321 @@
+package com.nicky.rabobank.technical.assessment.stats;
+
+import com.nicky.rabobank.technical.assessment.model.AuthorStats;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BorrowerStats;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookVersions;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Counters of the books per author and of the books on loan per user,
+ * updated with every committed {@link BookChangedEvent}, so the statistics
+ * of the catalog are read without aggregating the books table. Authors and
+ * borrowers are kept ranked by their number of books, so the top ones are
+ * read first, and every change costs a few map and tree operations.
+ *
+ * <p>To know what a change replaces, the author and borrower of every book
+ * are kept in arrays indexed by book ID, which are dense since IDs come
+ * from a sequence, next to the {@link BookVersions} of the books.
+ */
+@Component
+public class BookStatistics {
+
+    /**
+     * Value of the borrower column meaning none. IDs start at 1.
+     */
+    private static final int NONE = 0;
+
+    /**
+     * Orders authors by decreasing number of books, then by name.
+     */
+    private static final Comparator<AuthorCounter> AUTHOR_RANK =
+            Comparator.comparingInt((AuthorCounter counter) -> counter.books)
+                    .reversed()
+                    .thenComparing(counter -> counter.author);
+
+    /**
+     * Orders borrowers by decreasing number of books, then by ID.
+     */
+    private static final Comparator<BorrowerCounter> BORROWER_RANK =
+            Comparator.comparingInt((BorrowerCounter counter) -> counter.books)
+                    .reversed()
+                    .thenComparingInt(counter -> counter.userId);
+
+    /**
+     * Counted books, and their versions. Guarded by this.
+     */
+    private final BookVersions versions = new BookVersions();
+
+    /**
+     * IDs of the counted books that are borrowed. Guarded by this.
+     */
+    private final BitSet borrowed = new BitSet();
+
+    /**
+     * Counters of the authors, by author. Guarded by this.
+     */
+    private final Map<String, AuthorCounter> authors = new HashMap<>();
+
+    /**
+     * Counters of the authors, most books first. Guarded by this.
+     */
+    private final NavigableSet<AuthorCounter> authorRanking =
+            new TreeSet<>(AUTHOR_RANK);
+
+    /**
+     * Counters of the users with books on loan, by user ID. Guarded by this.
+     */
+    private final Map<Integer, BorrowerCounter> borrowers = new HashMap<>();
+
+    /**
+     * Counters of the users with books on loan, most books first. Guarded by
+     * this.
+     */
+    private final NavigableSet<BorrowerCounter> borrowerRanking =
+            new TreeSet<>(BORROWER_RANK);
+
+    /**
+     * Author counters, by book ID. Guarded by this.
+     */
+    private AuthorCounter[] authorOf =
+            new AuthorCounter[BookVersions.INITIAL_CAPACITY];
+
+    /**
+     * Borrower IDs, by book ID, {@link #NONE} if not borrowed or the
+     * borrower is unknown. Guarded by this.
+     */
+    private int[] borrowerOf = new int[BookVersions.INITIAL_CAPACITY];
+
+    /**
+     * Number of borrowed books. Guarded by this.
+     */
+    private long borrowedBooks;
+
+    /**
+     * Whether the counters cover the whole catalog.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Checks whether the counters cover the whole catalog and can be read.
+     *
+     * @return true once the initial count has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Marks the initial count of the catalog as completed.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Counts a book, replacing any previous version of it. Versions older
+     * than the counted one, read from the database before a change was
+     * applied, are ignored.
+     *
+     * @param book the book to count
+     * @throws IllegalArgumentException if the book has no positive ID
+     */
+    public synchronized void put(final Book book) {
+        int id = BookVersions.checkId(book.getId());
+        int borrowerId = !book.isAvailable() && book.getBorrowerId() != null
+                ? BookVersions.checkId(book.getBorrowerId()) : NONE;
+        boolean wasCounted = versions.isPresent(id);
+        if (!versions.put(id, BookVersions.versionOf(book))) {
+            return;
+        }
+        ensureCapacity(id);
+        if (wasCounted) {
+            uncount(id);
+        }
+        AuthorCounter author = authors.computeIfAbsent(book.getAuthor(),
+                AuthorCounter::new);
+        authorRanking.remove(author);
+        author.books++;
+        if (!book.isAvailable()) {
+            author.borrowed++;
+            borrowed.set(id);
+            borrowedBooks++;
+            if (borrowerId != NONE) {
+                BorrowerCounter borrower = borrowers.computeIfAbsent(
+                        borrowerId, BorrowerCounter::new);
+                borrowerRanking.remove(borrower);
+                borrower.books++;
+                borrowerRanking.add(borrower);
+                borrowerOf[id] = borrowerId;
+            }
+        }
+        authorRanking.add(author);
+        authorOf[id] = author;
+    }
+
+    /**
+     * Stops counting a book.
+     *
+     * @param id the ID of the removed book
+     */
+    public synchronized void remove(final int id) {
+        BookVersions.checkId(id);
+        if (versions.remove(id)) {
+            uncount(id);
+        }
+    }
+
+    /**
+     * Lists the IDs of the counted books.
+     *
+     * @return a copy of the IDs of the counted books
+     */
+    public synchronized BitSet countedIds() {
+        return versions.presentIds();
+    }
+
+    /**
+     * Reads the statistics of the catalog.
+     *
+     * @param maxAuthors   the maximum number of authors to return
+     * @param maxBorrowers the maximum number of borrowers to return
+     * @return the totals, the authors with the most books and the users with
+     *         the most books on loan
+     */
+    public synchronized BookStats stats(final int maxAuthors,
+                                        final int maxBorrowers) {
+        List<AuthorStats> topAuthors = new ArrayList<>();
+        Iterator<AuthorCounter> authorCounters = authorRanking.iterator();
+        while (authorCounters.hasNext() && topAuthors.size() < maxAuthors) {
+            AuthorCounter counter = authorCounters.next();
+            topAuthors.add(new AuthorStats(counter.author, counter.books,
+                    counter.books - counter.borrowed, counter.borrowed));
+        }
+        List<BorrowerStats> topBorrowers = new ArrayList<>();
+        Iterator<BorrowerCounter> borrowerCounters =
+                borrowerRanking.iterator();
+        while (borrowerCounters.hasNext()
+                && topBorrowers.size() < maxBorrowers) {
+            BorrowerCounter counter = borrowerCounters.next();
+            topBorrowers.add(new BorrowerStats(counter.userId,
+                    counter.books));
+        }
+        long books = versions.count();
+        return new BookStats(books, books - borrowedBooks, borrowedBooks,
+                topAuthors, topBorrowers);
+    }
+
+    /**
+     * Applies a committed change of a book to the counters.
+     *
+     * @param event the change to apply
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(final BookChangedEvent event) {
+        if (event.type() == BookChangedEvent.Type.REMOVED) {
+            remove(event.bookId());
+        } else {
+            put(event.book());
+        }
+    }
+
+    /**
+     * Takes a counted book out of the counters of its author and borrower.
+     *
+     * @param id the ID of the book
+     */
+    private void uncount(final int id) {
+        AuthorCounter author = authorOf[id];
+        authorRanking.remove(author);
+        author.books--;
+        if (borrowed.get(id)) {
+            author.borrowed--;
+            borrowed.clear(id);
+            borrowedBooks--;
+        }
+        if (author.books > 0) {
+            authorRanking.add(author);
+        } else {
+            authors.remove(author.author);
+        }
+        if (borrowerOf[id] != NONE) {
+            BorrowerCounter borrower = borrowers.get(borrowerOf[id]);
+            borrowerRanking.remove(borrower);
+            if (--borrower.books > 0) {
+                borrowerRanking.add(borrower);
+            } else {
+                borrowers.remove(borrower.userId);
+            }
+            borrowerOf[id] = NONE;
+        }
+        authorOf[id] = null;
+    }
+
+    private void ensureCapacity(final int id) {
+        if (id < authorOf.length) {
+            return;
+        }
+        int capacity = BookVersions.grow(authorOf.length, id);
+        authorOf = Arrays.copyOf(authorOf, capacity);
+        borrowerOf = Arrays.copyOf(borrowerOf, capacity);
+    }
+
+    /**
+     * Number of books of an author.
+     */
+    private static final class AuthorCounter {
+
+        /**
+         * The author.
+         */
+        private final String author;
+
+        /**
+         * Number of books of the author.
+         */
+        private int books;
+
+        /**
+         * Number of borrowed books of the author.
+         */
+        private int borrowed;
+
+        AuthorCounter(final String author) {
+            this.author = author;
+        }
+    }
+
+    /**
+     * Number of books a user has on loan.
+     */
+    private static final class BorrowerCounter {
+
+        /**
+         * The ID of the user.
+         */
+        private final int userId;
+
+        /**
+         * Number of books the user has on loan.
+         */
+        private int books;
+
+        BorrowerCounter(final int userId) {
+            this.userId = userId;
+        }
+    }
+}
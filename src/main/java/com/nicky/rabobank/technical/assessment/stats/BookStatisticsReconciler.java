@@ -0,0 +1,129 @@
+package com.nicky.rabobank.technical.assessment.stats;
+
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.service.BookService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Periodically checks the {@link BookStatistics} against the database, once
+ * they have been built with the other read models. Changes that don't go
+ * through {@link BookService}, such as borrowers cleared by the database
+ * when a user is deleted, make the counters drift; when they no longer
+ * match, the whole catalog is counted again. Drifts are counted by the
+ * {@code library.books.stats.drifts} metric.
+ */
+@Component
+public class BookStatisticsReconciler {
+
+    /**
+     * Time between two checks, as an ISO-8601 duration.
+     */
+    private static final String INTERVAL =
+            "${library.books.stats.reconcile-interval:PT1H}";
+
+    /**
+     * Logger of the drifts.
+     */
+    private static final Logger LOG =
+            LoggerFactory.getLogger(BookStatisticsReconciler.class);
+
+    /**
+     * Service used to stream and aggregate the catalog.
+     */
+    private final BookService bookService;
+
+    /**
+     * Counters to build and check.
+     */
+    private final BookStatistics statistics;
+
+    /**
+     * Number of times the counters didn't match the database.
+     */
+    private final Counter drifts;
+
+    /**
+     * Constructs a new BookStatisticsReconciler.
+     *
+     * @param bookService   the service used to stream and aggregate the
+     *                      catalog
+     * @param statistics    the counters to build and check
+     * @param meterRegistry the registry of the drift metric
+     */
+    public BookStatisticsReconciler(final BookService bookService,
+                                    final BookStatistics statistics,
+                                    final MeterRegistry meterRegistry) {
+        this.bookService = bookService;
+        this.statistics = statistics;
+        this.drifts = Counter.builder("library.books.stats.drifts")
+                .description("Times the book statistics didn't match the "
+                        + "database and were counted again")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks the counters against the database, and counts the catalog
+     * again if they don't match. Changes committed between reading the
+     * counters and aggregating the table can cause a needless count, which
+     * is harmless since counting a book again doesn't change the counters.
+     */
+    @Scheduled(initialDelayString = INTERVAL, fixedDelayString = INTERVAL)
+    public void reconcile() {
+        if (!statistics.isReady()) {
+            return;
+        }
+        BookStats counted = statistics.stats(Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+        BookStats actual = bookService.countStats(Integer.MAX_VALUE,
+                Integer.MAX_VALUE);
+        if (matches(counted, actual)) {
+            return;
+        }
+        drifts.increment();
+        LOG.warn("Book statistics drifted from the database ({} books, {} "
+                        + "borrowed counted instead of {} and {}), counting "
+                        + "again", counted.books(), counted.borrowed(),
+                actual.books(), actual.borrowed());
+        count();
+    }
+
+    /**
+     * Counts every book, and stops counting the books that are no longer in
+     * the database.
+     */
+    private void count() {
+        BitSet unseen = statistics.countedIds();
+        bookService.streamAll(book -> {
+            statistics.put(book);
+            unseen.clear(book.getId());
+        });
+        if (unseen.isEmpty()) {
+            return;
+        }
+        // Books created while streaming weren't seen either, so only the
+        // books that are really gone are removed
+        List<Integer> ids = unseen.stream().boxed().toList();
+        bookService.getAll(ids).missing().forEach(statistics::remove);
+    }
+
+    private static boolean matches(final BookStats counted,
+                                   final BookStats actual) {
+        // Authors and borrowers with the same number of books may be listed
+        // in another order by the database
+        return counted.books() == actual.books()
+                && counted.borrowed() == actual.borrowed()
+                && new HashSet<>(counted.authors()).equals(
+                        new HashSet<>(actual.authors()))
+                && new HashSet<>(counted.topBorrowers()).equals(
+                        new HashSet<>(actual.topBorrowers()));
+    }
+}
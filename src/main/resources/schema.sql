@@ -4,10 +4,79 @@ create table if not exists users (
 );
 
 create table if not exists books (
-    id INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    id INT PRIMARY KEY NOT NULL,
     title varchar(255) NOT NULL,
     author varchar(255) NOT NULL,
     is_available BOOLEAN NOT NULL,
     borrower_id INT DEFAULT NULL,
+    version INT NOT NULL DEFAULT 0,
     FOREIGN KEY (borrower_id) REFERENCES users(id) ON DELETE SET NULL
-);
\ No newline at end of file
+);
+
+-- Databases created before books were versioned
+alter table books add column if not exists version INT NOT NULL DEFAULT 0;
+
+-- Book IDs are allocated in blocks of 50, starting after any existing book.
+-- Databases created before then generated them with an identity column
+alter table books alter column id drop identity;
+create sequence if not exists books_seq
+    start with (select coalesce(max(id), 0) + 1 from books) increment by 50;
+
+-- Lower-cased copies of the title and author added by earlier versions.
+-- Searches match anywhere in a title or author, which no index can serve
+drop index if exists idx_books_title_folded;
+drop index if exists idx_books_author_folded;
+alter table books drop column if exists title_folded;
+alter table books drop column if exists author_folded;
+
+-- Books borrowed by a user
+create index if not exists idx_books_borrower_id on books (borrower_id);
+
+-- Available books, in ID order. H2 has no partial indexes, so the available
+-- books are the leading range of this index instead
+create index if not exists idx_books_available_id on books (is_available, id);
+
+-- Available books of an author, counted until the availability bitmap is
+-- built
+create index if not exists idx_books_author_available on books (author, is_available);
+
+-- Number of books each user has on loan, kept up to date when books are
+-- borrowed and returned. Recounted at startup, so databases created before
+-- loans were counted are up to date too
+alter table users add column if not exists loan_count INT NOT NULL DEFAULT 0;
+update users u set loan_count = (
+    select count(*) from books b where b.borrower_id = u.id);
+
+-- Users waiting for a borrowed book. A returned book is lent to the oldest
+-- waiting hold, so holds are looked up per book and status in ID order
+create table if not exists holds (
+    id INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    book_id INT NOT NULL,
+    user_id INT NOT NULL,
+    status varchar(16) NOT NULL,
+    FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+create index if not exists idx_holds_book_status_id on holds (book_id, status, id);
+create index if not exists idx_holds_user_id on holds (user_id);
+
+-- Idempotency keys of requests and their responses, when kept in the database
+-- (library.idempotency.store=database). A null status means the request is
+-- still in progress. Expired keys are deleted through the creation time
+create table if not exists idempotency_keys (
+    idempotency_key varchar(255) PRIMARY KEY NOT NULL,
+    fingerprint varchar(2048) NOT NULL,
+    status INT,
+    content_type varchar(255),
+    headers varchar(8192),
+    body BLOB,
+    error BOOLEAN,
+    error_message varchar(1024),
+    created_at TIMESTAMP NOT NULL
+);
+
+-- ETag, Location and Link headers replayed with the response, one per line
+alter table idempotency_keys add column if not exists headers varchar(8192);
+
+create index if not exists idx_idempotency_keys_created_at on idempotency_keys (created_at);
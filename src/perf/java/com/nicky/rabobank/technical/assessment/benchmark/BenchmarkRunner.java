@@ -0,0 +1,54 @@
+package com.nicky.rabobank.technical.assessment.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the JMH benchmarks once per thread count, with the GC profiler
+ * reporting the allocation rate. Results are written as JSON to
+ * {@code target/jmh-<threads>-threads.json}.
+ *
+ * <p>System properties:
+ * <ul>
+ *     <li>{@code jmh.threads}: comma-separated thread counts
+ *     (default {@code 1,4,16})</li>
+ *     <li>{@code jmh.books}: comma-separated catalog sizes
+ *     (default {@code 10000,1000000})</li>
+ *     <li>{@code jmh.include}: regular expression selecting the benchmarks
+ *     (default all of {@link BookServiceBenchmark})</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        String include = System.getProperty("jmh.include",
+                BookServiceBenchmark.class.getSimpleName());
+        String[] books = System.getProperty("jmh.books", "10000,1000000")
+                .split(",");
+
+        for (String threads : System.getProperty("jmh.threads", "1,4,16")
+                .split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .include(include)
+                    .param("books", books)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .forks(1)
+                    .warmupIterations(3)
+                    .warmupTime(TimeValue.seconds(5))
+                    .measurementIterations(5)
+                    .measurementTime(TimeValue.seconds(5))
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("target/jmh-" + threads.trim() + "-threads.json");
+            new Runner(options.build()).run();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.nicky.rabobank.technical.assessment.benchmark;
+
+import com.nicky.rabobank.technical.assessment.RabobankTechnicalAssessmentApplication;
+import com.nicky.rabobank.technical.assessment.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of {@link BookService} against an in-memory H2
+ * database seeded with a synthetic catalog. Every tenth book starts out
+ * borrowed, so per-user listings aren't empty; the borrow/return benchmark
+ * only picks the other books.
+ *
+ * <p>Run it through {@link BenchmarkRunner}, which repeats it for several
+ * thread counts with the GC profiler enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookServiceBenchmark {
+
+    /**
+     * Number of seeded users.
+     */
+    static final int USERS = 1000;
+
+    /**
+     * Number of books in the catalog.
+     */
+    @Param({"10000", "1000000"})
+    private int books;
+
+    private ConfigurableApplicationContext context;
+
+    private BookService bookService;
+
+    /**
+     * Random numbers of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = "jdbc:h2:mem:benchmark-" + books + ";DB_CLOSE_DELAY=-1";
+        // Seeded before the application starts, so everything it loads at
+        // startup covers the catalog
+        JdbcTemplate jdbcTemplate = CatalogSeeder.createSchema(url);
+        CatalogSeeder.seed(jdbcTemplate, USERS, books);
+        jdbcTemplate.update("update books set is_available = false, "
+                + "borrower_id = mod(id, ?) + 1 where mod(id, 10) = 0", USERS);
+        CatalogSeeder.recountLoans(jdbcTemplate);
+
+        context = new SpringApplicationBuilder(
+                RabobankTechnicalAssessmentApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "logging.level.root=WARN")
+                // An argument, since application.properties overrides the
+                // default properties above
+                .run("--spring.datasource.url=" + url);
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object searchBooks(final ThreadState state) {
+        return bookService.searchBooks(
+                CatalogSeeder.word(state.random.nextInt(
+                        CatalogSeeder.VOCABULARY_SIZE)), null, 20);
+    }
+
+    @Benchmark
+    public Object searchBooksByTitleAndAuthor(final ThreadState state) {
+        int n = state.random.nextInt(books);
+        return bookService.searchBooks(CatalogSeeder.word(n),
+                CatalogSeeder.author(n), 20);
+    }
+
+    @Benchmark
+    public void borrowAndReturnBook(final ThreadState state,
+                                    final Blackhole blackhole) {
+        int id = state.random.nextInt(books / 10) * 10
+                + 1 + state.random.nextInt(9);
+        try {
+            blackhole.consume(bookService.borrowBook(id,
+                    1 + state.random.nextInt(USERS)));
+            blackhole.consume(bookService.returnBook(id));
+        } catch (IllegalStateException e) {
+            // Another thread holds the same book
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public Object getBooksByUserId(final ThreadState state) {
+        return bookService.getBooksByUserId(1 + state.random.nextInt(USERS));
+    }
+
+    @Benchmark
+    public Object getPage(final ThreadState state) {
+        return bookService.getPage(state.random.nextInt(books), 100);
+    }
+
+    @Benchmark
+    public long streamAll() {
+        long[] count = new long[1];
+        bookService.streamAll(book -> count[0]++);
+        return count[0];
+    }
+}
@@ -0,0 +1,147 @@
+package com.nicky.rabobank.technical.assessment.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills an empty database with a synthetic catalog. Titles and authors are
+ * built from a fixed vocabulary of pronounceable words, so every word used
+ * in a search matches a predictable share of the books.
+ *
+ * <p>The catalog is meant to be seeded before the application starts, so
+ * everything the application loads at startup, such as the search index
+ * and the statistics, covers it.
+ */
+public final class CatalogSeeder {
+
+    /**
+     * Number of distinct words in the vocabulary.
+     */
+    public static final int VOCABULARY_SIZE = 1000;
+
+    /**
+     * Number of distinct authors.
+     */
+    public static final int AUTHORS = 5000;
+
+    /**
+     * Syllables the words are built from, one per decimal digit.
+     */
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ne", "ru", "sa", "ti", "vo", "ze", "pa"
+    };
+
+    /**
+     * Number of rows inserted per JDBC batch.
+     */
+    private static final int BATCH_SIZE = 10_000;
+
+    private CatalogSeeder() {
+    }
+
+    /**
+     * Returns a word of the vocabulary.
+     *
+     * @param index any non-negative number
+     * @return the word at the given index, modulo the vocabulary size
+     */
+    public static String word(final int index) {
+        int value = index % VOCABULARY_SIZE;
+        return SYLLABLES[value / 100] + SYLLABLES[value / 10 % 10]
+                + SYLLABLES[value % 10];
+    }
+
+    /**
+     * Returns the title of the n-th seeded book.
+     *
+     * @param n the position of the book, starting at 0
+     * @return the title of the book
+     */
+    public static String title(final int n) {
+        return capitalize(word(n)) + " " + word(n / VOCABULARY_SIZE + n * 7)
+                + " " + word(n * 31 + 17);
+    }
+
+    /**
+     * Returns the author of the n-th seeded book.
+     *
+     * @param n the position of the book, starting at 0
+     * @return the author of the book
+     */
+    public static String author(final int n) {
+        int author = n % AUTHORS;
+        return capitalize(word(author)) + " "
+                + capitalize(word(author / VOCABULARY_SIZE + author * 13));
+    }
+
+    /**
+     * Connects to a database and creates the tables of the application in
+     * it, as the application does when it starts.
+     *
+     * @param url the JDBC URL of the database
+     * @return a template connected to the database
+     */
+    public static JdbcTemplate createSchema(final String url) {
+        // H2 lets only the user that created a database connect to it, so
+        // this is the user Spring Boot connects to in-memory databases with
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(url, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"))
+                .execute(dataSource);
+        return new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Inserts users and books into empty tables. Books get IDs from 1, all
+     * are available, and new books get IDs after the inserted ones.
+     *
+     * @param jdbcTemplate template connected to the database
+     * @param users        the number of users to insert
+     * @param books        the number of books to insert
+     */
+    public static void seed(final JdbcTemplate jdbcTemplate, final int users,
+                            final int books) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int n = 0; n < users; n++) {
+            rows.add(new Object[] {"user-" + n});
+            if (rows.size() == BATCH_SIZE || n == users - 1) {
+                jdbcTemplate.batchUpdate(
+                        "insert into users (user_name) values (?)", rows);
+                rows.clear();
+            }
+        }
+        for (int n = 0; n < books; n++) {
+            rows.add(new Object[] {n + 1, title(n), author(n)});
+            if (rows.size() == BATCH_SIZE || n == books - 1) {
+                jdbcTemplate.batchUpdate("insert into books (id, title, "
+                        + "author, is_available) values (?, ?, ?, true)",
+                        rows);
+                rows.clear();
+            }
+        }
+        // The sequence was created before the books, so it would hand out
+        // their IDs again
+        jdbcTemplate.update("alter sequence books_seq restart with "
+                + "(select coalesce(max(id), 0) + 1 from books)");
+    }
+
+    /**
+     * Recounts the books every user has on loan, after loans have been
+     * seeded straight into the books table.
+     *
+     * @param jdbcTemplate template connected to the database
+     */
+    public static void recountLoans(final JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("update users u set loan_count = (select count(*) "
+                + "from books b where b.borrower_id = u.id)");
+    }
+
+    private static String capitalize(final String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+/**
+ * The endpoints exercised by the load test, with their share of the
+ * workload.
+ */
+enum Endpoint {
+
+    /**
+     * Full-text search on a title word.
+     */
+    SEARCH("GET /books/search", 40),
+
+    /**
+     * Borrowing a book.
+     */
+    BORROW("PUT /books/borrow/{id}/{userId}", 20),
+
+    /**
+     * Returning a book borrowed earlier by the same client.
+     */
+    RETURN("PUT /books/return/{id}", 20),
+
+    /**
+     * Listing the books borrowed by a user.
+     */
+    USER_BOOKS("GET /books/user/{userId}", 20);
+
+    /**
+     * Sum of the weights of all endpoints.
+     */
+    static final int TOTAL_WEIGHT = 100;
+
+    private final String label;
+
+    private final int weight;
+
+    Endpoint(final String label, final int weight) {
+        this.label = label;
+        this.weight = weight;
+    }
+
+    /**
+     * @return the method and path template of the endpoint
+     */
+    String label() {
+        return label;
+    }
+
+    /**
+     * Picks an endpoint according to the weights.
+     *
+     * @param ticket a number between 0 and {@link #TOTAL_WEIGHT}
+     * @return the endpoint the ticket falls on
+     */
+    static Endpoint pick(final int ticket) {
+        int remaining = ticket;
+        for (Endpoint endpoint : values()) {
+            remaining -= endpoint.weight;
+            if (remaining < 0) {
+                return endpoint;
+            }
+        }
+        return USER_BOOKS;
+    }
+}
@@ -0,0 +1,79 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and response counts of one endpoint, shared by all clients.
+ */
+final class EndpointStats {
+
+    /**
+     * Highest latency that can be recorded, in microseconds.
+     */
+    private static final long MAX_LATENCY_MICROS =
+            TimeUnit.MINUTES.toMicros(1);
+
+    private final Histogram latencies =
+            new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+    private final LongAdder clientErrors = new LongAdder();
+
+    private final LongAdder serverErrors = new LongAdder();
+
+    /**
+     * Records a response.
+     *
+     * @param status       the HTTP status, or 0 if no response was received
+     * @param latencyNanos the time between sending and receiving
+     */
+    void record(final int status, final long latencyNanos) {
+        latencies.recordValue(Math.min(MAX_LATENCY_MICROS,
+                TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status >= 400 && status < 500) {
+            clientErrors.increment();
+        } else if (status == 0 || status >= 500) {
+            serverErrors.increment();
+        }
+    }
+
+    /**
+     * @return the number of recorded responses
+     */
+    long requests() {
+        return latencies.getTotalCount();
+    }
+
+    /**
+     * @param percentile a percentile between 0 and 100
+     * @return the latency at the given percentile, in milliseconds
+     */
+    double latencyMillis(final double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * @return the highest recorded latency, in milliseconds
+     */
+    double maxLatencyMillis() {
+        return latencies.getMaxValue() / 1000.0;
+    }
+
+    /**
+     * @return the number of 4xx responses, such as borrowing a book that's
+     * already borrowed
+     */
+    long clientErrors() {
+        return clientErrors.sum();
+    }
+
+    /**
+     * @return the number of 5xx responses and failed requests
+     */
+    long serverErrors() {
+        return serverErrors.sum();
+    }
+}
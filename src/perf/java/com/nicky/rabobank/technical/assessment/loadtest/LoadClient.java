@@ -0,0 +1,118 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * A simulated client, sending one request after the other until the run is
+ * over. Books it borrowed successfully are queued, and returned by later
+ * return requests in the order they were borrowed.
+ *
+ * <p>Clients don't wait between requests, so the load is closed: a slower
+ * server receives fewer requests, rather than building up a backlog.
+ */
+final class LoadClient implements Runnable {
+
+    /**
+     * Time after which a request counts as failed.
+     */
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient http;
+
+    private final Workload workload;
+
+    private final SplittableRandom random;
+
+    /**
+     * Time from which responses are recorded, in {@link System#nanoTime()}.
+     */
+    private final long measureFrom;
+
+    /**
+     * Time at which the client stops, in {@link System#nanoTime()}.
+     */
+    private final long end;
+
+    private final ArrayDeque<Integer> borrowed = new ArrayDeque<>();
+
+    private final Map<Endpoint, EndpointStats> stats;
+
+    /**
+     * Creates a client.
+     *
+     * @param http        the HTTP client to send the requests with
+     * @param workload    the workload deciding what to request
+     * @param stats       the statistics to record the responses in
+     * @param seed        the seed of the client's random numbers
+     * @param measureFrom time from which responses are recorded
+     * @param end         time at which the client stops
+     */
+    LoadClient(final HttpClient http, final Workload workload,
+               final Map<Endpoint, EndpointStats> stats, final long seed,
+               final long measureFrom, final long end) {
+        this.http = http;
+        this.workload = workload;
+        this.random = new SplittableRandom(seed);
+        this.measureFrom = measureFrom;
+        this.end = end;
+        this.stats = stats;
+    }
+
+    @Override
+    public void run() {
+        long start;
+        while ((start = System.nanoTime()) < end) {
+            Endpoint endpoint = Endpoint.pick(
+                    random.nextInt(Endpoint.TOTAL_WEIGHT));
+            if (endpoint == Endpoint.RETURN && borrowed.isEmpty()) {
+                endpoint = Endpoint.BORROW;
+            }
+
+            int bookId = 0;
+            HttpRequest.Builder request;
+            switch (endpoint) {
+                case SEARCH -> request = HttpRequest.newBuilder(workload.uri(
+                        "/books/search?title=" + workload.searchWord(random)
+                                + "&limit=20"));
+                case BORROW -> {
+                    bookId = workload.book(random);
+                    request = HttpRequest.newBuilder(workload.uri(
+                            "/books/borrow/" + bookId + "/"
+                                    + workload.user(random)))
+                            .PUT(HttpRequest.BodyPublishers.noBody());
+                }
+                case RETURN -> request = HttpRequest.newBuilder(workload.uri(
+                        "/books/return/" + borrowed.poll()))
+                        .PUT(HttpRequest.BodyPublishers.noBody());
+                default -> request = HttpRequest.newBuilder(workload.uri(
+                        "/books/user/" + workload.user(random)));
+            }
+
+            int status;
+            try {
+                status = http.send(request.timeout(TIMEOUT).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - start;
+
+            if (endpoint == Endpoint.BORROW && status == 200) {
+                borrowed.add(bookId);
+            }
+            if (start >= measureFrom) {
+                stats.get(endpoint).record(status, latency);
+            }
+        }
+    }
+}
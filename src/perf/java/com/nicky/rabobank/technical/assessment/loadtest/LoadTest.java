@@ -0,0 +1,223 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+import com.nicky.rabobank.technical.assessment.RabobankTechnicalAssessmentApplication;
+import com.nicky.rabobank.technical.assessment.benchmark.CatalogSeeder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load test. Seeds an in-memory database with a synthetic
+ * catalog in which the loans are concentrated on a few active users, starts
+ * the application on a local port against it, and drives a mixed workload of
+ * searches, borrows, returns and per-user listings over HTTP. Latency
+ * percentiles and throughput are printed per endpoint, and appended to a
+ * CSV file so runs of different builds can be compared.
+ *
+ * <p>System properties:
+ * <ul>
+ *     <li>{@code loadtest.users}: number of users (default 1000)</li>
+ *     <li>{@code loadtest.books}: number of books (default 100000)</li>
+ *     <li>{@code loadtest.borrowed}: share of the books on loan before
+ *     the run starts (default 0.1)</li>
+ *     <li>{@code loadtest.zipf}: skew of the popularity of books, users and
+ *     search words (default 1.0)</li>
+ *     <li>{@code loadtest.clients}: number of concurrent clients
+ *     (default 64)</li>
+ *     <li>{@code loadtest.warmup}: warm-up in seconds, not recorded
+ *     (default 10)</li>
+ *     <li>{@code loadtest.duration}: measurement in seconds
+ *     (default 30)</li>
+ *     <li>{@code loadtest.label}: name of the run in the CSV file
+ *     (default {@code local})</li>
+ *     <li>{@code loadtest.output}: the CSV file
+ *     (default {@code target/loadtest.csv})</li>
+ *     <li>{@code loadtest.profiles}: comma-separated profiles to activate,
+ *     e.g. {@code virtual-threads} (default none)</li>
+ * </ul>
+ * Program arguments are passed on to the application, e.g. to override a
+ * property.
+ */
+public final class LoadTest {
+
+    /**
+     * Seed of all random numbers, so runs are reproducible.
+     */
+    private static final long SEED = 42;
+
+    /**
+     * JDBC URL of the database.
+     */
+    private static final String URL = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+
+    private LoadTest() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        int users = Integer.getInteger("loadtest.users", 1000);
+        int books = Integer.getInteger("loadtest.books", 100_000);
+        double borrowed = Double.parseDouble(
+                System.getProperty("loadtest.borrowed", "0.1"));
+        double exponent = Double.parseDouble(
+                System.getProperty("loadtest.zipf", "1.0"));
+        int clients = Integer.getInteger("loadtest.clients", 64);
+        Duration warmup = Duration.ofSeconds(
+                Integer.getInteger("loadtest.warmup", 10));
+        Duration duration = Duration.ofSeconds(
+                Integer.getInteger("loadtest.duration", 30));
+
+        // Seeded before the application starts, so everything it loads at
+        // startup covers the catalog
+        JdbcTemplate jdbcTemplate = CatalogSeeder.createSchema(URL);
+        System.out.printf("Seeding %d users and %d books%n", users, books);
+        CatalogSeeder.seed(jdbcTemplate, users, books);
+        lend(jdbcTemplate, users, books, borrowed, exponent);
+
+        try (ConfigurableApplicationContext context = start(args)) {
+            int port = context.getEnvironment()
+                    .getRequiredProperty("local.server.port", Integer.class);
+            Workload workload = new Workload(
+                    URI.create("http://localhost:" + port), users, books,
+                    exponent, SEED);
+            System.out.printf("Running %d clients for %ds after a %ds "
+                    + "warm-up, profiles %s%n", clients, duration.toSeconds(),
+                    warmup.toSeconds(), String.join(",",
+                            context.getEnvironment().getActiveProfiles()));
+            Map<Endpoint, EndpointStats> stats =
+                    run(workload, clients, warmup, duration);
+
+            print(stats, duration);
+            write(stats, duration, clients);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(final String[] args) {
+        String profiles = System.getProperty("loadtest.profiles", "");
+        return new SpringApplicationBuilder(
+                RabobankTechnicalAssessmentApplication.class)
+                .profiles(StringUtils.commaDelimitedListToStringArray(
+                        StringUtils.trimAllWhitespace(profiles)))
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.hibernate.ddl-auto=none",
+                        "logging.level.root=WARN")
+                // An argument, since application.properties overrides the
+                // default properties above
+                .run(Stream.concat(Stream.of("--spring.datasource.url=" + URL),
+                        Arrays.stream(args)).toArray(String[]::new));
+    }
+
+    /**
+     * Puts a share of the books on loan. The books are picked uniformly,
+     * their borrowers from a Zipf distribution.
+     */
+    private static void lend(final JdbcTemplate jdbcTemplate, final int users,
+                             final int books, final double share,
+                             final double exponent) {
+        ZipfDistribution borrowers = new ZipfDistribution(users, exponent);
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Object[]> loans = new ArrayList<>();
+        for (int id = 1; id <= books; id++) {
+            if (random.nextDouble() < share) {
+                loans.add(new Object[] {borrowers.sample(random) + 1, id});
+            }
+        }
+        jdbcTemplate.batchUpdate("update books set is_available = false, "
+                + "borrower_id = ? where id = ?", loans);
+        CatalogSeeder.recountLoans(jdbcTemplate);
+    }
+
+    private static Map<Endpoint, EndpointStats> run(
+            final Workload workload, final int clients,
+            final Duration warmup, final Duration duration)
+            throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        // Virtual threads, so thousands of clients don't need thousands
+        // of platform threads
+        try (ExecutorService executor =
+                     Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.execute(new LoadClient(http, workload, stats,
+                        SEED + i, measureFrom, end));
+            }
+        }
+        return stats;
+    }
+
+    private static void print(final Map<Endpoint, EndpointStats> stats,
+                              final Duration duration) {
+        String format = "%-33s %9s %9s %9s %9s %9s %9s %7s %7s%n";
+        System.out.printf(format, "Endpoint", "Requests", "Req/s",
+                "p50 ms", "p99 ms", "p999 ms", "Max ms", "4xx", "Errors");
+        stats.forEach((endpoint, s) -> System.out.printf(Locale.ROOT,
+                "%-33s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d %7d%n",
+                endpoint.label(), s.requests(),
+                (double) s.requests() / duration.toSeconds(),
+                s.latencyMillis(50), s.latencyMillis(99),
+                s.latencyMillis(99.9), s.maxLatencyMillis(),
+                s.clientErrors(), s.serverErrors()));
+    }
+
+    private static void write(final Map<Endpoint, EndpointStats> stats,
+                              final Duration duration, final int clients)
+            throws IOException {
+        Path file = Path.of(System.getProperty("loadtest.output",
+                "target/loadtest.csv"));
+        boolean header = !Files.exists(file);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        String label = System.getProperty("loadtest.label", "local");
+        String time = Instant.now().toString();
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file,
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND))) {
+            if (header) {
+                out.println("label,time,clients,endpoint,requests,"
+                        + "requests_per_second,p50_ms,p99_ms,p999_ms,max_ms,"
+                        + "client_errors,errors");
+            }
+            stats.forEach((endpoint, s) -> out.printf(Locale.ROOT,
+                    "%s,%s,%d,%s,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%d,%d%n",
+                    label, time, clients, endpoint.label(), s.requests(),
+                    (double) s.requests() / duration.toSeconds(),
+                    s.latencyMillis(50), s.latencyMillis(99),
+                    s.latencyMillis(99.9), s.maxLatencyMillis(),
+                    s.clientErrors(), s.serverErrors()));
+        }
+        System.out.println("Results appended to " + file);
+    }
+}
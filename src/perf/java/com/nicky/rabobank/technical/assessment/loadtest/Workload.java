@@ -0,0 +1,90 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+import com.nicky.rabobank.technical.assessment.benchmark.CatalogSeeder;
+
+import java.net.URI;
+import java.util.SplittableRandom;
+
+/**
+ * Decides what the simulated clients ask for. Books, users and search words
+ * are all drawn from Zipf distributions, so a small set of popular books
+ * and active users receives most of the traffic, like in a real library.
+ * Popularity is shuffled over the IDs, so the popular books aren't simply
+ * the oldest ones.
+ */
+final class Workload {
+
+    private final URI baseUri;
+
+    /**
+     * Book IDs ordered from most to least popular.
+     */
+    private final int[] booksByPopularity;
+
+    private final ZipfDistribution books;
+
+    private final ZipfDistribution users;
+
+    private final ZipfDistribution words;
+
+    /**
+     * Creates a workload.
+     *
+     * @param baseUri   the URI the application listens on
+     * @param userCount the number of seeded users, with IDs 1 to userCount
+     * @param bookCount the number of seeded books, with IDs 1 to bookCount
+     * @param exponent  the skew of the Zipf distributions
+     * @param seed      the seed of the popularity shuffle
+     */
+    Workload(final URI baseUri, final int userCount, final int bookCount,
+             final double exponent, final long seed) {
+        this.baseUri = baseUri;
+        this.booksByPopularity = new int[bookCount];
+        for (int i = 0; i < bookCount; i++) {
+            booksByPopularity[i] = i + 1;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = bookCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = booksByPopularity[i];
+            booksByPopularity[i] = booksByPopularity[j];
+            booksByPopularity[j] = id;
+        }
+        this.books = new ZipfDistribution(bookCount, exponent);
+        this.users = new ZipfDistribution(userCount, exponent);
+        this.words = new ZipfDistribution(CatalogSeeder.VOCABULARY_SIZE,
+                exponent);
+    }
+
+    /**
+     * @param random the source of randomness
+     * @return the ID of a book, most likely a popular one
+     */
+    int book(final SplittableRandom random) {
+        return booksByPopularity[books.sample(random)];
+    }
+
+    /**
+     * @param random the source of randomness
+     * @return the ID of a user, most likely an active one
+     */
+    int user(final SplittableRandom random) {
+        return users.sample(random) + 1;
+    }
+
+    /**
+     * @param random the source of randomness
+     * @return a word occurring in the seeded titles
+     */
+    String searchWord(final SplittableRandom random) {
+        return CatalogSeeder.word(words.sample(random));
+    }
+
+    /**
+     * @param pathAndQuery the path and query of a request
+     * @return the absolute URI of the request
+     */
+    URI uri(final String pathAndQuery) {
+        return baseUri.resolve(pathAndQuery);
+    }
+}
@@ -0,0 +1,50 @@
+package com.nicky.rabobank.technical.assessment.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks {@code 0..n-1}: rank {@code k} is drawn
+ * with a probability proportional to {@code 1 / (k + 1)^exponent}, so a few
+ * low ranks account for most of the draws.
+ */
+final class ZipfDistribution {
+
+    /**
+     * Cumulative probability of every rank.
+     */
+    private final double[] cumulative;
+
+    /**
+     * Creates a distribution.
+     *
+     * @param n        the number of ranks
+     * @param exponent the skew; 0 gives a uniform distribution
+     */
+    ZipfDistribution(final int n, final double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random the source of randomness
+     * @return a rank between 0 (most likely) and n - 1
+     */
+    int sample(final SplittableRandom random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
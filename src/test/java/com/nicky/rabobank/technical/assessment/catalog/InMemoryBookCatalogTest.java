@@ -0,0 +1,128 @@
+package com.nicky.rabobank.technical.assessment.catalog;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryBookCatalogTest {
+
+    private InMemoryBookCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new InMemoryBookCatalog();
+        catalog.put(book(1, "The Hobbit", "J.R.R. Tolkien", null, 0));
+        catalog.put(book(2, "Dune", "Frank Herbert", 7, 3));
+    }
+
+    @Test
+    void isReady_OnlyAfterMarkReady() {
+        assertFalse(catalog.isReady());
+
+        catalog.markReady();
+
+        assertTrue(catalog.isReady());
+    }
+
+    @Test
+    void findById_ReturnsCopyOfBook() {
+        Book book = catalog.findById(2).orElseThrow();
+
+        assertEquals(2, book.getId());
+        assertEquals("Dune", book.getTitle());
+        assertEquals("Frank Herbert", book.getAuthor());
+        assertFalse(book.isAvailable());
+        assertEquals(7, book.getBorrowerId());
+        assertEquals(3, book.getVersion());
+        assertTrue(catalog.findById(3).isEmpty());
+        assertTrue(catalog.findById(0).isEmpty());
+    }
+
+    @Test
+    void findAllById_SkipsMissingBooks() {
+        List<Book> books = catalog.findAllById(List.of(2, 99, 1));
+
+        assertEquals(2, books.size());
+        assertEquals(2, books.get(0).getId());
+        assertEquals(1, books.get(1).getId());
+    }
+
+    @Test
+    void put_SharesAuthors() {
+        catalog.put(book(3, "The Silmarillion", new String("J.R.R. Tolkien"), null, 0));
+
+        assertSame(catalog.findById(1).orElseThrow().getAuthor(),
+                catalog.findById(3).orElseThrow().getAuthor());
+    }
+
+    @Test
+    void findByBorrowerId_FollowsBorrowsAndReturns() {
+        catalog.put(book(1, "The Hobbit", "J.R.R. Tolkien", 7, 1));
+        catalog.put(book(3, "Emma", "Jane Austen", 7, 0));
+
+        assertEquals(List.of(3, 1, 2), ids(catalog.findByBorrowerId(7)));
+
+        catalog.put(book(1, "The Hobbit", "J.R.R. Tolkien", null, 2));
+        catalog.put(book(3, "Emma", "Jane Austen", 8, 1));
+
+        assertEquals(List.of(2), ids(catalog.findByBorrowerId(7)));
+        assertEquals(List.of(3), ids(catalog.findByBorrowerId(8)));
+        assertTrue(catalog.findByBorrowerId(9999).isEmpty());
+    }
+
+    @Test
+    void findPage_ReturnsBooksAfterCursorInIdOrder() {
+        catalog.put(book(5000, "Emma", "Jane Austen", 4000, 0));
+
+        assertEquals(List.of(1, 2), ids(catalog.findPage(0, 2)));
+        assertEquals(List.of(2, 5000), ids(catalog.findPage(1, 10)));
+        assertTrue(catalog.findPage(5000, 10).isEmpty());
+        assertEquals(List.of(5000), ids(catalog.findByBorrowerId(4000)));
+    }
+
+    @Test
+    void put_OlderVersion_IsIgnored() {
+        catalog.put(book(2, "Dune", "Frank Herbert", null, 2));
+
+        assertEquals(3, catalog.findById(2).orElseThrow().getVersion());
+        assertEquals(List.of(2), ids(catalog.findByBorrowerId(7)));
+    }
+
+    @Test
+    void remove_KeepsRemovedBookOut() {
+        catalog.remove(2);
+        // Read by the initial load before it was removed
+        catalog.put(book(2, "Dune", "Frank Herbert", 7, 3));
+
+        assertTrue(catalog.findById(2).isEmpty());
+        assertTrue(catalog.findByBorrowerId(7).isEmpty());
+        assertEquals(List.of(1), ids(catalog.findPage(0, 10)));
+    }
+
+    @Test
+    void onBookChanged_AppliesChanges() {
+        catalog.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.RETURNED, 2,
+                book(2, "Dune", "Frank Herbert", null, 4)));
+        catalog.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 1, null));
+
+        assertTrue(catalog.findById(2).orElseThrow().isAvailable());
+        assertTrue(catalog.findByBorrowerId(7).isEmpty());
+        assertTrue(catalog.findById(1).isEmpty());
+    }
+
+    @Test
+    void put_WithoutId_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> catalog.put(book(0, "Emma", "Jane Austen", null, 0)));
+    }
+
+    private static List<Integer> ids(final List<BookView> books) {
+        return books.stream().map(BookView::id).toList();
+    }
+}
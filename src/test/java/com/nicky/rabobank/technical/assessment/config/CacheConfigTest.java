@@ -0,0 +1,164 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.User;
+import com.nicky.rabobank.technical.assessment.repository.BookRepository;
+import com.nicky.rabobank.technical.assessment.repository.HoldRepository;
+import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import com.nicky.rabobank.technical.assessment.search.BookAvailabilityIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSearchIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.stats.BookStatistics;
+import com.nicky.rabobank.technical.assessment.service.BookReadModels;
+import com.nicky.rabobank.technical.assessment.service.BookService;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
+import com.nicky.rabobank.technical.assessment.service.UserService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(classes = {CacheConfig.class, BookReadModels.class, BookService.class, UserService.class})
+public class CacheConfigTest {
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @MockBean
+    private BookRepository bookRepository;
+
+    @MockBean
+    private UserRepository userRepository;
+
+    @MockBean
+    private HoldRepository holdRepository;
+
+    @MockBean
+    private EntityManager entityManager;
+
+    @MockBean
+    private BookSearchIndex searchIndex;
+
+    @MockBean
+    private BookSuggestIndex suggestIndex;
+
+    @MockBean
+    private BookAvailabilityIndex availabilityIndex;
+
+    @MockBean
+    private BookStatistics statistics;
+
+    private Book testBook;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+
+        testBook = new Book();
+        testBook.setId(1);
+        testBook.setTitle("Test Book");
+        testBook.setAuthor("Test Author");
+        when(bookRepository.findById(1)).thenReturn(Optional.of(testBook));
+    }
+
+    @Test
+    void cacheManager_CreatesConfiguredCaches() {
+        assertTrue(cacheManager.getCacheNames().containsAll(List.of("books", "users", "userExists")));
+    }
+
+    @Test
+    void getBook_IsServedFromCache() {
+        assertEquals(testBook, bookService.get(1));
+        assertEquals(testBook, bookService.get(1));
+
+        verify(bookRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void getAllBooksByIds_LoadsOnlyUncachedBooksAndCachesThem() {
+        Book secondBook = new Book();
+        secondBook.setId(2);
+        when(bookRepository.findAllById(List.of(2, 3))).thenReturn(List.of(secondBook));
+        bookService.get(1);
+
+        LookupResult<Book> result = bookService.getAll(List.of(1, 2, 3));
+
+        assertEquals(List.of(testBook, secondBook), result.found());
+        assertEquals(List.of(3), result.missing());
+        assertEquals(secondBook, cacheManager.getCache("books").get(2, Book.class));
+    }
+
+    @Test
+    void getBook_WhenMissing_IsNotCached() {
+        when(bookRepository.findById(999)).thenReturn(Optional.empty());
+
+        assertThrows(Exception.class, () -> bookService.get(999));
+        assertThrows(Exception.class, () -> bookService.get(999));
+
+        verify(bookRepository, times(2)).findById(999);
+    }
+
+    @Test
+    void updateBook_EvictsCachedBook() {
+        when(bookRepository.updateDetails(1, "Test Book", "Test Author")).thenReturn(1);
+        bookService.get(1);
+
+        bookService.update(testBook, null);
+        bookService.get(1);
+
+        // Once for each get, once to read back the updated book
+        verify(bookRepository, times(3)).findById(1);
+    }
+
+    @Test
+    void borrowAndReturnBook_EvictCachedBook() {
+        when(userRepository.incrementLoanCount(1, Integer.MAX_VALUE)).thenReturn(1);
+        when(bookRepository.markBorrowed(1, 1)).thenReturn(1);
+        when(bookRepository.markReturned(1)).thenReturn(1);
+        bookService.get(1);
+        bookService.borrowBook(1, 1);
+        assertNull(cacheManager.getCache("books").get(1));
+
+        bookService.get(1);
+        bookService.returnBook(1);
+        assertNull(cacheManager.getCache("books").get(1));
+    }
+
+    @Test
+    void removeBook_EvictsCachedBook() {
+        when(bookRepository.removeById(1)).thenReturn(1);
+        bookService.get(1);
+
+        bookService.remove(1);
+
+        assertNull(cacheManager.getCache("books").get(1));
+    }
+
+    @Test
+    void getUser_IsServedFromCache() {
+        User testUser = new User();
+        testUser.setId(1);
+        testUser.setUserName("Test User");
+        when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
+
+        assertEquals(testUser, userService.get(1));
+        assertEquals(testUser, userService.get(1));
+
+        verify(userRepository, times(1)).findById(1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import io.micrometer.common.KeyValue;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResultObservationConventionTest {
+
+    private final ResultObservationConvention convention = new ResultObservationConvention();
+
+    @Test
+    void result_SuccessfulGet_IsFound() {
+        assertEquals("found", result("GET", 200));
+    }
+
+    @Test
+    void result_SuccessfulPut_IsSuccess() {
+        assertEquals("success", result("PUT", 200));
+    }
+
+    @Test
+    void result_MapsStatusExceptions() {
+        assertEquals("not-found", result("GET", 404));
+        assertEquals("conflict", result("PUT", 409));
+        assertEquals("bad-request", result("PUT", 400));
+        assertEquals("client-error", result("POST", 415));
+        assertEquals("server-error", result("GET", 500));
+    }
+
+    @Test
+    void getLowCardinalityKeyValues_KeepsStandardTags() {
+        ServerRequestObservationContext context = context("GET", 404);
+
+        assertTrue(convention.getLowCardinalityKeyValues(context).stream()
+                .anyMatch(keyValue -> keyValue.equals(KeyValue.of("outcome", "CLIENT_ERROR"))));
+    }
+
+    private String result(final String method, final int status) {
+        return convention.getLowCardinalityKeyValues(context(method, status)).stream()
+                .filter(keyValue -> keyValue.getKey().equals(ResultObservationConvention.RESULT))
+                .findFirst()
+                .orElseThrow()
+                .getValue();
+    }
+
+    private static ServerRequestObservationContext context(final String method, final int status) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(status);
+        return new ServerRequestObservationContext(new MockHttpServletRequest(method, "/books/1"), response);
+    }
+}
@@ -0,0 +1,50 @@
+package com.nicky.rabobank.technical.assessment.config;
+
+import org.apache.coyote.http11.Http11NioProtocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(TaskExecutionAutoConfiguration.class))
+            .withUserConfiguration(VirtualThreadConfig.class);
+
+    @Test
+    void whenDisabled_KeepsPlatformThreads() {
+        contextRunner.withPropertyValues("library.threads.virtual=false").run(context -> {
+            assertTrue(context.getBeansOfType(TomcatProtocolHandlerCustomizer.class).isEmpty());
+            assertFalse(runsOnVirtualThread(context.getBean(AsyncTaskExecutor.class)));
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void whenEnabled_HandlesRequestsOnVirtualThreads() {
+        contextRunner.withPropertyValues("library.threads.virtual=true").run(context -> {
+            Http11NioProtocol protocol = new Http11NioProtocol();
+            context.getBean(TomcatProtocolHandlerCustomizer.class).customize(protocol);
+
+            assertTrue(runsOnVirtualThread(protocol.getExecutor()));
+        });
+    }
+
+    @Test
+    void whenEnabled_RunsAsyncRequestsOnVirtualThreads() {
+        contextRunner.withPropertyValues("library.threads.virtual=true").run(context ->
+                assertTrue(runsOnVirtualThread(context.getBean(AsyncTaskExecutor.class))));
+    }
+
+    private static boolean runsOnVirtualThread(final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor).join();
+    }
+}
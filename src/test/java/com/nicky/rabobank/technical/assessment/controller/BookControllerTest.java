@@ -1,24 +1,56 @@
 package com.nicky.rabobank.technical.assessment.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nicky.rabobank.technical.assessment.model.AuthorStats;
 import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.model.BorrowerStats;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import com.nicky.rabobank.technical.assessment.service.BookEventFeed;
+import com.nicky.rabobank.technical.assessment.service.BookExportService;
+import com.nicky.rabobank.technical.assessment.service.BookImportResult;
+import com.nicky.rabobank.technical.assessment.service.BookImportService;
 import com.nicky.rabobank.technical.assessment.service.BookService;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
-
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,11 +64,24 @@ public class BookControllerTest {
     @MockBean
     private BookService bookService;
 
+    @MockBean
+    private BookImportService bookImportService;
+
+    @MockBean
+    private BookExportService bookExportService;
+
+    @MockBean
+    private BookEventFeed bookEventFeed;
+
+    @MockBean
+    private BookSuggestIndex bookSuggestIndex;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     private Book testBook;
     private List<Book> bookList;
+    private List<BookView> viewList;
 
     @BeforeEach
     void setUp() {
@@ -51,21 +96,261 @@ public class BookControllerTest {
         secondBook.setAuthor("Another Author");
 
         bookList = Arrays.asList(testBook, secondBook);
+        viewList = Arrays.asList(BookView.of(testBook), BookView.of(secondBook));
     }
 
     @Test
-    void getAllBooks_ReturnsAllBooks() throws Exception {
-        when(bookService.getAll()).thenReturn(bookList);
+    void getAllBooks_ReturnsFirstPage() throws Exception {
+        when(bookService.getPage(0, 100)).thenReturn(viewList);
 
         mockMvc.perform(get("/books"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK))
                 .andExpect(jsonPath("$[0].id").value(1))
                 .andExpect(jsonPath("$[0].title").value("Test Book"))
+                .andExpect(jsonPath("$[0].available").value(true))
                 .andExpect(jsonPath("$[1].id").value(2))
                 .andExpect(jsonPath("$[1].title").value("Another Book"));
     }
 
+    @Test
+    void getAllBooks_WithCurrentETag_ReturnsNotModified() throws Exception {
+        when(bookService.getPage(0, 100)).thenReturn(viewList);
+
+        String eTag = mockMvc.perform(get("/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void getAllBooks_WhenPageIsFull_ReturnsNextLink() throws Exception {
+        when(bookService.getPage(0, 2)).thenReturn(viewList);
+
+        mockMvc.perform(get("/books").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK,
+                        "<http://localhost/books?after=2&size=2>; rel=\"next\""));
+    }
+
+    @Test
+    void getAllBooks_WithCursor_ReturnsNextPage() throws Exception {
+        when(bookService.getPage(1, 100)).thenReturn(Collections.singletonList(viewList.get(1)));
+
+        mockMvc.perform(get("/books").param("after", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2));
+    }
+
+    @Test
+    void getAllBooks_WithInvalidPageSize_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/books").param("size", "1001"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAvailableBooks_WhenPageIsFull_ReturnsNextLink() throws Exception {
+        when(bookService.getAvailablePage(0, 2)).thenReturn(viewList);
+
+        mockMvc.perform(get("/books?available=true&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2))
+                .andExpect(header().string(HttpHeaders.LINK,
+                        "<http://localhost/books?available=true&after=2&size=2>; rel=\"next\""));
+    }
+
+    @Test
+    void getAvailableBooks_WithInvalidPageSize_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books").param("available", "true").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void countAvailableBooks_ReturnsCount() throws Exception {
+        when(bookService.countAvailable()).thenReturn(42L);
+
+        mockMvc.perform(get("/books/available/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(42));
+    }
+
+    @Test
+    void countAvailableBooks_ByAuthor_ReturnsCountOfAuthor() throws Exception {
+        when(bookService.countAvailable("Test Author")).thenReturn(3L);
+
+        mockMvc.perform(get("/books/available/count").param("author", "Test Author"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.available").value(3));
+    }
+
+    @Test
+    void getStats_ReturnsStats() throws Exception {
+        when(bookService.getStats(100, 10)).thenReturn(new BookStats(2, 1, 1,
+                List.of(new AuthorStats("Test Author", 2, 1, 1)), List.of(new BorrowerStats(1, 1))));
+
+        mockMvc.perform(get("/books/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books").value(2))
+                .andExpect(jsonPath("$.borrowed").value(1))
+                .andExpect(jsonPath("$.authors[0].author").value("Test Author"))
+                .andExpect(jsonPath("$.authors[0].available").value(1))
+                .andExpect(jsonPath("$.topBorrowers[0].userId").value(1));
+    }
+
+    @Test
+    void getStats_WithInvalidMaximum_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/stats").param("borrowers", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAllBooks_WritesAllBooks() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            bookList.forEach(consumer);
+            return null;
+        }).when(bookService).streamAll(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/books").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].id").value(2));
+    }
+
+    @Test
+    void exportBooks_DefaultsToNdjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookExportService).export(eq(BookExportService.Format.NDJSON), any());
+
+        MvcResult result = mockMvc.perform(get("/books/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"books.ndjson\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+
+    @Test
+    void exportBooks_Csv_IsGzippedWhenAccepted() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(1);
+            out.write("id\r\n1\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookExportService).export(eq(BookExportService.Format.CSV), any());
+
+        MvcResult result = mockMvc.perform(get("/books/export")
+                        .param("format", "csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("id\r\n1\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void exportBooks_UnknownFormat_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bookEvents_SendsChangesOfWatchedBooks() throws Exception {
+        ArgumentCaptor<BookEventFeed.Sink> sink = ArgumentCaptor.forClass(BookEventFeed.Sink.class);
+        when(bookEventFeed.subscribe(eq(List.of(1, 2)), isNull(), sink.capture()))
+                .thenReturn(mock(BookEventFeed.Subscription.class));
+
+        MvcResult result = mockMvc.perform(get("/books/events").param("bookId", "1,2"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        sink.getValue().dropped(3);
+        sink.getValue().send(new BookChangedEvent(BookChangedEvent.Type.RETURNED, 1, testBook));
+
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:dropped\ndata:{\"dropped\":3}\n\n"), body);
+        assertTrue(body.contains("event:returned\ndata:{\"type\":\"RETURNED\",\"bookId\":1,"), body);
+    }
+
+    @Test
+    void bookEvents_ByAuthor_SubscribesToAuthor() throws Exception {
+        when(bookEventFeed.subscribe(eq(List.of()), eq("Tolkien"), any()))
+                .thenReturn(mock(BookEventFeed.Subscription.class));
+
+        mockMvc.perform(get("/books/events").param("author", "Tolkien"))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void bookEvents_WithBooksAndAuthor_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/events").param("bookId", "1").param("author", "Tolkien"))
+                .andExpect(status().isBadRequest());
+
+        verify(bookEventFeed, never()).subscribe(any(), any(), any());
+    }
+
+    @Test
+    void getBooksByIds_ReturnsFoundAndMissingBooks() throws Exception {
+        when(bookService.getAll(List.of(2, 5, 1)))
+                .thenReturn(new LookupResult<>(List.of(bookList.get(1), testBook), List.of(5)));
+
+        mockMvc.perform(get("/books").param("ids", "2", "5", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].id").value(2))
+                .andExpect(jsonPath("$.found[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(5));
+    }
+
+    @Test
+    void lookupBooks_ReadsIdsFromBody() throws Exception {
+        when(bookService.getAll(List.of(1, 2)))
+                .thenReturn(new LookupResult<>(bookList, List.of()));
+
+        mockMvc.perform(post("/books/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1,2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found.length()").value(2))
+                .andExpect(jsonPath("$.missing").isEmpty());
+    }
+
+    @Test
+    void lookupBooks_WithTooManyIds_ReturnsBadRequest() throws Exception {
+        String ids = IntStream.rangeClosed(1, 10001)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.joining(",", "[", "]"));
+
+        mockMvc.perform(post("/books/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(ids))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getBookById_WhenBookExists_ReturnsBook() throws Exception {
         when(bookService.get(1)).thenReturn(testBook);
@@ -77,9 +362,29 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$.title").value("Test Book"));
     }
 
+    @Test
+    void getBookById_ReturnsVersionAsETag() throws Exception {
+        testBook.setVersion(3);
+        when(bookService.get(1)).thenReturn(testBook);
+
+        mockMvc.perform(get("/books/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void getBookById_WithCurrentETag_ReturnsNotModified() throws Exception {
+        testBook.setVersion(3);
+        when(bookService.get(1)).thenReturn(testBook);
+
+        mockMvc.perform(get("/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
     @Test
     void getBookById_WhenBookDoesNotExist_ReturnsNotFound() throws Exception {
-        when(bookService.get(999)).thenReturn(null);
+        when(bookService.get(999)).thenThrow(new NoSuchElementException("Book not found with id: 999"));
 
         mockMvc.perform(get("/books/999"))
                 .andExpect(status().isNotFound());
@@ -87,7 +392,7 @@ public class BookControllerTest {
 
     @Test
     void getBooksByUserId_WhenUserExists_ReturnsBooks() throws Exception {
-        when(bookService.getBooksByUserId(1)).thenReturn(Collections.singletonList(testBook));
+        when(bookService.getBooksByUserId(1)).thenReturn(Collections.singletonList(viewList.get(0)));
 
         mockMvc.perform(get("/books/user/1"))
                 .andExpect(status().isOk())
@@ -104,9 +409,47 @@ public class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void suggest_ReturnsSuggestedTitles() throws Exception {
+        when(bookSuggestIndex.suggest(BookSuggestIndex.Field.TITLE, "lor", 10))
+                .thenReturn(List.of("Lord of the Flies", "The Lord of the Rings"));
+
+        mockMvc.perform(get("/books/suggest").param("prefix", "lor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("Lord of the Flies"))
+                .andExpect(jsonPath("$[1]").value("The Lord of the Rings"));
+    }
+
+    @Test
+    void suggest_Authors_UsesLimit() throws Exception {
+        when(bookSuggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "tolk", 5))
+                .thenReturn(List.of("J.R.R. Tolkien"));
+
+        mockMvc.perform(get("/books/suggest")
+                        .param("prefix", "tolk")
+                        .param("field", "author")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("J.R.R. Tolkien"));
+    }
+
+    @Test
+    void suggest_WithUnknownField_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/suggest")
+                        .param("prefix", "tolk")
+                        .param("field", "publisher"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void suggest_WithBlankPrefix_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/suggest").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void searchBooks_WithValidParameters_ReturnsBooks() throws Exception {
-        when(bookService.searchBooks("Test", "Author")).thenReturn(Collections.singletonList(testBook));
+        when(bookService.searchBooks("Test", "Author", 100, false)).thenReturn(Collections.singletonList(viewList.get(0)));
 
         mockMvc.perform(get("/books/search")
                         .param("title", "Test")
@@ -117,6 +460,17 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$[0].title").value("Test Book"));
     }
 
+    @Test
+    void searchBooks_WithAvailableOnly_ReturnsAvailableBooks() throws Exception {
+        when(bookService.searchBooks("Test", null, 100, true)).thenReturn(Collections.singletonList(viewList.get(0)));
+
+        mockMvc.perform(get("/books/search")
+                        .param("title", "Test")
+                        .param("available", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
     @Test
     void searchBooks_WithNoParameters_ReturnsBadRequest() throws Exception {
         mockMvc.perform(get("/books/search"))
@@ -125,7 +479,7 @@ public class BookControllerTest {
 
     @Test
     void searchBooks_WithEmptyResults_ReturnsNoContent() throws Exception {
-        when(bookService.searchBooks("NonExistent", "Author")).thenReturn(Collections.emptyList());
+        when(bookService.searchBooks("NonExistent", "Author", 100, false)).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/books/search")
                         .param("title", "NonExistent")
@@ -135,7 +489,7 @@ public class BookControllerTest {
 
     @Test
     void searchBooks_WithOnlyTitle_ReturnsBooks() throws Exception {
-        when(bookService.searchBooks("Test", null)).thenReturn(Collections.singletonList(testBook));
+        when(bookService.searchBooks("Test", null, 100, false)).thenReturn(Collections.singletonList(viewList.get(0)));
 
         mockMvc.perform(get("/books/search")
                         .param("title", "Test"))
@@ -147,7 +501,7 @@ public class BookControllerTest {
 
     @Test
     void searchBooks_WithOnlyAuthor_ReturnsBooks() throws Exception {
-        when(bookService.searchBooks(null, "Author")).thenReturn(Collections.singletonList(testBook));
+        when(bookService.searchBooks(null, "Author", 100, false)).thenReturn(Collections.singletonList(viewList.get(0)));
 
         mockMvc.perform(get("/books/search")
                         .param("author", "Author"))
@@ -157,6 +511,25 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$[0].title").value("Test Book"));
     }
 
+    @Test
+    void searchBooks_WithLimit_PassesLimit() throws Exception {
+        when(bookService.searchBooks("Test", null, 5, false)).thenReturn(Collections.singletonList(viewList.get(0)));
+
+        mockMvc.perform(get("/books/search")
+                        .param("title", "Test")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1));
+    }
+
+    @Test
+    void searchBooks_WithInvalidLimit_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/books/search")
+                        .param("title", "Test")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void searchBooks_WithEmptyParams_ReturnsBadRequest() throws Exception {
         mockMvc.perform(get("/books/search")
@@ -177,6 +550,54 @@ public class BookControllerTest {
                 .andExpect(jsonPath("$.title").value("Test Book"));
     }
 
+    @Test
+    void importBooks_JsonArray_ReturnsSummary() throws Exception {
+        List<String> titles = new ArrayList<>();
+        when(bookImportService.importBooks(any())).thenAnswer(invocation -> {
+            MappingIterator<Book> items = invocation.getArgument(0);
+            items.forEachRemaining(book -> titles.add(book.getTitle()));
+            return new BookImportResult(titles.size(), 1,
+                    List.of(new BookImportResult.ItemError(2, "Title cannot be null")));
+        });
+
+        mockMvc.perform(post("/books/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"title\":\"A\",\"author\":\"X\"},{\"title\":\"B\",\"author\":\"Y\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Title cannot be null"));
+
+        assertEquals(List.of("A", "B"), titles);
+    }
+
+    @Test
+    void importBooks_Ndjson_ReadsOneBookPerLine() throws Exception {
+        List<String> titles = new ArrayList<>();
+        when(bookImportService.importBooks(any())).thenAnswer(invocation -> {
+            MappingIterator<Book> items = invocation.getArgument(0);
+            items.forEachRemaining(book -> titles.add(book.getTitle()));
+            return new BookImportResult(titles.size(), 0, List.of());
+        });
+
+        mockMvc.perform(post("/books/bulk")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"title\":\"A\",\"author\":\"X\"}\n{\"title\":\"B\",\"author\":\"Y\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2));
+
+        assertEquals(List.of("A", "B"), titles);
+    }
+
+    @Test
+    void importBooks_UnsupportedMediaType_ReturnsUnsupportedMediaType() throws Exception {
+        mockMvc.perform(post("/books/bulk")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("title,author"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
     @Test
     void updateBook_WhenBookExists_ReturnsUpdatedBook() throws Exception {
         Book updatedBook = new Book();
@@ -184,8 +605,7 @@ public class BookControllerTest {
         updatedBook.setTitle("Updated Title");
         updatedBook.setAuthor("Updated Author");
 
-        when(bookService.get(1)).thenReturn(testBook);
-        when(bookService.update(any(Book.class))).thenReturn(updatedBook);
+        when(bookService.update(any(Book.class), isNull())).thenReturn(Optional.of(updatedBook));
 
         mockMvc.perform(put("/books/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -198,7 +618,7 @@ public class BookControllerTest {
 
     @Test
     void updateBook_WhenBookDoesNotExist_ReturnsNotFound() throws Exception {
-        when(bookService.get(999)).thenReturn(null);
+        when(bookService.update(any(Book.class), isNull())).thenReturn(Optional.empty());
 
         mockMvc.perform(put("/books/999")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -206,10 +626,57 @@ public class BookControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void updateBook_WithMatchingIfMatch_ReturnsNewETag() throws Exception {
+        Book updatedBook = new Book();
+        updatedBook.setId(1);
+        updatedBook.setTitle("Updated Title");
+        updatedBook.setAuthor("Updated Author");
+        updatedBook.setVersion(4);
+
+        when(bookService.update(any(Book.class), eq(3))).thenReturn(Optional.of(updatedBook));
+
+        mockMvc.perform(put("/books/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedBook)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void updateBook_WithOutdatedIfMatch_ReturnsPreconditionFailedWithCurrentETag() throws Exception {
+        Book currentBook = new Book();
+        currentBook.setId(1);
+        currentBook.setTitle("Test Book");
+        currentBook.setAuthor("Test Author");
+        currentBook.setVersion(5);
+        when(bookService.update(any(Book.class), eq(3)))
+                .thenThrow(new OptimisticLockingFailureException("Book 1 no longer has version 3"));
+        when(bookService.get(1)).thenReturn(currentBook);
+
+        mockMvc.perform(put("/books/1")
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testBook)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+    }
+
+    @Test
+    void updateBook_WithWeakIfMatch_ReturnsPreconditionFailed() throws Exception {
+        mockMvc.perform(put("/books/1")
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(testBook)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(bookService, never()).update(any(), any());
+    }
+
     @Test
     void deleteBook_WhenBookExists_ReturnsNoContent() throws Exception {
-        when(bookService.get(1)).thenReturn(testBook);
-        doNothing().when(bookService).remove(1);
+        when(bookService.remove(1)).thenReturn(true);
 
         mockMvc.perform(delete("/books/1"))
                 .andExpect(status().isNoContent());
@@ -217,7 +684,7 @@ public class BookControllerTest {
 
     @Test
     void deleteBook_WhenBookDoesNotExist_ReturnsNotFound() throws Exception {
-        when(bookService.get(999)).thenReturn(null);
+        when(bookService.remove(999)).thenReturn(false);
 
         mockMvc.perform(delete("/books/999"))
                 .andExpect(status().isNotFound());
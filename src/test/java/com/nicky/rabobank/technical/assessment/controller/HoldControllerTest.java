@@ -0,0 +1,88 @@
+package com.nicky.rabobank.technical.assessment.controller;
+
+import com.nicky.rabobank.technical.assessment.model.Hold;
+import com.nicky.rabobank.technical.assessment.model.HoldView;
+import com.nicky.rabobank.technical.assessment.service.HoldService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.NoSuchElementException;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(HoldController.class)
+@AutoConfigureMockMvc(addFilters = false)
+public class HoldControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private HoldService holdService;
+
+    @Test
+    void reserve_ReturnsCreatedHold() throws Exception {
+        when(holdService.reserve(1, 3)).thenReturn(new HoldView(10, 1, 3, Hold.Status.WAITING, 2));
+
+        mockMvc.perform(post("/holds/1/3"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(10))
+                .andExpect(jsonPath("$.status").value("WAITING"))
+                .andExpect(jsonPath("$.position").value(2));
+    }
+
+    @Test
+    void reserve_WhenBookIsAvailable_ReturnsBadRequest() throws Exception {
+        when(holdService.reserve(1, 3)).thenThrow(new IllegalStateException("Book is available, borrow it instead"));
+
+        mockMvc.perform(post("/holds/1/3"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void reserve_WhenBookDoesNotExist_ReturnsNotFound() throws Exception {
+        when(holdService.reserve(999, 3)).thenThrow(new NoSuchElementException("Book not found with id: 999"));
+
+        mockMvc.perform(post("/holds/999/3"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getHold_ReturnsStatusAndPosition() throws Exception {
+        when(holdService.get(10)).thenReturn(new HoldView(10, 1, 3, Hold.Status.FULFILLED, null));
+
+        mockMvc.perform(get("/holds/10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FULFILLED"))
+                .andExpect(jsonPath("$.position").doesNotExist());
+    }
+
+    @Test
+    void getHold_WhenHoldDoesNotExist_ReturnsNotFound() throws Exception {
+        when(holdService.get(999)).thenThrow(new NoSuchElementException("Hold not found with id: 999"));
+
+        mockMvc.perform(get("/holds/999"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void cancelHold_ReturnsNoContent() throws Exception {
+        mockMvc.perform(delete("/holds/10"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void cancelHold_WhenHoldIsNotWaiting_ReturnsBadRequest() throws Exception {
+        doThrow(new IllegalStateException("Hold is no longer waiting")).when(holdService).cancel(10);
+
+        mockMvc.perform(delete("/holds/10"))
+                .andExpect(status().isBadRequest());
+    }
+}
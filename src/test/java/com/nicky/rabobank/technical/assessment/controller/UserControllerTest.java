@@ -2,6 +2,8 @@ package com.nicky.rabobank.technical.assessment.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nicky.rabobank.technical.assessment.model.User;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
+import com.nicky.rabobank.technical.assessment.service.UserLoans;
 import com.nicky.rabobank.technical.assessment.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,13 +11,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,8 +57,8 @@ public class UserControllerTest {
     }
 
     @Test
-    void getAllUsers_ReturnsAllUsers() throws Exception {
-        when(userService.getAll()).thenReturn(userList);
+    void getAllUsers_ReturnsFirstPage() throws Exception {
+        when(userService.getPage(0, 100)).thenReturn(userList);
 
         mockMvc.perform(get("/users"))
                 .andExpect(status().isOk())
@@ -62,6 +69,73 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[1].userName").value("Nicky Test User 2"));
     }
 
+    @Test
+    void getAllUsers_WhenPageIsFull_ReturnsNextLink() throws Exception {
+        when(userService.getPage(0, 2)).thenReturn(userList);
+
+        mockMvc.perform(get("/users").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.LINK,
+                        "<http://localhost/users?after=2&size=2>; rel=\"next\""));
+    }
+
+    @Test
+    void getAllUsers_WithInvalidPageSize_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/users").param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAllUsers_WritesAllUsers() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<User> consumer = invocation.getArgument(0);
+            userList.forEach(consumer);
+            return null;
+        }).when(userService).streamAll(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/users").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].userName").value("Nicky Test User 2"));
+    }
+
+    @Test
+    void getUsersByIds_ReturnsFoundAndMissingUsers() throws Exception {
+        when(userService.getAll(List.of(2, 1, 3)))
+                .thenReturn(new LookupResult<>(List.of(userList.get(1), testUser), List.of(3)));
+
+        mockMvc.perform(get("/users").param("ids", "2,1,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].id").value(2))
+                .andExpect(jsonPath("$.found[1].id").value(1))
+                .andExpect(jsonPath("$.missing[0]").value(3));
+    }
+
+    @Test
+    void lookupUsers_ReadsIdsFromBody() throws Exception {
+        when(userService.getAll(List.of(1)))
+                .thenReturn(new LookupResult<>(List.of(testUser), List.of()));
+
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].userName").value("Nicky Test User 1"));
+    }
+
+    @Test
+    void lookupUsers_WithoutIds_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/users/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getUserById_ReturnsUser() throws Exception {
         when(userService.get(1)).thenReturn(testUser);
@@ -73,14 +147,48 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.userName").value("Nicky Test User 1"));
     }
 
+    @Test
+    void getUserById_WithCurrentETag_ReturnsNotModified() throws Exception {
+        when(userService.get(1)).thenReturn(testUser);
+
+        String eTag = mockMvc.perform(get("/users/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/users/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        testUser.setUserName("Renamed User");
+        mockMvc.perform(get("/users/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     void getUserById_UserNotFound_ReturnsNotFound() throws Exception {
-        when(userService.get(999)).thenReturn(null);
+        when(userService.get(999)).thenThrow(new NoSuchElementException("User not found with id: 999"));
 
         mockMvc.perform(get("/users/999"))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getUserLoans_ReturnsLoanCount() throws Exception {
+        when(userService.getLoans(1)).thenReturn(new UserLoans(1, 2));
+
+        mockMvc.perform(get("/users/1/loans"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userId").value(1))
+                .andExpect(jsonPath("$.loans").value(2));
+    }
+
+    @Test
+    void getUserLoans_UserNotFound_ReturnsNotFound() throws Exception {
+        when(userService.getLoans(999)).thenThrow(new NoSuchElementException("User not found with id: 999"));
+
+        mockMvc.perform(get("/users/999/loans"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void createUser_WithValidData_ReturnsCreated() throws Exception {
         when(userService.create(any(User.class))).thenReturn(testUser);
@@ -0,0 +1,200 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyFilterTest {
+
+    private InMemoryIdempotencyStore store;
+
+    private IdempotencyFilter filter;
+
+    /**
+     * Number of requests that reached the controller.
+     */
+    private final AtomicInteger handled = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryIdempotencyStore(100, Duration.ofHours(1));
+        filter = new IdempotencyFilter(store);
+    }
+
+    @Test
+    void doFilter_RepeatedKey_ReplaysStoredResponse() throws Exception {
+        MockHttpServletResponse first = perform("POST", "/books", "key-1", 201);
+        MockHttpServletResponse second = perform("POST", "/books", "key-1", 201);
+
+        assertEquals(1, handled.get());
+        assertEquals(201, second.getStatus());
+        assertEquals("application/json", second.getContentType());
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("/books/1", second.getHeader("Location"));
+        assertEquals("\"0\"", second.getHeader("ETag"));
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED));
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    void doFilter_RepeatedKeyOfError_ReplaysError() throws Exception {
+        perform("PUT", "/books/borrow/1/3", "key-1", 400);
+        MockHttpServletResponse second = perform("PUT", "/books/borrow/1/3", "key-1", 400);
+
+        assertEquals(1, handled.get());
+        assertEquals(400, second.getStatus());
+        assertEquals("Book is already borrowed", second.getErrorMessage());
+    }
+
+    @Test
+    void doFilter_KeyUsedForAnotherRequest_ReturnsUnprocessableEntity() throws Exception {
+        perform("PUT", "/books/borrow/1/3", "key-1", 200);
+        MockHttpServletResponse second = perform("PUT", "/books/borrow/2/3", "key-1", 200);
+
+        assertEquals(1, handled.get());
+        assertEquals(422, second.getStatus());
+    }
+
+    @Test
+    void doFilter_KeyUsedForAnotherBody_ReturnsUnprocessableEntity() throws Exception {
+        perform("POST", "/books", "key-1", "{\"title\":\"Dune\"}", 201);
+        MockHttpServletResponse second = perform("POST", "/books", "key-1", "{\"title\":\"Emma\"}", 201);
+
+        assertEquals(1, handled.get());
+        assertEquals(422, second.getStatus());
+    }
+
+    @Test
+    void doFilter_RequestWithBody_PassesBodyToController() throws Exception {
+        MockHttpServletResponse first = perform("POST", "/books", "key-1", "{\"title\":\"Dune\"}", 201);
+        MockHttpServletResponse second = perform("POST", "/books", "key-1", "{\"title\":\"Dune\"}", 201);
+
+        assertEquals(1, handled.get());
+        assertEquals("{\"title\":\"Dune\"}", first.getHeader("X-Body"));
+        assertEquals(201, second.getStatus());
+        assertEquals("true", second.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    void doFilter_KeyOfRequestInProgress_ReturnsConflict() throws Exception {
+        store.claim("key-1", "POST /books");
+
+        MockHttpServletResponse response = perform("POST", "/books", "key-1", 201);
+
+        assertEquals(0, handled.get());
+        assertEquals(409, response.getStatus());
+    }
+
+    @Test
+    void doFilter_ServerError_IsNotStored() throws Exception {
+        perform("PUT", "/books/return/1", "key-1", 500);
+        MockHttpServletResponse second = perform("PUT", "/books/return/1", "key-1", 200);
+
+        assertEquals(2, handled.get());
+        assertEquals(200, second.getStatus());
+        assertNull(second.getHeader(IdempotencyFilter.REPLAYED));
+    }
+
+    @Test
+    void doFilter_ExceptionInController_ReleasesKey() throws Exception {
+        MockHttpServletRequest request = request("PUT", "/books/return/1", "key-1");
+        MockFilterChain failing = new MockFilterChain() {
+            @Override
+            public void doFilter(final ServletRequest req,
+                                 final ServletResponse res) throws ServletException {
+                throw new ServletException("Database is down");
+            }
+        };
+        assertThrows(ServletException.class,
+                () -> filter.doFilter(request, new MockHttpServletResponse(), failing));
+
+        perform("PUT", "/books/return/1", "key-1", 200);
+
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void doFilter_WithoutKey_HandlesEveryRequest() throws Exception {
+        perform("POST", "/books", null, 201);
+        perform("POST", "/books", null, 201);
+
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void doFilter_Get_IsNotMadeIdempotent() throws Exception {
+        perform("GET", "/books/1", "key-1", 200);
+        perform("GET", "/books/1", "key-1", 200);
+
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void doFilter_TooLongKey_ReturnsBadRequest() throws Exception {
+        String key = "k".repeat(IdempotencyFilter.MAX_KEY_LENGTH + 1);
+
+        MockHttpServletResponse response = perform("POST", "/books", key, 201);
+
+        assertEquals(0, handled.get());
+        assertEquals(400, response.getStatus());
+    }
+
+    private MockHttpServletResponse perform(final String method, final String uri,
+                                            final String key, final int status)
+            throws ServletException, IOException {
+        return perform(method, uri, key, null, status);
+    }
+
+    private MockHttpServletResponse perform(final String method, final String uri,
+                                            final String key, final String body, final int status)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(final HttpServletRequest req,
+                                   final HttpServletResponse res) throws IOException {
+                int count = handled.incrementAndGet();
+                if (status == 400) {
+                    res.sendError(status, "Book is already borrowed");
+                    return;
+                }
+                res.setStatus(status);
+                res.setHeader("Location", "/books/" + count);
+                res.setHeader("ETag", "\"0\"");
+                res.setHeader("X-Body", new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+                res.setContentType("application/json");
+                res.getWriter().write("{\"id\":" + count + "}");
+            }
+        });
+        MockHttpServletRequest request = request(method, uri, key);
+        if (body != null) {
+            request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        }
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(final String method, final String uri,
+                                                  final String key) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (key != null) {
+            request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        }
+        return request;
+    }
+}
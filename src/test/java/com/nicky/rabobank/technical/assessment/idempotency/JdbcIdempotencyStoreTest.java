@@ -0,0 +1,111 @@
+package com.nicky.rabobank.technical.assessment.idempotency;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcIdempotencyStoreTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    private DriverManagerDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:idempotency;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table idempotency_keys (idempotency_key varchar(255) PRIMARY KEY NOT NULL, "
+                + "fingerprint varchar(2048) NOT NULL, status INT, content_type varchar(255), headers varchar(8192), body BLOB, "
+                + "error BOOLEAN, error_message varchar(1024), created_at TIMESTAMP NOT NULL)");
+        store = storeAt(NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table idempotency_keys");
+    }
+
+    @Test
+    void claim_NewKey_ClaimsIt() {
+        assertTrue(store.claim("key-1", "POST /books").isEmpty());
+
+        Optional<IdempotencyRecord> record = store.claim("key-1", "POST /books");
+        assertTrue(record.isPresent());
+        assertTrue(record.get().isInProgress());
+        assertEquals("POST /books", record.get().fingerprint());
+    }
+
+    @Test
+    void claim_CompletedKey_ReturnsResponse() {
+        store.claim("key-1", "POST /books");
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        store.complete("key-1", new IdempotencyRecord("POST /books",
+                new IdempotencyRecord.Response(201, "application/json",
+                        Map.of("Location", List.of("/books/1"), "Link", List.of("</books>; rel=\"collection\"", "</users>; rel=\"related\"")),
+                        body, false, null)));
+
+        IdempotencyRecord record = store.claim("key-1", "POST /books").orElseThrow();
+
+        assertFalse(record.isInProgress());
+        assertEquals(201, record.response().status());
+        assertEquals("application/json", record.response().contentType());
+        assertArrayEquals(body, record.response().body());
+        assertEquals(List.of("/books/1"), record.response().headers().get("Location"));
+        assertEquals(List.of("</books>; rel=\"collection\"", "</users>; rel=\"related\""),
+                record.response().headers().get("Link"));
+        assertFalse(record.response().error());
+    }
+
+    @Test
+    void release_InProgressKey_FreesIt() {
+        store.claim("key-1", "POST /books");
+
+        store.release("key-1");
+
+        assertTrue(store.claim("key-1", "POST /books").isEmpty());
+    }
+
+    @Test
+    void release_CompletedKey_KeepsIt() {
+        store.claim("key-1", "PUT /books/return/1");
+        store.complete("key-1", new IdempotencyRecord("PUT /books/return/1",
+                new IdempotencyRecord.Response(400, null, Map.of(), new byte[0], true, "Book is not borrowed")));
+
+        store.release("key-1");
+
+        IdempotencyRecord record = store.claim("key-1", "PUT /books/return/1").orElseThrow();
+        assertTrue(record.response().error());
+        assertEquals("Book is not borrowed", record.response().errorMessage());
+    }
+
+    @Test
+    void claim_ExpiredKey_ClaimsItAgain() {
+        store.claim("key-1", "POST /books");
+
+        JdbcIdempotencyStore later = storeAt(NOW.plus(Duration.ofHours(2)));
+
+        assertTrue(later.claim("key-1", "POST /users").isEmpty());
+        assertEquals("POST /users", later.claim("key-1", "POST /users").orElseThrow().fingerprint());
+    }
+
+    private JdbcIdempotencyStore storeAt(final Instant instant) {
+        return new JdbcIdempotencyStore(dataSource, Duration.ofHours(1), Clock.fixed(instant, ZoneOffset.UTC));
+    }
+}
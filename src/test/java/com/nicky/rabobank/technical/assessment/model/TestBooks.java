@@ -0,0 +1,23 @@
+package com.nicky.rabobank.technical.assessment.model;
+
+public final class TestBooks {
+
+    private TestBooks() {
+    }
+
+    public static Book book(final int id, final String title, final String author) {
+        return book(id, title, author, null, 0);
+    }
+
+    public static Book book(final int id, final String title, final String author,
+                            final Integer borrowerId, final int version) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setAvailable(borrowerId == null);
+        book.setBorrowerId(borrowerId);
+        book.setVersion(version);
+        return book;
+    }
+}
@@ -0,0 +1,149 @@
+package com.nicky.rabobank.technical.assessment.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@code EXPLAIN} on the SQL of every {@link BookRepository} query
+ * against the schema of {@code schema.sql}, and fails when a query reads the
+ * whole books table without a good reason.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.nicky.rabobank.technical.assessment.repository."
+                + "BookRepositoryQueryPlanTest$SqlRecorder"})
+public class BookRepositoryQueryPlanTest {
+
+    /**
+     * Queries that are allowed to scan the books table, with the reason.
+     */
+    private static final Map<String, String> ALLOWED_SCANS = Map.of(
+            "findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase",
+            "substring match, only used until the search index is built",
+            "streamAllByOrderByIdAsc",
+            "reads the whole catalog",
+            "countBooksByAuthor",
+            "aggregates the whole catalog, only used until the statistics are built "
+                    + "and to reconcile them");
+
+    /**
+     * Calls of every query method, by method name. Every method declared in
+     * BookRepository must be listed here.
+     */
+    private static final Map<String, Consumer<BookRepository>> QUERIES = new LinkedHashMap<>();
+
+    static {
+        QUERIES.put("findById", repository -> repository.findById(1));
+        QUERIES.put("existsById", repository -> repository.existsById(1));
+        QUERIES.put("findAllById", repository -> repository.findAllById(List.of(1, 2)));
+        QUERIES.put("findByBorrowerId", repository -> repository.findByBorrowerId(1));
+        QUERIES.put("findByIdIn", repository -> repository.findByIdIn(List.of(1, 2)));
+        QUERIES.put("findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase",
+                repository -> repository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("a", "b"));
+        QUERIES.put("findByIdGreaterThanOrderByIdAsc",
+                repository -> repository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(10)));
+        QUERIES.put("findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc",
+                repository -> repository.findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(10)));
+        QUERIES.put("countByIsAvailableTrue", repository -> repository.countByIsAvailableTrue());
+        QUERIES.put("countByAuthorAndIsAvailableTrue", repository -> repository.countByAuthorAndIsAvailableTrue("a"));
+        QUERIES.put("countBooksByAuthor", repository -> repository.countBooksByAuthor(PageRequest.ofSize(10)));
+        QUERIES.put("countBooksByBorrower", repository -> repository.countBooksByBorrower(PageRequest.ofSize(10)));
+        QUERIES.put("streamAllByOrderByIdAsc", repository -> {
+            try (Stream<?> books = repository.streamAllByOrderByIdAsc()) {
+                books.count();
+            }
+        });
+        QUERIES.put("markBorrowed", repository -> repository.markBorrowed(1, 1));
+        QUERIES.put("lockIfBorrowed", repository -> repository.lockIfBorrowed(1));
+        QUERIES.put("markReturned", repository -> repository.markReturned(1));
+        QUERIES.put("updateDetails", repository -> repository.updateDetails(1, "a", "b"));
+        QUERIES.put("updateDetailsIfVersion", repository -> repository.updateDetailsIfVersion(1, "a", "b", 0));
+        QUERIES.put("removeById", repository -> repository.removeById(1));
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        SqlRecorder.STATEMENTS.clear();
+    }
+
+    static Stream<Arguments> queries() {
+        return QUERIES.entrySet().stream()
+                .map(query -> Arguments.of(query.getKey(), query.getValue()));
+    }
+
+    @Test
+    void everyDeclaredQueryMethod_IsCovered() {
+        Set<String> declared = Arrays.stream(BookRepository.class.getDeclaredMethods())
+                .filter(method -> !method.isSynthetic() && !method.isDefault())
+                .map(Method::getName)
+                .collect(Collectors.toSet());
+
+        declared.removeAll(QUERIES.keySet());
+        assertTrue(declared.isEmpty(), "Add a query plan test for " + declared);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("queries")
+    void query_UsesAnIndex(final String name, final Consumer<BookRepository> query) {
+        query.accept(bookRepository);
+
+        List<String> statements = SqlRecorder.STATEMENTS.stream()
+                .filter(sql -> sql.matches("(?is)\\s*(select|update|delete)\\b.*\\bbooks\\b.*"))
+                .toList();
+        assertFalse(statements.isEmpty(), name + " didn't query the books table");
+
+        for (String sql : statements) {
+            String plan = explain(sql);
+            if (!ALLOWED_SCANS.containsKey(name)) {
+                assertFalse(plan.contains(".tableScan"), name + " scans the books table:\n" + plan);
+            }
+        }
+    }
+
+    private String explain(final String sql) {
+        Object[] parameters = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, parameters));
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(final String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookAvailabilityIndexTest {
+
+    private BookAvailabilityIndex availabilityIndex;
+
+    @BeforeEach
+    void setUp() {
+        availabilityIndex = new BookAvailabilityIndex();
+        availabilityIndex.put(book(1, "Book 1", "Author"));
+        availabilityIndex.put(book(2, "Book 2", "Author", 7, 0));
+        availabilityIndex.put(book(3, "Book 3", "Author"));
+        availabilityIndex.put(book(5, "Book 5", "Author"));
+    }
+
+    @Test
+    void isReady_OnlyAfterMarkReady() {
+        assertFalse(availabilityIndex.isReady());
+
+        availabilityIndex.markReady();
+
+        assertTrue(availabilityIndex.isReady());
+    }
+
+    @Test
+    void isAvailable_ReflectsAvailability() {
+        assertTrue(availabilityIndex.isAvailable(1));
+        assertFalse(availabilityIndex.isAvailable(2));
+        assertFalse(availabilityIndex.isAvailable(4));
+        assertFalse(availabilityIndex.isAvailable(-1));
+    }
+
+    @Test
+    void count_CountsAvailableBooksOnce() {
+        availabilityIndex.put(book(1, "Book 1", "Author"));
+
+        assertEquals(3, availabilityIndex.count());
+    }
+
+    @Test
+    void availableAfter_PagesThroughAvailableBooksInIdOrder() {
+        assertEquals(List.of(1, 3), availabilityIndex.availableAfter(0, 2));
+        assertEquals(List.of(5), availabilityIndex.availableAfter(3, 2));
+        assertTrue(availabilityIndex.availableAfter(5, 2).isEmpty());
+        assertTrue(availabilityIndex.availableAfter(Integer.MAX_VALUE, 2).isEmpty());
+    }
+
+    @Test
+    void onBookChanged_AppliesBorrowsReturnsAndRemovals() {
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1, book(1, "Book 1", "Author", 7, 0)));
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.RETURNED, 2, book(2, "Book 2", "Author")));
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 5, null));
+
+        assertEquals(List.of(2, 3), availabilityIndex.availableAfter(0, 10));
+        assertEquals(2, availabilityIndex.count());
+    }
+
+    @Test
+    void countByAuthor_FollowsBorrowsUpdatesAndRemovals() {
+        availabilityIndex.put(book(6, "Book 6", "Someone"));
+        assertEquals(3, availabilityIndex.count("Author"));
+        assertEquals(1, availabilityIndex.count("Someone"));
+
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1,
+                book(1, "Book 1", "Author", 7, 1)));
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 3,
+                book(3, "Book 3", "Someone", null, 1)));
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 6, null));
+
+        assertEquals(1, availabilityIndex.count("Author"));
+        assertEquals(1, availabilityIndex.count("Someone"));
+        assertEquals(0, availabilityIndex.count("Nobody"));
+    }
+
+    @Test
+    void put_IgnoresOlderVersionsAndRemovedBooks() {
+        Book borrowed = book(1, "Book 1", "Author", 7, 1);
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1, borrowed));
+        availabilityIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 3, null));
+
+        // The initial build read both books before they changed
+        availabilityIndex.put(book(1, "Book 1", "Author"));
+        availabilityIndex.put(book(3, "Book 3", "Author"));
+
+        assertEquals(List.of(5), availabilityIndex.availableAfter(0, 10));
+        assertEquals(1, availabilityIndex.count());
+    }
+
+    @Test
+    void put_WithInvalidId_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> availabilityIndex.put(book(0, "Book 0", "Author")));
+    }
+}
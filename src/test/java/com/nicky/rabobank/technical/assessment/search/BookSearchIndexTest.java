@@ -0,0 +1,174 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        searchIndex = new BookSearchIndex();
+        searchIndex.put(book(1, "The Lord of the Rings", "J.R.R. Tolkien"));
+        searchIndex.put(book(2, "The Hobbit", "J.R.R. Tolkien"));
+        searchIndex.put(book(3, "Lord of the Flies", "William Golding"));
+        searchIndex.put(book(4, "Les Misérables", "Victor Hugo"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        searchIndex.destroy();
+    }
+
+    @Test
+    void isReady_OnlyAfterMarkReady() {
+        assertFalse(searchIndex.isReady());
+
+        searchIndex.markReady();
+
+        assertTrue(searchIndex.isReady());
+    }
+
+    @Test
+    void search_ByTitle_IsCaseInsensitive() {
+        List<Integer> result = searchIndex.search("LORD", "", 10);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(Arrays.asList(1, 3)));
+    }
+
+    @Test
+    void search_ByAuthor_MatchesTokenPrefixes() {
+        List<Integer> result = searchIndex.search("", "tolk", 10);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(Arrays.asList(1, 2)));
+    }
+
+    @Test
+    void search_ByTitleAndAuthor_RequiresBothToMatch() {
+        List<Integer> result = searchIndex.search("lord", "golding", 10);
+
+        assertEquals(Collections.singletonList(3), result);
+    }
+
+    @Test
+    void search_FoldsAccents() {
+        assertEquals(Collections.singletonList(4), searchIndex.search("miserables", "", 10));
+    }
+
+    @Test
+    void search_RanksExactTokensAbovePrefixes() {
+        searchIndex.put(book(5, "Hobbiton Maps", "Someone"));
+
+        List<Integer> result = searchIndex.search("hobbit", "", 10);
+
+        assertEquals(Arrays.asList(2, 5), result);
+    }
+
+    @Test
+    void search_RespectsLimit() {
+        assertEquals(1, searchIndex.search("the", "", 1).size());
+    }
+
+    @Test
+    void search_WithFilter_SkipsRejectedHitsAndStillFillsLimit() {
+        List<Integer> result = searchIndex.search("the", "", 2, id -> id != 1);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(Arrays.asList(2, 3)));
+        assertEquals(Collections.singletonList(3), searchIndex.search("lord", "", 1, id -> id == 3));
+    }
+
+    @Test
+    void search_WithoutTokens_ReturnsNothing() {
+        assertTrue(searchIndex.search("!!!", "", 10).isEmpty());
+    }
+
+    @Test
+    void search_WithTypos_FindsBooksWithinEditDistance() {
+        List<Integer> result = searchIndex.search("", "tolkein", 10);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(Arrays.asList(1, 2)));
+        assertEquals(Collections.singletonList(2), searchIndex.search("hobit", "", 10));
+    }
+
+    @Test
+    void search_WithTypos_RanksCloserTokensFirst() {
+        searchIndex.put(book(5, "The Hobbits", "Someone"));
+
+        assertEquals(Arrays.asList(2, 5), searchIndex.search("hobbot", "", 10));
+    }
+
+    @Test
+    void search_WithMatches_DoesNotTolerateTypos() {
+        searchIndex.put(book(5, "Lore of the Sea", "Someone"));
+
+        List<Integer> result = searchIndex.search("lord", "", 10);
+
+        assertEquals(2, result.size());
+        assertTrue(result.containsAll(Arrays.asList(1, 3)));
+    }
+
+    @Test
+    void search_WithoutMaxEdits_DoesNotTolerateTypos() throws IOException {
+        BookSearchIndex exactIndex = new BookSearchIndex(0);
+        try {
+            exactIndex.put(book(2, "The Hobbit", "J.R.R. Tolkien"));
+
+            assertTrue(exactIndex.search("hobit", "", 10).isEmpty());
+        } finally {
+            exactIndex.destroy();
+        }
+    }
+
+    @Test
+    void constructor_WithTooManyEdits_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new BookSearchIndex(3));
+    }
+
+    @Test
+    void onBookChanged_AppliesUpdatesAndRemovals() {
+        searchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 2,
+                book(2, "There and Back Again", "J.R.R. Tolkien")));
+        searchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 3, null));
+
+        assertTrue(searchIndex.search("hobbit", "", 10).isEmpty());
+        assertEquals(Collections.singletonList(2), searchIndex.search("back again", "", 10));
+        assertEquals(Collections.singletonList(1), searchIndex.search("lord", "", 10));
+    }
+
+    @Test
+    void put_IgnoresOlderVersionsAndRemovedBooks() {
+        searchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 2,
+                book(2, "There and Back Again", "J.R.R. Tolkien", null, 1)));
+        searchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 3, null));
+
+        // The initial build read both books before they changed
+        searchIndex.put(book(2, "The Hobbit", "J.R.R. Tolkien"));
+        searchIndex.put(book(3, "Lord of the Flies", "William Golding"));
+
+        assertTrue(searchIndex.search("hobbit", "", 10).isEmpty());
+        assertEquals(Collections.singletonList(1), searchIndex.search("lord", "", 10));
+    }
+
+    @Test
+    void onBookChanged_IgnoresBorrowsAndReturns() {
+        searchIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 2,
+                book(2, "There and Back Again", "J.R.R. Tolkien")));
+
+        assertTrue(searchIndex.search("back again", "", 10).isEmpty());
+    }
+}
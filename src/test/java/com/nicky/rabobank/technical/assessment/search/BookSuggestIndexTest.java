@@ -0,0 +1,120 @@
+package com.nicky.rabobank.technical.assessment.search;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSuggestIndexTest {
+
+    private BookSuggestIndex suggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        suggestIndex = new BookSuggestIndex();
+        suggestIndex.put(book(1, "The Lord of the Rings", "J.R.R. Tolkien"));
+        suggestIndex.put(book(2, "The Hobbit", "J.R.R. Tolkien"));
+        suggestIndex.put(book(3, "Lord of the Flies", "William Golding"));
+        suggestIndex.put(book(4, "Les Misérables", "Victor Hugo"));
+    }
+
+    @Test
+    void suggest_MatchesStartOfAnyWord() {
+        List<String> result = suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "lor", 10);
+
+        assertEquals(List.of("Lord of the Flies", "The Lord of the Rings"), result);
+    }
+
+    @Test
+    void suggest_IgnoresCaseAccentsAndPunctuation() {
+        assertEquals(List.of("Les Misérables"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "MISERA", 10));
+        assertEquals(List.of("J.R.R. Tolkien"),
+                suggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "j.r.r", 10));
+    }
+
+    @Test
+    void suggest_ReturnsDistinctValues() {
+        // "the" starts two words of the same title, and two books share an author
+        assertEquals(List.of("Lord of the Flies", "The Hobbit", "The Lord of the Rings"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "the", 10));
+        assertEquals(List.of("J.R.R. Tolkien"),
+                suggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "tolk", 10));
+    }
+
+    @Test
+    void suggest_MatchesPrefixEqualToAWholeWord() {
+        suggestIndex.put(book(5, "Dark Lord", "Someone"));
+
+        assertEquals(List.of("Dark Lord", "Lord of the Flies", "The Lord of the Rings"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "lord", 10));
+    }
+
+    @Test
+    void suggest_StopsAtLimit() {
+        assertEquals(1, suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "the", 1).size());
+    }
+
+    @Test
+    void suggest_WithoutWords_ReturnsNothing() {
+        assertTrue(suggestIndex.suggest(BookSuggestIndex.Field.TITLE, " . ", 10).isEmpty());
+        assertTrue(suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "xyz", 10).isEmpty());
+    }
+
+    @Test
+    void onBookChanged_Update_ReplacesOldValues() {
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 3,
+                book(3, "Pincher Martin", "William Golding")));
+
+        assertEquals(List.of("The Lord of the Rings"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "lord", 10));
+        assertEquals(List.of("Pincher Martin"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "mart", 10));
+        assertEquals(List.of("William Golding"),
+                suggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "gold", 10));
+    }
+
+    @Test
+    void onBookChanged_Remove_KeepsValuesOfOtherBooks() {
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 2, null));
+
+        assertTrue(suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "hobbit", 10).isEmpty());
+        assertEquals(List.of("J.R.R. Tolkien"),
+                suggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "tolk", 10));
+
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 1, null));
+
+        assertTrue(suggestIndex.suggest(BookSuggestIndex.Field.AUTHOR, "tolk", 10).isEmpty());
+    }
+
+    @Test
+    void onBookChanged_Borrow_IsIgnored() {
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 2,
+                book(2, "Something Else", "J.R.R. Tolkien")));
+
+        assertEquals(List.of("The Hobbit"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "hob", 10));
+    }
+
+    @Test
+    void put_IgnoresOlderVersionsAndRemovedBooks() {
+        Book updated = book(3, "Pincher Martin", "William Golding", null, 1);
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 3, updated));
+        suggestIndex.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 2, null));
+
+        // The initial build read both books before they changed
+        suggestIndex.put(book(3, "Lord of the Flies", "William Golding"));
+        suggestIndex.put(book(2, "The Hobbit", "J.R.R. Tolkien"));
+
+        assertEquals(List.of("Pincher Martin"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "mart", 10));
+        assertEquals(List.of("The Lord of the Rings"),
+                suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "lord", 10));
+        assertTrue(suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "hobbit", 10).isEmpty());
+    }
+}
@@ -0,0 +1,142 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookEventFeedTest {
+
+    /**
+     * Tasks submitted by the feed, run on demand by the tests.
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private BookEventFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        feed = new BookEventFeed(3, tasks::add);
+    }
+
+    @Test
+    void onBookChanged_SendsEventsToMatchingSubscribersOnly() {
+        RecordingSink everything = new RecordingSink();
+        RecordingSink firstBook = new RecordingSink();
+        RecordingSink tolkien = new RecordingSink();
+        RecordingSink otherBook = new RecordingSink();
+        feed.subscribe(List.of(), null, everything);
+        feed.subscribe(List.of(1), null, firstBook);
+        feed.subscribe(List.of(), "j.r.r. TOLKIEN", tolkien);
+        feed.subscribe(List.of(2), null, otherBook);
+
+        feed.onBookChanged(event(BookChangedEvent.Type.BORROWED, 1, "J.R.R. Tolkien"));
+        runTasks();
+
+        assertEquals(List.of("BORROWED 1"), everything.received);
+        assertEquals(List.of("BORROWED 1"), firstBook.received);
+        assertEquals(List.of("BORROWED 1"), tolkien.received);
+        assertTrue(otherBook.received.isEmpty());
+    }
+
+    @Test
+    void onBookChanged_WithoutSubscribers_StartsNoTask() {
+        feed.onBookChanged(event(BookChangedEvent.Type.RETURNED, 1, "Frank Herbert"));
+
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void onBookChanged_WhenBufferIsFull_DropsOldestEvents() {
+        RecordingSink sink = new RecordingSink();
+        feed.subscribe(List.of(), null, sink);
+
+        for (int id = 1; id <= 5; id++) {
+            feed.onBookChanged(event(BookChangedEvent.Type.UPDATED, id, "Frank Herbert"));
+        }
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertEquals(List.of("dropped 2", "UPDATED 3", "UPDATED 4", "UPDATED 5"), sink.received);
+    }
+
+    @Test
+    void cancel_StopsSendingEvents() {
+        RecordingSink sink = new RecordingSink();
+        BookEventFeed.Subscription subscription = feed.subscribe(List.of(1), null, sink);
+
+        feed.onBookChanged(event(BookChangedEvent.Type.BORROWED, 1, "Frank Herbert"));
+        subscription.cancel();
+        runTasks();
+        feed.onBookChanged(event(BookChangedEvent.Type.RETURNED, 1, "Frank Herbert"));
+
+        assertTrue(sink.received.isEmpty());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void send_WhenSubscriberIsGone_CancelsSubscription() {
+        RecordingSink sink = new RecordingSink();
+        sink.fail = true;
+        feed.subscribe(List.of(), null, sink);
+
+        feed.onBookChanged(event(BookChangedEvent.Type.BORROWED, 1, "Frank Herbert"));
+        runTasks();
+        feed.onBookChanged(event(BookChangedEvent.Type.RETURNED, 1, "Frank Herbert"));
+
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void subscribe_ToBooksAndAuthor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            feed.subscribe(List.of(1), "Frank Herbert", new RecordingSink());
+        });
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static BookChangedEvent event(final BookChangedEvent.Type type, final int id,
+                                          final String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        book.setAuthor(author);
+        return new BookChangedEvent(type, id, book);
+    }
+
+    /**
+     * Sink recording what it receives.
+     */
+    private static final class RecordingSink implements BookEventFeed.Sink {
+
+        private final List<String> received = new ArrayList<>();
+
+        private boolean fail;
+
+        @Override
+        public void send(final BookChangedEvent event) throws IOException {
+            if (fail) {
+                throw new IOException("Broken pipe");
+            }
+            received.add(event.type() + " " + event.bookId());
+        }
+
+        @Override
+        public void dropped(final long count) {
+            received.add("dropped " + count);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookExportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private BookExportService bookExportService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:export;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table books (id INT PRIMARY KEY, title varchar(255) NOT NULL, "
+                + "author varchar(255) NOT NULL, is_available BOOLEAN NOT NULL, borrower_id INT, "
+                + "version INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.update("insert into books values (2, 'Dune, Part \"One\"', 'Frank Herbert', false, 7, 3)");
+        jdbcTemplate.update("insert into books values (1, 'The Hobbit', 'J.R.R. Tolkien', true, null, 0)");
+
+        bookExportService = new BookExportService(dataSource, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table books");
+    }
+
+    @Test
+    void export_Ndjson_WritesOneBookPerLineOrderedById() throws IOException {
+        String export = export(BookExportService.Format.NDJSON);
+
+        assertEquals("{\"id\":1,\"title\":\"The Hobbit\",\"author\":\"J.R.R. Tolkien\","
+                + "\"available\":true,\"borrowerId\":null,\"version\":0}\n"
+                + "{\"id\":2,\"title\":\"Dune, Part \\\"One\\\"\",\"author\":\"Frank Herbert\","
+                + "\"available\":false,\"borrowerId\":7,\"version\":3}\n", export);
+    }
+
+    @Test
+    void export_Csv_WritesHeaderAndQuotesFieldsWhenNeeded() throws IOException {
+        String export = export(BookExportService.Format.CSV);
+
+        assertEquals("id,title,author,available,borrowerId,version\r\n"
+                + "1,The Hobbit,J.R.R. Tolkien,true,,0\r\n"
+                + "2,\"Dune, Part \"\"One\"\"\",Frank Herbert,false,7,3\r\n", export);
+    }
+
+    @Test
+    void export_EmptyCatalog_WritesNoBooks() throws IOException {
+        jdbcTemplate.update("delete from books");
+
+        assertEquals("", export(BookExportService.Format.NDJSON));
+        assertEquals("id,title,author,available,borrowerId,version\r\n",
+                export(BookExportService.Format.CSV));
+    }
+
+    private String export(final BookExportService.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bookExportService.export(format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
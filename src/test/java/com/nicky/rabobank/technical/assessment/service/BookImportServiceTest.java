@@ -0,0 +1,147 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookImportServiceTest {
+
+    @Mock
+    private BookService bookService;
+
+    private ValidatorFactory validatorFactory;
+
+    private BookImportService bookImportService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        bookImportService = new BookImportService(bookService, validatorFactory.getValidator(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Test
+    void importBooks_JsonArray_CreatesBooksInBatches() throws IOException {
+        List<List<Book>> batches = captureBatches();
+
+        BookImportResult result = bookImportService.importBooks(read("["
+                + "{\"title\":\"A\",\"author\":\"X\"},"
+                + "{\"title\":\"B\",\"author\":\"Y\"},"
+                + "{\"title\":\"C\",\"author\":\"Z\"}]"));
+
+        assertEquals(new BookImportResult(3, 0, List.of()), result);
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("C", batches.get(1).get(0).getTitle());
+    }
+
+    @Test
+    void importBooks_Ndjson_CreatesBooks() throws IOException {
+        List<List<Book>> batches = captureBatches();
+
+        BookImportResult result = bookImportService.importBooks(read(
+                "{\"title\":\"A\",\"author\":\"X\"}\n{\"title\":\"B\",\"author\":\"Y\"}\n"));
+
+        assertEquals(2, result.imported());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void importBooks_InvalidItems_AreSkippedAndReported() throws IOException {
+        captureBatches();
+
+        BookImportResult result = bookImportService.importBooks(read(
+                "{\"title\":\"A\",\"author\":\"X\"}\n{\"author\":\"Y\"}\nnull\n{\"title\":\"C\",\"author\":\"Z\"}\n"));
+
+        assertEquals(2, result.imported());
+        assertEquals(2, result.failed());
+        assertEquals(List.of(
+                new BookImportResult.ItemError(1, "Title cannot be null"),
+                new BookImportResult.ItemError(2, "Book cannot be null")), result.errors());
+    }
+
+    @Test
+    void importBooks_ItemsOfWrongType_AreSkippedAndReported() throws IOException {
+        captureBatches();
+
+        BookImportResult result = bookImportService.importBooks(read(
+                "[null, {\"title\":{\"nested\":[1]},\"author\":\"X\"}, {\"title\":\"C\",\"author\":\"Z\"}]"));
+
+        assertEquals(1, result.imported());
+        assertEquals(2, result.failed());
+        assertEquals(new BookImportResult.ItemError(0, "Book cannot be null"), result.errors().get(0));
+        assertEquals(1, result.errors().get(1).index());
+        assertTrue(result.errors().get(1).message().startsWith("Invalid book"));
+    }
+
+    @Test
+    void importBooks_MalformedJson_StopsAfterCreatingEarlierItems() throws IOException {
+        List<List<Book>> batches = captureBatches();
+
+        BookImportResult result = bookImportService.importBooks(read(
+                "{\"title\":\"A\",\"author\":\"X\"}\n{\"title\":\n"));
+
+        assertEquals(1, result.imported());
+        assertEquals(1, result.failed());
+        assertEquals(1, result.errors().get(0).index());
+        assertTrue(result.errors().get(0).message().startsWith("Malformed JSON"));
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void importBooks_EmptyBody_CreatesNothing() throws IOException {
+        BookImportResult result = bookImportService.importBooks(read(""));
+
+        assertEquals(new BookImportResult(0, 0, List.of()), result);
+        verify(bookService, never()).createAll(anyList());
+    }
+
+    @Test
+    void importBooks_ReportsAtMostMaxErrors() throws IOException {
+        BookImportResult result = bookImportService.importBooks(read(
+                "{}\n".repeat(BookImportService.MAX_REPORTED_ERRORS + 5)));
+
+        assertEquals(BookImportService.MAX_REPORTED_ERRORS + 5, result.failed());
+        assertEquals(BookImportService.MAX_REPORTED_ERRORS, result.errors().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Book>> captureBatches() {
+        List<List<Book>> batches = new ArrayList<>();
+        ArgumentCaptor<List<Book>> captor = ArgumentCaptor.forClass(List.class);
+        when(bookService.createAll(captor.capture())).thenAnswer(invocation -> {
+            List<Book> batch = invocation.getArgument(0);
+            batches.add(new ArrayList<>(batch));
+            return batch;
+        });
+        return batches;
+    }
+
+    private MappingIterator<Book> read(final String body) throws IOException {
+        return objectMapper.readerFor(Book.class).readValues(body);
+    }
+}
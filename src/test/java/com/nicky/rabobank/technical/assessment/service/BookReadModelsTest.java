@@ -0,0 +1,99 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.catalog.InMemoryBookCatalog;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.search.BookAvailabilityIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSearchIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.stats.BookStatistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookReadModelsTest {
+
+    @Mock
+    private ObjectProvider<InMemoryBookCatalog> catalogProvider;
+
+    @Mock
+    private ObjectProvider<CacheManager> cacheManager;
+
+    @Mock
+    private BookService bookService;
+
+    private BookSearchIndex searchIndex;
+
+    private BookSuggestIndex suggestIndex;
+
+    private InMemoryBookCatalog catalog;
+
+    private BookReadModels readModels;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        searchIndex = new BookSearchIndex();
+        suggestIndex = new BookSuggestIndex();
+        catalog = new InMemoryBookCatalog();
+        readModels = new BookReadModels(searchIndex, suggestIndex, new BookAvailabilityIndex(), new BookStatistics(),
+                catalogProvider, cacheManager);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        searchIndex.destroy();
+    }
+
+    @Test
+    void readModels_BeforeBuild_AreNotHandedOut() {
+        when(catalogProvider.getIfAvailable()).thenReturn(catalog);
+
+        assertNull(readModels.searchIndex());
+        assertNull(readModels.availabilityIndex());
+        assertNull(readModels.statistics());
+        assertNull(readModels.catalog());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void build_FillsEveryStructureFromOnePass() {
+        when(catalogProvider.getIfAvailable()).thenReturn(catalog);
+        doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(book(1, "The Hobbit", "J.R.R. Tolkien"));
+            consumer.accept(book(2, "Lord of the Flies", "William Golding", 7, 0));
+            return null;
+        }).when(bookService).streamAll(any(Consumer.class));
+
+        new BookReadModelsInitializer(bookService, readModels).build();
+
+        verify(bookService, times(1)).streamAll(any());
+        assertEquals(List.of(1), readModels.searchIndex().search("hobbit", "", 10));
+        assertEquals(List.of("The Hobbit"), suggestIndex.suggest(BookSuggestIndex.Field.TITLE, "hob", 10));
+        assertEquals(1, readModels.availabilityIndex().count());
+        assertEquals(2, readModels.statistics().stats(10, 10).books());
+        assertEquals(2, readModels.catalog().findPage(0, 10).size());
+    }
+
+    @Test
+    void build_WithoutInMemoryCatalog_BuildsTheOtherStructures() {
+        readModels.put(book(1, "The Hobbit", "J.R.R. Tolkien"));
+        readModels.markReady();
+
+        assertNull(readModels.catalog());
+        assertEquals(1, readModels.availabilityIndex().count());
+    }
+}
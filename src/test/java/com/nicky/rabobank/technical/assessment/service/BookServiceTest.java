@@ -1,47 +1,105 @@
 package com.nicky.rabobank.technical.assessment.service;
 
+import com.nicky.rabobank.technical.assessment.catalog.InMemoryBookCatalog;
+import com.nicky.rabobank.technical.assessment.model.AuthorStats;
 import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BookView;
+import com.nicky.rabobank.technical.assessment.model.BorrowerStats;
+import com.nicky.rabobank.technical.assessment.model.Hold;
 import com.nicky.rabobank.technical.assessment.model.User;
 import com.nicky.rabobank.technical.assessment.repository.BookRepository;
+import com.nicky.rabobank.technical.assessment.repository.HoldRepository;
 import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import com.nicky.rabobank.technical.assessment.search.BookAvailabilityIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSearchIndex;
+import com.nicky.rabobank.technical.assessment.search.BookSuggestIndex;
+import com.nicky.rabobank.technical.assessment.stats.BookStatistics;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.NoSuchElementException;
+import java.util.function.IntPredicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class BookServiceTest {
 
+    private static final int MAX_LOANS = 2;
+
     @Mock
     private BookRepository bookRepository;
 
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
+    @Mock
+    private HoldRepository holdRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private BookSearchIndex searchIndex;
+
+    @Mock
+    private BookSuggestIndex suggestIndex;
+
+    @Mock
+    private BookAvailabilityIndex availabilityIndex;
+
+    @Mock
+    private BookStatistics statistics;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<CacheManager> cacheManager;
+
+    @Mock
+    private ObjectProvider<InMemoryBookCatalog> catalog;
+
+    private BookReadModels readModels;
+
     private BookService bookService;
 
     private Book firstTestBook;
     private Book secondTestBook;
     private List<Book> bookList;
+    private BookView firstView;
+    private BookView secondView;
+    private List<BookView> viewList;
     private User testUser;
 
     @BeforeEach
     void setUp() {
+        readModels = new BookReadModels(searchIndex, suggestIndex, availabilityIndex, statistics, catalog,
+                cacheManager);
+        bookService = new BookService(bookRepository, userRepository, holdRepository, entityManager, readModels,
+                eventPublisher, MAX_LOANS);
+
         firstTestBook = new Book();
         firstTestBook.setId(1);
         firstTestBook.setTitle("Test Book");
@@ -54,18 +112,147 @@ public class BookServiceTest {
 
         bookList = Arrays.asList(firstTestBook, secondTestBook);
 
+        firstView = BookView.of(firstTestBook);
+        secondView = BookView.of(secondTestBook);
+        viewList = Arrays.asList(firstView, secondView);
+
         testUser = new User();
         testUser.setId(1);
         testUser.setUserName("Test User");
     }
 
     @Test
-    void getAll_ReturnsAllBooks() {
-        when(bookRepository.findAll()).thenReturn(bookList);
+    void getPage_ReturnsBooksAfterCursor() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(2)))
+                .thenReturn(viewList);
+
+        List<BookView> result = bookService.getPage(0, 2);
+
+        assertEquals(viewList, result);
+    }
+
+    @Test
+    void getAvailablePage_WhenIndexIsNotReady_ReadsFromDatabase() {
+        when(bookRepository.findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(2)))
+                .thenReturn(viewList);
+
+        List<BookView> result = bookService.getAvailablePage(0, 2);
+
+        assertEquals(viewList, result);
+        verify(availabilityIndex, never()).availableAfter(anyInt(), anyInt());
+    }
+
+    @Test
+    void getAvailablePage_WhenIndexIsReady_ReadsBooksOfBitmapInIdOrder() {
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.availableAfter(0, 10)).thenReturn(Arrays.asList(1, 2));
+        when(availabilityIndex.availableAfter(2, 8)).thenReturn(Collections.emptyList());
+        when(bookRepository.findByIdIn(Arrays.asList(1, 2))).thenReturn(Arrays.asList(secondView, firstView));
+
+        List<BookView> result = bookService.getAvailablePage(0, 10);
+
+        assertEquals(viewList, result);
+        verify(bookRepository, never()).findByIsAvailableTrueAndIdGreaterThanOrderByIdAsc(any(), any());
+    }
+
+    @Test
+    void getAvailablePage_WhenBitmapIsBehind_SkipsBorrowedBooksAndFillsPage() {
+        secondTestBook.setAvailable(false);
+        Book thirdTestBook = new Book();
+        thirdTestBook.setId(3);
+        thirdTestBook.setTitle("Third Book");
+        thirdTestBook.setAuthor("Test Author");
+        BookView thirdView = BookView.of(thirdTestBook);
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.availableAfter(0, 2)).thenReturn(Arrays.asList(1, 2));
+        when(availabilityIndex.availableAfter(2, 1)).thenReturn(Collections.singletonList(3));
+        when(bookRepository.findByIdIn(Arrays.asList(1, 2)))
+                .thenReturn(Arrays.asList(firstView, BookView.of(secondTestBook)));
+        when(bookRepository.findByIdIn(Collections.singletonList(3))).thenReturn(Collections.singletonList(thirdView));
+
+        List<BookView> result = bookService.getAvailablePage(0, 2);
+
+        assertEquals(Arrays.asList(firstView, thirdView), result);
+    }
+
+    @Test
+    void getAvailablePage_WhenBitmapHasNoMoreBooks_ReturnsEmptyPage() {
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.availableAfter(2, 10)).thenReturn(Collections.emptyList());
+
+        List<BookView> result = bookService.getAvailablePage(2, 10);
+
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findByIdIn(any());
+    }
+
+    @Test
+    void countAvailable_WhenIndexIsReady_CountsBitmap() {
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.count()).thenReturn(7L);
+
+        assertEquals(7L, bookService.countAvailable());
+        verify(bookRepository, never()).countByIsAvailableTrue();
+    }
+
+    @Test
+    void countAvailable_WhenIndexIsNotReady_CountsInDatabase() {
+        when(bookRepository.countByIsAvailableTrue()).thenReturn(5L);
+
+        assertEquals(5L, bookService.countAvailable());
+    }
+
+    @Test
+    void countAvailableByAuthor_WhenIndexIsReady_CountsBitmap() {
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.count("Test Author")).thenReturn(3L);
+
+        assertEquals(3L, bookService.countAvailable("Test Author"));
+        verify(bookRepository, never()).countByAuthorAndIsAvailableTrue(any());
+    }
+
+    @Test
+    void countAvailableByAuthor_WhenIndexIsNotReady_CountsInDatabase() {
+        when(bookRepository.countByAuthorAndIsAvailableTrue("Test Author")).thenReturn(2L);
+
+        assertEquals(2L, bookService.countAvailable("Test Author"));
+    }
+
+    @Test
+    void getStats_WhenCountersAreReady_ReadsCounters() {
+        BookStats stats = new BookStats(2, 1, 1, List.of(), List.of());
+        when(statistics.isReady()).thenReturn(true);
+        when(statistics.stats(10, 5)).thenReturn(stats);
+
+        assertSame(stats, bookService.getStats(10, 5));
+        verify(bookRepository, never()).countBooksByAuthor(any());
+    }
+
+    @Test
+    void getStats_WhenCountersAreNotReady_AggregatesDatabase() {
+        List<AuthorStats> authors = List.of(new AuthorStats("Test Author", 3, 2, 1));
+        List<BorrowerStats> borrowers = List.of(new BorrowerStats(1, 1));
+        when(bookRepository.count()).thenReturn(3L);
+        when(bookRepository.countByIsAvailableTrue()).thenReturn(2L);
+        when(bookRepository.countBooksByAuthor(PageRequest.ofSize(10))).thenReturn(authors);
+        when(bookRepository.countBooksByBorrower(PageRequest.ofSize(5))).thenReturn(borrowers);
+
+        BookStats result = bookService.getStats(10, 5);
+
+        assertEquals(new BookStats(3, 2, 1, authors, borrowers), result);
+        verify(statistics, never()).stats(anyInt(), anyInt());
+    }
+
+    @Test
+    void streamAll_PassesAndDetachesEveryBook() {
+        when(bookRepository.streamAllByOrderByIdAsc()).thenReturn(bookList.stream());
+        List<Book> streamed = new ArrayList<>();
 
-        Iterable<Book> result = bookService.getAll();
+        bookService.streamAll(streamed::add);
 
-        assertEquals(bookList, result);
+        assertEquals(bookList, streamed);
+        verify(entityManager).detach(firstTestBook);
+        verify(entityManager).detach(secondTestBook);
     }
 
     @Test
@@ -89,15 +276,104 @@ public class BookServiceTest {
         verify(bookRepository).findById(999);
     }
 
+    @Test
+    void getAllByIds_ReturnsBooksInRequestOrderAndMissingIds() {
+        when(bookRepository.findAllById(List.of(2, 99, 1))).thenReturn(bookList);
+
+        LookupResult<Book> result = bookService.getAll(List.of(2, 99, 1, 2));
+
+        assertEquals(List.of(secondTestBook, firstTestBook), result.found());
+        assertEquals(List.of(99), result.missing());
+        verify(bookRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void get_WhenCatalogIsReady_ReadsFromCatalog() {
+        readyCatalog();
+
+        Book result = bookService.get(1);
+
+        assertEquals(1, result.getId());
+        assertEquals("Test Book", result.getTitle());
+        assertEquals("Test Author", result.getAuthor());
+        assertThrows(NoSuchElementException.class, () -> bookService.get(999));
+        verify(bookRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void get_WhenCatalogIsNotReady_ReadsFromDatabase() {
+        InMemoryBookCatalog inMemory = new InMemoryBookCatalog();
+        when(catalog.getIfAvailable()).thenReturn(inMemory);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        assertEquals(firstTestBook, bookService.get(1));
+    }
+
+    @Test
+    void getPage_WhenCatalogIsReady_ReadsFromCatalog() {
+        readyCatalog();
+
+        List<BookView> result = bookService.getPage(1, 10);
+
+        assertEquals(1, result.size());
+        assertEquals(2, result.getFirst().id());
+        assertEquals("Another Test Book", result.getFirst().title());
+        verify(bookRepository, never()).findByIdGreaterThanOrderByIdAsc(anyInt(), any());
+    }
+
+    @Test
+    void getAllByIds_WhenCatalogIsReady_ReadsFromCatalog() {
+        readyCatalog();
+
+        LookupResult<Book> result = bookService.getAll(List.of(2, 99));
+
+        assertEquals(1, result.found().size());
+        assertEquals(2, result.found().getFirst().getId());
+        assertEquals(List.of(99), result.missing());
+        verify(bookRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getBooksByUserId_WhenCatalogIsReady_ReadsFromCatalog() {
+        InMemoryBookCatalog inMemory = readyCatalog();
+        firstTestBook.setAvailable(false);
+        firstTestBook.setBorrowerId(1);
+        firstTestBook.setVersion(1);
+        inMemory.put(firstTestBook);
+
+        List<BookView> result = bookService.getBooksByUserId(1);
+
+        assertEquals(List.of(BookView.of(firstTestBook)), result);
+        verify(bookRepository, never()).findByBorrowerId(anyInt());
+    }
+
+    @Test
+    void borrowBook_WhenCatalogIsReady_ReadsBorrowedBookFromDatabase() {
+        when(userRepository.incrementLoanCount(1, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.markBorrowed(1, 1)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        assertEquals(firstTestBook, bookService.borrowBook(1, 1));
+        verify(catalog, never()).getIfAvailable();
+    }
+
     @Test
     void getBooksByUserId_WhenUserExists_ReturnsBooks() {
-        when(userRepository.existsById(1)).thenReturn(true);
-        when(bookRepository.findByBorrowerId(1)).thenReturn(Collections.singletonList(firstTestBook));
+        when(bookRepository.findByBorrowerId(1)).thenReturn(Collections.singletonList(firstView));
 
-        List<Book> result = bookService.getBooksByUserId(1);
+        List<BookView> result = bookService.getBooksByUserId(1);
 
         assertEquals(1, result.size());
-        assertEquals(firstTestBook, result.getFirst());
+        assertEquals(firstView, result.getFirst());
+        verify(userRepository, never()).existsById(anyInt());
+    }
+
+    @Test
+    void getBooksByUserId_WhenUserHasNoBooks_ReturnsEmptyList() {
+        when(bookRepository.findByBorrowerId(1)).thenReturn(Collections.emptyList());
+        when(userRepository.existsById(1)).thenReturn(true);
+
+        assertTrue(bookService.getBooksByUserId(1).isEmpty());
     }
 
     @Test
@@ -112,43 +388,109 @@ public class BookServiceTest {
     @Test
     void searchBooks_WithTitleAndAuthor_ReturnsMatchingBooks() {
         when(bookRepository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("Test Book", "Test Author"))
-                .thenReturn(Collections.singletonList(firstTestBook));
+                .thenReturn(Collections.singletonList(firstView));
 
-        List<Book> result = bookService.searchBooks("Test Book", "Test Author");
+        List<BookView> result = bookService.searchBooks("Test Book", "Test Author", 100);
 
         assertEquals(1, result.size());
-        assertEquals(firstTestBook, result.getFirst());
+        assertEquals(firstView, result.getFirst());
     }
 
     @Test
     void searchBooks_WithTitle_ReturnsMatchingBooks() {
         when(bookRepository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("Test Book", ""))
-                .thenReturn(Arrays.asList(firstTestBook, secondTestBook));
+                .thenReturn(Arrays.asList(firstView, secondView));
 
-        List<Book> result = bookService.searchBooks("Test Book", null);
+        List<BookView> result = bookService.searchBooks("Test Book", null, 100);
 
         assertEquals(2, result.size());
-        assertTrue(result.contains(firstTestBook));
-        assertTrue(result.contains(secondTestBook));
+        assertTrue(result.contains(firstView));
+        assertTrue(result.contains(secondView));
         verify(bookRepository).findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("Test Book", "");
     }
 
     @Test
     void searchBooks_WithAuthor_ReturnsMatchingBooks() {
         when(bookRepository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("", "Test Author"))
-                .thenReturn(Collections.singletonList(firstTestBook));
+                .thenReturn(Collections.singletonList(firstView));
 
-        List<Book> result = bookService.searchBooks(null, "Test Author");
+        List<BookView> result = bookService.searchBooks(null, "Test Author", 100);
 
         assertEquals(1, result.size());
-        assertEquals(firstTestBook, result.getFirst());
+        assertEquals(firstView, result.getFirst());
         verify(bookRepository).findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("", "Test Author");
     }
 
+    @Test
+    void searchBooks_WhenIndexIsReady_ReturnsBooksInRelevanceOrder() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(eq("Test"), eq(""), anyInt(), any(IntPredicate.class)))
+                .thenReturn(Arrays.asList(2, 1), Collections.emptyList());
+        when(bookRepository.findByIdIn(Arrays.asList(2, 1))).thenReturn(viewList);
+
+        List<BookView> result = bookService.searchBooks("Test", null, 10);
+
+        assertEquals(Arrays.asList(secondView, firstView), result);
+        verify(bookRepository, never()).findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase(any(), any());
+    }
+
+    @Test
+    void searchBooks_WhenIndexIsReady_ReplacesBooksRemovedMeanwhile() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(eq(""), eq("Test Author"), anyInt(), any(IntPredicate.class)))
+                .thenReturn(Arrays.asList(1, 3), Collections.singletonList(2));
+        when(bookRepository.findByIdIn(Arrays.asList(1, 3))).thenReturn(Collections.singletonList(firstView));
+        when(bookRepository.findByIdIn(Collections.singletonList(2))).thenReturn(Collections.singletonList(secondView));
+
+        List<BookView> result = bookService.searchBooks(null, "Test Author", 2);
+
+        assertEquals(Arrays.asList(firstView, secondView), result);
+        ArgumentCaptor<IntPredicate> filter = ArgumentCaptor.forClass(IntPredicate.class);
+        verify(searchIndex).search(eq(""), eq("Test Author"), eq(1), filter.capture());
+        assertFalse(filter.getValue().test(3));
+        assertTrue(filter.getValue().test(5));
+    }
+
+    @Test
+    void searchBooks_WithAvailableOnly_FiltersHitsThroughBitmap() {
+        when(searchIndex.isReady()).thenReturn(true);
+        when(availabilityIndex.isReady()).thenReturn(true);
+        when(searchIndex.search(eq("Test"), eq(""), anyInt(), any(IntPredicate.class)))
+                .thenReturn(Collections.singletonList(1), Collections.emptyList());
+        when(bookRepository.findByIdIn(Collections.singletonList(1))).thenReturn(Collections.singletonList(firstView));
+
+        List<BookView> result = bookService.searchBooks("Test", null, 10, true);
+
+        assertEquals(Collections.singletonList(firstView), result);
+        verify(searchIndex, never()).search("Test", "", 10);
+    }
+
+    @Test
+    void searchBooks_WithAvailableOnly_WhenIndexIsNotReady_SkipsBorrowedBooks() {
+        secondTestBook.setAvailable(false);
+        BookView borrowed = BookView.of(secondTestBook);
+        when(bookRepository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("Test", ""))
+                .thenReturn(Arrays.asList(borrowed, firstView));
+
+        List<BookView> result = bookService.searchBooks("Test", null, 1, true);
+
+        assertEquals(Collections.singletonList(firstView), result);
+    }
+
+    @Test
+    void searchBooks_WhenIndexIsNotReady_LimitsDatabaseResults() {
+        when(bookRepository.findByTitleContainingIgnoreCaseAndAuthorContainingIgnoreCase("Test", ""))
+                .thenReturn(viewList);
+
+        List<BookView> result = bookService.searchBooks("Test", null, 1);
+
+        assertEquals(Collections.singletonList(firstView), result);
+    }
+
     @Test
     void searchBooks_NoParameters_ThrowsException() {
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
-            bookService.searchBooks(null, null);
+            bookService.searchBooks(null, null, 100);
         });
 
         assertEquals("At least one search parameter (title or author) must be provided", exception.getMessage());
@@ -157,12 +499,81 @@ public class BookServiceTest {
 
     @Test
     void create_SavesBook() {
-        when(bookRepository.save(any(Book.class))).thenReturn(firstTestBook);
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
+            Book saved = invocation.getArgument(0);
+            saved.setId(1);
+            return saved;
+        });
 
         Book result = bookService.create(firstTestBook);
 
         assertEquals(firstTestBook, result);
         verify(bookRepository, times(1)).save(firstTestBook);
+        verify(eventPublisher).publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.CREATED, 1, firstTestBook));
+    }
+
+    @Test
+    void createAll_SavesBooksWithGeneratedIds() {
+        firstTestBook.setId(7);
+        List<Book> books = Arrays.asList(firstTestBook, secondTestBook);
+        when(bookRepository.saveAll(books)).thenAnswer(invocation -> {
+            firstTestBook.setId(1);
+            secondTestBook.setId(2);
+            return books;
+        });
+
+        List<Book> result = bookService.createAll(books);
+
+        assertEquals(books, result);
+        verify(bookRepository).saveAll(books);
+        verify(eventPublisher).publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.CREATED, 1, firstTestBook));
+        verify(eventPublisher).publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.CREATED, 2, secondTestBook));
+    }
+
+    @Test
+    void createAll_ClearsGivenIds() {
+        firstTestBook.setId(7);
+        List<Book> books = Collections.singletonList(firstTestBook);
+        when(bookRepository.saveAll(books)).thenAnswer(invocation -> {
+            assertNull(firstTestBook.getId());
+            return books;
+        });
+
+        bookService.createAll(books);
+
+        verify(bookRepository).saveAll(books);
+    }
+
+    @Test
+    void create_WithBorrower_CreatesAvailableBook() {
+        firstTestBook.setAvailable(false);
+        firstTestBook.setBorrowerId(3);
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Book result = bookService.create(firstTestBook);
+
+        assertTrue(result.isAvailable());
+        assertNull(result.getBorrowerId());
+        verify(userRepository, never()).incrementLoanCount(anyInt(), anyInt());
+    }
+
+    @Test
+    void createAll_WithBorrowers_CreatesAvailableBooks() {
+        secondTestBook.setAvailable(false);
+        secondTestBook.setBorrowerId(3);
+        List<Book> books = Arrays.asList(firstTestBook, secondTestBook);
+        when(bookRepository.saveAll(books)).thenAnswer(invocation -> {
+            assertTrue(secondTestBook.isAvailable());
+            assertNull(secondTestBook.getBorrowerId());
+            return books;
+        });
+
+        bookService.createAll(books);
+
+        verify(bookRepository).saveAll(books);
     }
 
     @Test
@@ -215,88 +626,145 @@ public class BookServiceTest {
         verify(bookRepository, times(1)).save(bookWithNullId);
     }
 
+    @Test
+    void create_WithUnknownId_InsertsBookWithGeneratedId() {
+        Book bookWithUnknownId = new Book();
+        bookWithUnknownId.setId(42);
+        bookWithUnknownId.setTitle("Test Book");
+        bookWithUnknownId.setAuthor("Test Author");
+
+        when(bookRepository.existsById(42)).thenReturn(false);
+        when(bookRepository.save(any(Book.class))).thenReturn(firstTestBook);
+
+        Book result = bookService.create(bookWithUnknownId);
+
+        assertEquals(firstTestBook, result);
+        assertNull(bookWithUnknownId.getId());
+        verify(bookRepository, times(1)).save(bookWithUnknownId);
+    }
+
     @Test
     void remove_DeletesBook() {
-        doNothing().when(bookRepository).deleteById(1);
+        when(bookRepository.removeById(1)).thenReturn(1);
 
-        bookService.remove(1);
+        assertTrue(bookService.remove(1));
 
-        verify(bookRepository, times(1)).deleteById(1);
+        verify(bookRepository, times(1)).removeById(1);
+        verify(bookRepository, never()).findById(anyInt());
+        verify(eventPublisher).publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.REMOVED, 1, null));
     }
 
     @Test
-    void remove_WithInvalidId_ThrowsException() {
-        doThrow(new EmptyResultDataAccessException("", 1)).when(bookRepository).deleteById(999);
+    void remove_BorrowedBook_UncountsLoanOfBorrowerBeforeDeleting() {
+        when(userRepository.decrementLoanCountOfBorrower(1)).thenReturn(1);
+        when(bookRepository.removeById(1)).thenReturn(1);
 
-        assertThrows(EmptyResultDataAccessException.class, () -> {
-            bookService.remove(999);
-        });
+        assertTrue(bookService.remove(1));
+
+        InOrder inOrder = inOrder(userRepository, bookRepository);
+        inOrder.verify(userRepository).decrementLoanCountOfBorrower(1);
+        inOrder.verify(bookRepository).removeById(1);
+    }
+
+    @Test
+    void remove_WithInvalidId_ReturnsFalse() {
+        when(bookRepository.removeById(999)).thenReturn(0);
+
+        assertFalse(bookService.remove(999));
 
-        verify(bookRepository, times(1)).deleteById(999);
+        verify(bookRepository, times(1)).removeById(999);
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
     void update_WithExistingBook_UpdatesBook() {
+        when(bookRepository.updateDetails(1, "Test Book", "Test Author")).thenReturn(1);
         when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(firstTestBook);
 
-        Book result = bookService.update(firstTestBook);
+        Optional<Book> result = bookService.update(firstTestBook, null);
 
-        assertEquals(firstTestBook, result);
-        verify(bookRepository, times(1)).findById(1);
-        verify(bookRepository, times(1)).save(any(Book.class));
+        assertEquals(Optional.of(firstTestBook), result);
+        verify(bookRepository, times(1)).updateDetails(1, "Test Book", "Test Author");
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(eventPublisher).publishEvent(new BookChangedEvent(
+                BookChangedEvent.Type.UPDATED, 1, firstTestBook));
     }
 
     @Test
-    void update_WithNonExistingBook_ThrowsException() {
-        when(bookRepository.findById(firstTestBook.getId())).thenReturn(Optional.empty());
+    void update_WithNonExistingBook_ReturnsEmpty() {
+        when(bookRepository.updateDetails(1, "Test Book", "Test Author")).thenReturn(0);
 
-        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
-            bookService.update(firstTestBook);
+        Optional<Book> result = bookService.update(firstTestBook, null);
+
+        assertTrue(result.isEmpty());
+        verify(bookRepository, never()).findById(anyInt());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void update_WithExpectedVersion_UpdatesBookIfVersionMatches() {
+        when(bookRepository.updateDetailsIfVersion(1, "Test Book", "Test Author", 3)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        Optional<Book> result = bookService.update(firstTestBook, 3);
+
+        assertEquals(Optional.of(firstTestBook), result);
+        verify(bookRepository, never()).updateDetails(anyInt(), any(), any());
+        verify(bookRepository, never()).existsById(anyInt());
+    }
+
+    @Test
+    void update_WithOutdatedVersion_ThrowsException() {
+        when(bookRepository.updateDetailsIfVersion(1, "Test Book", "Test Author", 3)).thenReturn(0);
+        when(bookRepository.existsById(1)).thenReturn(true);
+
+        OptimisticLockingFailureException exception = assertThrows(OptimisticLockingFailureException.class, () -> {
+            bookService.update(firstTestBook, 3);
         });
 
-        assertTrue(exception.getMessage().contains(String.valueOf(firstTestBook.getId())));
-        verify(bookRepository, times(1)).findById(firstTestBook.getId());
-        verify(bookRepository, never()).save(any(Book.class));
+        assertEquals("Book 1 no longer has version 3", exception.getMessage());
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
-    void borrowBook_WhenBookAndUserExist_BorrowsBook() {
-        Book availableBook = new Book();
-        availableBook.setId(1);
-        availableBook.setTitle("Available Book");
-        availableBook.setAvailable(true);
-        availableBook.setBorrowerId(null);
+    void update_WithExpectedVersionOfNonExistingBook_ReturnsEmpty() {
+        when(bookRepository.updateDetailsIfVersion(1, "Test Book", "Test Author", 3)).thenReturn(0);
+        when(bookRepository.existsById(1)).thenReturn(false);
+
+        assertTrue(bookService.update(firstTestBook, 3).isEmpty());
+    }
 
+    @Test
+    void borrowBook_WhenBookAndUserExist_BorrowsBook() {
         Book borrowedBook = new Book();
         borrowedBook.setId(1);
         borrowedBook.setTitle("Available Book");
         borrowedBook.setAvailable(false);
         borrowedBook.setBorrowerId(1);
 
-        when(userRepository.existsById(1)).thenReturn(true);
-        when(bookRepository.findById(1)).thenReturn(Optional.of(availableBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(borrowedBook);
+        when(userRepository.incrementLoanCount(1, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.markBorrowed(1, 1)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
 
         Book result = bookService.borrowBook(1, 1);
 
         assertEquals(1, result.getBorrowerId());
         assertFalse(result.isAvailable());
-        verify(bookRepository, times(1)).findById(1);
-        verify(userRepository, times(1)).existsById(1);
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(userRepository, times(1)).incrementLoanCount(1, MAX_LOANS);
+        verify(bookRepository, times(1)).markBorrowed(1, 1);
+        verify(userRepository, never()).existsById(anyInt());
+        verify(bookRepository, never()).existsById(anyInt());
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(eventPublisher, times(1)).publishEvent(
+                new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1, borrowedBook));
     }
 
     @Test
     void borrowBook_WhenBookIsAlreadyBorrowed_ThrowsException() {
-        Book borrowedBook = new Book();
-        borrowedBook.setId(1);
-        borrowedBook.setTitle("Borrowed Book");
-        borrowedBook.setAvailable(false);
-        borrowedBook.setBorrowerId(2);  // Already borrowed by someone else
-
-        when(userRepository.existsById(1)).thenReturn(true);
-        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
+        when(userRepository.incrementLoanCount(1, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.markBorrowed(1, 1)).thenReturn(0);
+        when(bookRepository.existsById(1)).thenReturn(true);
 
         IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
             bookService.borrowBook(1, 1);
@@ -304,13 +772,13 @@ public class BookServiceTest {
 
         assertEquals("Book is already borrowed", exception.getMessage());
 
-        verify(bookRepository, times(1)).findById(1);
-        verify(userRepository, times(1)).existsById(1);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, times(1)).markBorrowed(1, 1);
+        verify(bookRepository, never()).findById(anyInt());
     }
 
     @Test
     void borrowBook_WhenUserDoesNotExist_ThrowsException() {
+        when(userRepository.incrementLoanCount(999, MAX_LOANS)).thenReturn(0);
         when(userRepository.existsById(999)).thenReturn(false);
 
         NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
@@ -318,80 +786,178 @@ public class BookServiceTest {
         });
 
         assertEquals("User not found with id: 999", exception.getMessage());
-        verify(userRepository, times(1)).existsById(999);
+        verify(bookRepository, never()).markBorrowed(anyInt(), anyInt());
         verify(bookRepository, never()).findById(anyInt());
-        verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
-    void borrowBook_WhenBookDoesNotExist_ThrowsException() {
+    void borrowBook_WhenUserHasMaximumLoans_ThrowsException() {
+        when(userRepository.incrementLoanCount(1, MAX_LOANS)).thenReturn(0);
         when(userRepository.existsById(1)).thenReturn(true);
-        when(bookRepository.findById(999)).thenReturn(Optional.empty());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            bookService.borrowBook(1, 1);
+        });
+
+        assertEquals("User already has the maximum of 2 books on loan", exception.getMessage());
+        verify(bookRepository, never()).markBorrowed(anyInt(), anyInt());
+    }
+
+    @Test
+    void borrowBook_WithoutMaximumLoans_CountsLoanWithoutLimit() {
+        bookService = new BookService(bookRepository, userRepository, holdRepository, entityManager, readModels,
+                eventPublisher, 0);
+        when(userRepository.incrementLoanCount(1, Integer.MAX_VALUE)).thenReturn(1);
+        when(bookRepository.markBorrowed(1, 1)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        bookService.borrowBook(1, 1);
+
+        verify(userRepository, times(1)).incrementLoanCount(1, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void borrowBook_WhenBookDoesNotExist_ThrowsException() {
+        when(userRepository.incrementLoanCount(1, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.markBorrowed(999, 1)).thenReturn(0);
+        when(bookRepository.existsById(999)).thenReturn(false);
 
         NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
             bookService.borrowBook(999, 1);
         });
 
         assertEquals("Book not found with id: 999", exception.getMessage());
-        verify(userRepository, times(1)).existsById(1);
-        verify(bookRepository, times(1)).findById(999);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, never()).findById(anyInt());
     }
 
     @Test
     void returnBook_WhenBookIsBorrowed_ReturnsBook() {
-        Book borrowedBook = new Book();
-        borrowedBook.setId(1);
-        borrowedBook.setTitle("Borrowed Book");
-        borrowedBook.setAvailable(false);
-        borrowedBook.setBorrowerId(1);  // Borrowed
-
         Book returnedBook = new Book();
         returnedBook.setId(1);
         returnedBook.setTitle("Borrowed Book");
         returnedBook.setAvailable(true);
         returnedBook.setBorrowerId(null);  // Returned
 
-        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
-        when(bookRepository.save(any(Book.class))).thenReturn(returnedBook);
+        when(bookRepository.markReturned(1)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(returnedBook));
 
         Book result = bookService.returnBook(1);
 
         assertNull(result.getBorrowerId());
         assertTrue(result.isAvailable());
-        verify(bookRepository, times(1)).findById(1);
-        verify(bookRepository, times(1)).save(any(Book.class));
+        verify(userRepository, times(1)).decrementLoanCountOfBorrower(1);
+        verify(bookRepository, times(1)).markReturned(1);
+        verify(bookRepository, never()).markBorrowed(anyInt(), anyInt());
+        verify(bookRepository, never()).existsById(anyInt());
+        verify(bookRepository, never()).save(any(Book.class));
+        verify(eventPublisher, times(1)).publishEvent(
+                new BookChangedEvent(BookChangedEvent.Type.RETURNED, 1, returnedBook));
     }
 
     @Test
-    void returnBook_WhenBookIsNotBorrowed_ThrowsException() {
-        Book availableBook = new Book();
-        availableBook.setId(1);
-        availableBook.setTitle("Available Book");
-        availableBook.setAvailable(true);
-        availableBook.setBorrowerId(null);  // Not borrowed
+    void returnBook_WhenUsersAreWaiting_LendsBookToFirstHolder() {
+        Hold first = hold(10, 2);
+        when(bookRepository.markReturned(1)).thenReturn(1);
+        when(holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(1, Hold.Status.WAITING, 0))
+                .thenReturn(Optional.of(first));
+        when(holdRepository.updateStatus(10, Hold.Status.WAITING, Hold.Status.FULFILLED)).thenReturn(1);
+        when(userRepository.incrementLoanCount(2, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        bookService.returnBook(1);
+
+        verify(bookRepository, times(1)).markBorrowed(1, 2);
+        verify(holdRepository, times(1))
+                .findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(anyInt(), any(), anyInt());
+        verify(eventPublisher, times(1)).publishEvent(
+                new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1, firstTestBook));
+    }
+
+    @Test
+    void returnBook_WhenFirstHolderHasMaximumLoans_SkipsThemButKeepsTheirHold() {
+        Hold first = hold(10, 2);
+        Hold second = hold(11, 3);
+        when(bookRepository.markReturned(1)).thenReturn(1);
+        when(holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(1, Hold.Status.WAITING, 0))
+                .thenReturn(Optional.of(first));
+        when(holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(1, Hold.Status.WAITING, 10))
+                .thenReturn(Optional.of(second));
+        when(holdRepository.updateStatus(10, Hold.Status.WAITING, Hold.Status.FULFILLED)).thenReturn(1);
+        when(holdRepository.updateStatus(11, Hold.Status.WAITING, Hold.Status.FULFILLED)).thenReturn(1);
+        when(holdRepository.updateStatus(10, Hold.Status.FULFILLED, Hold.Status.WAITING)).thenReturn(1);
+        when(userRepository.incrementLoanCount(2, MAX_LOANS)).thenReturn(0);
+        when(userRepository.incrementLoanCount(3, MAX_LOANS)).thenReturn(1);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
+
+        bookService.returnBook(1);
+
+        verify(holdRepository, times(1)).updateStatus(10, Hold.Status.FULFILLED, Hold.Status.WAITING);
+        verify(bookRepository, times(1)).markBorrowed(1, 3);
+        verify(bookRepository, never()).markBorrowed(1, 2);
+    }
+
+    @Test
+    void returnBook_WhenHoldWasCancelled_SkipsIt() {
+        Hold first = hold(10, 2);
+        when(bookRepository.markReturned(1)).thenReturn(1);
+        when(holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(1, Hold.Status.WAITING, 0))
+                .thenReturn(Optional.of(first));
+        when(holdRepository.findFirstByBookIdAndStatusAndIdGreaterThanOrderByIdAsc(1, Hold.Status.WAITING, 10))
+                .thenReturn(Optional.empty());
+        when(holdRepository.updateStatus(10, Hold.Status.WAITING, Hold.Status.FULFILLED)).thenReturn(0);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(firstTestBook));
 
-        when(bookRepository.findById(1)).thenReturn(Optional.of(availableBook));
+        bookService.returnBook(1);
+
+        verify(userRepository, never()).incrementLoanCount(anyInt(), anyInt());
+        verify(bookRepository, never()).markBorrowed(anyInt(), anyInt());
+    }
+
+    @Test
+    void returnBook_WhenBookIsNotBorrowed_ThrowsException() {
+        when(bookRepository.markReturned(1)).thenReturn(0);
+        when(bookRepository.existsById(1)).thenReturn(true);
 
         IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
             bookService.returnBook(1);
         });
 
         assertEquals("Book is not currently borrowed", exception.getMessage());
-        verify(bookRepository, times(1)).findById(1);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, never()).findById(anyInt());
     }
 
     @Test
     void returnBook_WhenBookDoesNotExist_ThrowsException() {
-        when(bookRepository.findById(999)).thenReturn(Optional.empty());
+        when(bookRepository.markReturned(999)).thenReturn(0);
+        when(bookRepository.existsById(999)).thenReturn(false);
 
         NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
             bookService.returnBook(999);
         });
 
         assertEquals("Book not found with id: 999", exception.getMessage());
-        verify(bookRepository, times(1)).findById(999);
-        verify(bookRepository, never()).save(any(Book.class));
+        verify(bookRepository, never()).findById(anyInt());
+    }
+
+    /**
+     * Makes the service read from a loaded catalog holding the test books.
+     *
+     * @return the catalog
+     */
+    private InMemoryBookCatalog readyCatalog() {
+        InMemoryBookCatalog inMemory = new InMemoryBookCatalog();
+        inMemory.put(firstTestBook);
+        inMemory.put(secondTestBook);
+        inMemory.markReady();
+        when(catalog.getIfAvailable()).thenReturn(inMemory);
+        return inMemory;
+    }
+
+    private static Hold hold(final int id, final int userId) {
+        Hold hold = new Hold();
+        hold.setId(id);
+        hold.setBookId(1);
+        hold.setUserId(userId);
+        return hold;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookVersionsTest {
+
+    private BookVersions versions;
+
+    @BeforeEach
+    void setUp() {
+        versions = new BookVersions();
+        versions.put(1, 0);
+        versions.put(3, 2);
+    }
+
+    @Test
+    void put_RecordsNewAndNewerVersions() {
+        assertTrue(versions.put(3, 3));
+        assertTrue(versions.put(3, 3));
+
+        assertEquals(3, versions.version(3));
+        assertTrue(versions.isPresent(3));
+    }
+
+    @Test
+    void put_RefusesOlderVersions() {
+        assertFalse(versions.put(3, 1));
+
+        assertEquals(2, versions.version(3));
+    }
+
+    @Test
+    void put_RefusesRemovedBooks() {
+        assertTrue(versions.remove(1));
+        assertFalse(versions.remove(1));
+
+        assertFalse(versions.put(1, 5));
+        assertFalse(versions.isPresent(1));
+        assertTrue(versions.isRemoved(1));
+    }
+
+    @Test
+    void put_GrowsBeyondTheInitialCapacity() {
+        int id = BookVersions.INITIAL_CAPACITY * 3;
+
+        assertTrue(versions.put(id, 7));
+
+        assertEquals(7, versions.version(id));
+        assertEquals(id, versions.nextPresent(4));
+    }
+
+    @Test
+    void presentIds_CopiesTheHeldIds() {
+        BitSet ids = versions.presentIds();
+        ids.clear(1);
+
+        assertEquals(2, versions.count());
+        assertEquals(1, versions.nextPresent(0));
+    }
+
+    @Test
+    void checkId_RejectsInvalidIds() {
+        assertEquals(1, BookVersions.checkId(1));
+        assertThrows(IllegalArgumentException.class, () -> BookVersions.checkId(null));
+        assertThrows(IllegalArgumentException.class, () -> BookVersions.checkId(0));
+        assertThrows(IllegalArgumentException.class, () -> BookVersions.checkId(BookVersions.MAX_CAPACITY));
+    }
+
+    @Test
+    void grow_AtLeastDoublesWithoutOverflowing() {
+        assertEquals(2048, BookVersions.grow(1024, 1024));
+        assertEquals(5001, BookVersions.grow(1024, 5000));
+        assertEquals(BookVersions.MAX_CAPACITY, BookVersions.grow(Integer.MAX_VALUE / 2 + 1, 10));
+    }
+}
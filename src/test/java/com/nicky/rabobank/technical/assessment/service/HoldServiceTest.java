@@ -0,0 +1,235 @@
+package com.nicky.rabobank.technical.assessment.service;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.Hold;
+import com.nicky.rabobank.technical.assessment.model.HoldView;
+import com.nicky.rabobank.technical.assessment.repository.BookRepository;
+import com.nicky.rabobank.technical.assessment.repository.HoldRepository;
+import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class HoldServiceTest {
+
+    @Mock
+    private HoldRepository holdRepository;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private HoldService holdService;
+
+    private Book borrowedBook;
+
+    private Hold testHold;
+
+    @BeforeEach
+    void setUp() {
+        borrowedBook = new Book();
+        borrowedBook.setId(1);
+        borrowedBook.setTitle("Borrowed Book");
+        borrowedBook.setAvailable(false);
+        borrowedBook.setBorrowerId(2);
+
+        testHold = new Hold();
+        testHold.setId(10);
+        testHold.setBookId(1);
+        testHold.setUserId(3);
+    }
+
+    @Test
+    void reserve_WhenBookIsBorrowed_PlacesHoldAtEndOfQueue() {
+        when(holdRepository.insertIfBorrowedByOther(1, 3, Hold.Status.WAITING)).thenReturn(1);
+        when(bookRepository.lockIfBorrowed(1)).thenReturn(1);
+        when(holdRepository.findByBookIdAndUserIdAndStatus(1, 3, Hold.Status.WAITING)).thenReturn(List.of(testHold));
+        when(holdRepository.countByBookIdAndStatusAndIdLessThan(1, Hold.Status.WAITING, 10)).thenReturn(2L);
+
+        HoldView result = holdService.reserve(1, 3);
+
+        assertEquals(new HoldView(10, 1, 3, Hold.Status.WAITING, 3), result);
+        verify(bookRepository, never()).findById(any());
+    }
+
+    @Test
+    void reserve_WhenBookIsReturnedInBetween_ThrowsException() {
+        when(holdRepository.insertIfBorrowedByOther(1, 3, Hold.Status.WAITING)).thenReturn(1);
+        when(bookRepository.lockIfBorrowed(1)).thenReturn(0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.reserve(1, 3);
+        });
+
+        assertEquals("Book is available, borrow it instead", exception.getMessage());
+    }
+
+    @Test
+    void reserve_WhenUserPlacesTwoHoldsAtOnce_ThrowsException() {
+        Hold otherHold = new Hold();
+        otherHold.setId(11);
+        otherHold.setBookId(1);
+        otherHold.setUserId(3);
+        when(holdRepository.insertIfBorrowedByOther(1, 3, Hold.Status.WAITING)).thenReturn(1);
+        when(bookRepository.lockIfBorrowed(1)).thenReturn(1);
+        when(holdRepository.findByBookIdAndUserIdAndStatus(1, 3, Hold.Status.WAITING))
+                .thenReturn(List.of(testHold, otherHold));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.reserve(1, 3);
+        });
+
+        assertEquals("User is already waiting for this book", exception.getMessage());
+    }
+
+    @Test
+    void reserve_WhenBookIsAvailable_ThrowsException() {
+        borrowedBook.setAvailable(true);
+        borrowedBook.setBorrowerId(null);
+        when(holdRepository.insertIfBorrowedByOther(1, 3, Hold.Status.WAITING)).thenReturn(0);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
+        when(userRepository.existsById(3)).thenReturn(true);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.reserve(1, 3);
+        });
+
+        assertEquals("Book is available, borrow it instead", exception.getMessage());
+        verify(bookRepository, never()).lockIfBorrowed(any());
+    }
+
+    @Test
+    void reserve_WhenUserBorrowedBook_ThrowsException() {
+        when(holdRepository.insertIfBorrowedByOther(1, 2, Hold.Status.WAITING)).thenReturn(0);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
+        when(userRepository.existsById(2)).thenReturn(true);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.reserve(1, 2);
+        });
+
+        assertEquals("User already borrowed this book", exception.getMessage());
+        verify(bookRepository, never()).lockIfBorrowed(any());
+    }
+
+    @Test
+    void reserve_WhenUserIsAlreadyWaiting_ThrowsException() {
+        when(holdRepository.insertIfBorrowedByOther(1, 3, Hold.Status.WAITING)).thenReturn(0);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
+        when(userRepository.existsById(3)).thenReturn(true);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.reserve(1, 3);
+        });
+
+        assertEquals("User is already waiting for this book", exception.getMessage());
+        verify(bookRepository, never()).lockIfBorrowed(any());
+    }
+
+    @Test
+    void reserve_WhenBookDoesNotExist_ThrowsException() {
+        when(holdRepository.insertIfBorrowedByOther(999, 3, Hold.Status.WAITING)).thenReturn(0);
+        when(bookRepository.findById(999)).thenReturn(Optional.empty());
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
+            holdService.reserve(999, 3);
+        });
+
+        assertEquals("Book not found with id: 999", exception.getMessage());
+    }
+
+    @Test
+    void reserve_WhenUserDoesNotExist_ThrowsException() {
+        when(holdRepository.insertIfBorrowedByOther(1, 999, Hold.Status.WAITING)).thenReturn(0);
+        when(bookRepository.findById(1)).thenReturn(Optional.of(borrowedBook));
+        when(userRepository.existsById(999)).thenReturn(false);
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
+            holdService.reserve(1, 999);
+        });
+
+        assertEquals("User not found with id: 999", exception.getMessage());
+    }
+
+    @Test
+    void get_WhenHoldIsWaiting_ReturnsPosition() {
+        when(holdRepository.findById(10)).thenReturn(Optional.of(testHold));
+        when(holdRepository.countByBookIdAndStatusAndIdLessThan(1, Hold.Status.WAITING, 10)).thenReturn(0L);
+
+        HoldView result = holdService.get(10);
+
+        assertEquals(Hold.Status.WAITING, result.status());
+        assertEquals(1, result.position());
+    }
+
+    @Test
+    void get_WhenHoldIsFulfilled_ReturnsNoPosition() {
+        testHold.setStatus(Hold.Status.FULFILLED);
+        when(holdRepository.findById(10)).thenReturn(Optional.of(testHold));
+
+        HoldView result = holdService.get(10);
+
+        assertEquals(Hold.Status.FULFILLED, result.status());
+        assertNull(result.position());
+        verify(holdRepository, never()).countByBookIdAndStatusAndIdLessThan(any(), any(), any());
+    }
+
+    @Test
+    void get_WhenHoldDoesNotExist_ThrowsException() {
+        when(holdRepository.findById(999)).thenReturn(Optional.empty());
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
+            holdService.get(999);
+        });
+
+        assertEquals("Hold not found with id: 999", exception.getMessage());
+    }
+
+    @Test
+    void cancel_WhenHoldIsWaiting_CancelsHold() {
+        when(holdRepository.updateStatus(10, Hold.Status.WAITING, Hold.Status.CANCELLED)).thenReturn(1);
+
+        holdService.cancel(10);
+
+        verify(holdRepository, never()).existsById(any());
+    }
+
+    @Test
+    void cancel_WhenHoldIsNotWaiting_ThrowsException() {
+        when(holdRepository.updateStatus(10, Hold.Status.WAITING, Hold.Status.CANCELLED)).thenReturn(0);
+        when(holdRepository.existsById(10)).thenReturn(true);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            holdService.cancel(10);
+        });
+
+        assertEquals("Hold is no longer waiting", exception.getMessage());
+    }
+
+    @Test
+    void cancel_WhenHoldDoesNotExist_ThrowsException() {
+        when(holdRepository.updateStatus(999, Hold.Status.WAITING, Hold.Status.CANCELLED)).thenReturn(0);
+        when(holdRepository.existsById(999)).thenReturn(false);
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
+            holdService.cancel(999);
+        });
+
+        assertEquals("Hold not found with id: 999", exception.getMessage());
+    }
+}
@@ -2,13 +2,18 @@ package com.nicky.rabobank.technical.assessment.service;
 
 import com.nicky.rabobank.technical.assessment.model.User;
 import com.nicky.rabobank.technical.assessment.repository.UserRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -24,6 +29,12 @@ public class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ObjectProvider<CacheManager> cacheManager;
+
     @InjectMocks
     private UserService userService;
 
@@ -47,14 +58,27 @@ public class UserServiceTest {
     }
 
     @Test
-    void getAll_ReturnsAllUsers() {
-        when(userRepository.findAll()).thenReturn(userList);
+    void getPage_ReturnsUsersAfterCursor() {
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0, PageRequest.ofSize(2)))
+                .thenReturn(userList);
 
-        Iterable<User> result = userService.getAll();
+        List<User> result = userService.getPage(0, 2);
 
         assertEquals(userList, result);
     }
 
+    @Test
+    void streamAll_PassesAndDetachesEveryUser() {
+        when(userRepository.streamAllByOrderByIdAsc()).thenReturn(userList.stream());
+        List<User> streamed = new ArrayList<>();
+
+        userService.streamAll(streamed::add);
+
+        assertEquals(userList, streamed);
+        verify(entityManager).detach(testUser);
+        verify(entityManager).detach(secondUser);
+    }
+
     @Test
     void get_WithValidId_ReturnsUser() {
         when(userRepository.findById(1)).thenReturn(Optional.of(testUser));
@@ -75,6 +99,36 @@ public class UserServiceTest {
         assertTrue(exception.getMessage().contains("User not found with id: 999"));
     }
 
+    @Test
+    void getAllByIds_ReturnsUsersInRequestOrderAndMissingIds() {
+        when(userRepository.findAllById(List.of(2, 1, 3))).thenReturn(userList);
+
+        LookupResult<User> result = userService.getAll(List.of(2, 1, 3));
+
+        assertEquals(List.of(secondUser, testUser), result.found());
+        assertEquals(List.of(3), result.missing());
+    }
+
+    @Test
+    void getLoans_WithValidId_ReturnsLoanCount() {
+        when(userRepository.findLoanCountById(1)).thenReturn(Optional.of(3));
+
+        UserLoans result = userService.getLoans(1);
+
+        assertEquals(new UserLoans(1, 3), result);
+    }
+
+    @Test
+    void getLoans_WithInvalidId_ThrowsException() {
+        when(userRepository.findLoanCountById(999)).thenReturn(Optional.empty());
+
+        NoSuchElementException exception = assertThrows(NoSuchElementException.class, () -> {
+            userService.getLoans(999);
+        });
+
+        assertTrue(exception.getMessage().contains("User not found with id: 999"));
+    }
+
     @Test
     void create_WithNewUser_SavesUser() {
         testUser.setId(1);
@@ -0,0 +1,95 @@
+package com.nicky.rabobank.technical.assessment.stats;
+
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.service.BookService;
+import com.nicky.rabobank.technical.assessment.service.LookupResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BookStatisticsReconcilerTest {
+
+    @Mock
+    private BookService bookService;
+
+    private BookStatistics statistics;
+
+    private MeterRegistry meterRegistry;
+
+    private BookStatisticsReconciler reconciler;
+
+    private List<Book> books;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        statistics = new BookStatistics();
+        meterRegistry = new SimpleMeterRegistry();
+        reconciler = new BookStatisticsReconciler(bookService, statistics, meterRegistry);
+        books = new ArrayList<>(List.of(book(1, "Book 1", "J.R.R. Tolkien", null, 0), book(2, "Book 2", "William Golding", 7, 0)));
+        lenient().doAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            books.forEach(consumer);
+            return null;
+        }).when(bookService).streamAll(any(Consumer.class));
+    }
+
+    @Test
+    void reconcile_BeforeBuild_DoesNothing() {
+        reconciler.reconcile();
+
+        verify(bookService, never()).countStats(anyInt(), anyInt());
+    }
+
+    @Test
+    void reconcile_WhenCountersMatch_DoesNotCountAgain() {
+        build();
+        BookStats actual = statistics.stats(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        when(bookService.countStats(Integer.MAX_VALUE, Integer.MAX_VALUE)).thenReturn(actual);
+
+        reconciler.reconcile();
+
+        verify(bookService, never()).streamAll(any());
+        assertEquals(0, meterRegistry.counter("library.books.stats.drifts").count());
+    }
+
+    @Test
+    void reconcile_WhenCountersDrifted_CountsAgainAndRemovesMissingBooks() {
+        build();
+        // The borrower is cleared and a book deleted without going through the service
+        books.set(1, book(2, "Book 2", "William Golding", null, 0));
+        books.get(1).setAvailable(false);
+        books.remove(0);
+        when(bookService.countStats(Integer.MAX_VALUE, Integer.MAX_VALUE))
+                .thenReturn(new BookStats(1, 0, 1, List.of(), List.of()));
+        when(bookService.getAll(List.of(1))).thenReturn(new LookupResult<>(List.of(), List.of(1)));
+
+        reconciler.reconcile();
+
+        BookStats stats = statistics.stats(10, 10);
+        assertEquals(1, stats.books());
+        assertEquals(1, stats.borrowed());
+        assertTrue(stats.topBorrowers().isEmpty());
+        assertEquals(1, meterRegistry.counter("library.books.stats.drifts").count());
+    }
+
+    private void build() {
+        books.forEach(statistics::put);
+        statistics.markReady();
+    }
+}
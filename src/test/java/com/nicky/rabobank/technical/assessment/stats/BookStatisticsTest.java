@@ -0,0 +1,109 @@
+package com.nicky.rabobank.technical.assessment.stats;
+
+import com.nicky.rabobank.technical.assessment.model.AuthorStats;
+import com.nicky.rabobank.technical.assessment.model.Book;
+import com.nicky.rabobank.technical.assessment.model.BookStats;
+import com.nicky.rabobank.technical.assessment.model.BorrowerStats;
+import com.nicky.rabobank.technical.assessment.service.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.nicky.rabobank.technical.assessment.model.TestBooks.book;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookStatisticsTest {
+
+    private BookStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = new BookStatistics();
+        statistics.put(book(1, "Book 1", "J.R.R. Tolkien", null, 0));
+        statistics.put(book(2, "Book 2", "J.R.R. Tolkien", 7, 1));
+        statistics.put(book(3, "Book 3", "William Golding", 7, 1));
+        statistics.put(book(4, "Book 4", "Victor Hugo", 8, 1));
+    }
+
+    @Test
+    void isReady_OnlyAfterMarkReady() {
+        assertFalse(statistics.isReady());
+
+        statistics.markReady();
+
+        assertTrue(statistics.isReady());
+    }
+
+    @Test
+    void stats_CountsBooksPerAuthorAndBorrower() {
+        BookStats stats = statistics.stats(10, 10);
+
+        assertEquals(4, stats.books());
+        assertEquals(1, stats.available());
+        assertEquals(3, stats.borrowed());
+        assertEquals(List.of(
+                new AuthorStats("J.R.R. Tolkien", 2, 1, 1),
+                new AuthorStats("Victor Hugo", 1, 0, 1),
+                new AuthorStats("William Golding", 1, 0, 1)), stats.authors());
+        assertEquals(List.of(new BorrowerStats(7, 2), new BorrowerStats(8, 1)), stats.topBorrowers());
+    }
+
+    @Test
+    void stats_StopsAtMaximums() {
+        BookStats stats = statistics.stats(1, 1);
+
+        assertEquals(List.of(new AuthorStats("J.R.R. Tolkien", 2, 1, 1)), stats.authors());
+        assertEquals(List.of(new BorrowerStats(7, 2)), stats.topBorrowers());
+    }
+
+    @Test
+    void onBookChanged_AppliesEveryKindOfChange() {
+        statistics.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.RETURNED, 2,
+                book(2, "Book 2", "J.R.R. Tolkien", null, 2)));
+        statistics.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.BORROWED, 1,
+                book(1, "Book 1", "J.R.R. Tolkien", 8, 1)));
+        statistics.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.UPDATED, 3,
+                book(3, "Book 3", "Victor Hugo", 7, 2)));
+        statistics.onBookChanged(new BookChangedEvent(BookChangedEvent.Type.REMOVED, 4, null));
+
+        BookStats stats = statistics.stats(10, 10);
+
+        assertEquals(3, stats.books());
+        assertEquals(2, stats.borrowed());
+        assertEquals(List.of(
+                new AuthorStats("J.R.R. Tolkien", 2, 1, 1),
+                new AuthorStats("Victor Hugo", 1, 0, 1)), stats.authors());
+        assertEquals(List.of(new BorrowerStats(7, 1), new BorrowerStats(8, 1)), stats.topBorrowers());
+    }
+
+    @Test
+    void put_IgnoresOlderVersionsAndRemovedBooks() {
+        statistics.put(book(2, "Book 2", "J.R.R. Tolkien", null, 0));
+        statistics.remove(4);
+        statistics.put(book(4, "Book 4", "Victor Hugo", 8, 1));
+
+        BookStats stats = statistics.stats(10, 10);
+
+        assertEquals(3, stats.books());
+        assertEquals(List.of(new BorrowerStats(7, 2)), stats.topBorrowers());
+    }
+
+    @Test
+    void put_WithSameVersion_ReplacesCountedBook() {
+        // The database clears the borrower of a deleted user without a new version
+        Book book = book(4, "Book 4", "Victor Hugo", null, 1);
+        book.setAvailable(false);
+        statistics.put(book);
+
+        assertEquals(List.of(new BorrowerStats(7, 2)), statistics.stats(10, 10).topBorrowers());
+        assertEquals(3, statistics.stats(10, 10).borrowed());
+    }
+
+    @Test
+    void countedIds_ListsCountedBooks() {
+        statistics.remove(3);
+
+        assertEquals(List.of(1, 2, 4), statistics.countedIds().stream().boxed().toList());
+    }
+}